@@ -1538,7 +1538,7 @@ public class CtF extends Event
 		return true;
 	}
 	
-	private static void enemyTeamFlag(Player player)
+	private void enemyTeamFlag(Player player)
 	{
 		if (BLUE_TEAM.contains(player))
 		{
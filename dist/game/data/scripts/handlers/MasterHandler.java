@@ -107,6 +107,7 @@ import handlers.admincommandhandlers.AdminMobGroup;
 import handlers.admincommandhandlers.AdminOlympiad;
 import handlers.admincommandhandlers.AdminOnline;
 import handlers.admincommandhandlers.AdminPathNode;
+import handlers.admincommandhandlers.AdminPerformance;
 import handlers.admincommandhandlers.AdminPcCafePoints;
 import handlers.admincommandhandlers.AdminPetition;
 import handlers.admincommandhandlers.AdminPForge;
@@ -424,6 +425,7 @@ public class MasterHandler
 			AdminOlympiad.class,
 			AdminOnline.class,
 			AdminPathNode.class,
+			AdminPerformance.class,
 			AdminPcCafePoints.class,
 			AdminPetition.class,
 			AdminPForge.class,
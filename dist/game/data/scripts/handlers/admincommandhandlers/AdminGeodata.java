@@ -26,6 +26,8 @@ import java.nio.file.Path;
 import java.util.StringTokenizer;
 
 import org.l2jmobius.Config;
+import org.l2jmobius.commons.threads.ThreadPool;
+import org.l2jmobius.commons.util.Rnd;
 import org.l2jmobius.gameserver.cache.HtmCache;
 import org.l2jmobius.gameserver.geoengine.GeoEngine;
 import org.l2jmobius.gameserver.geoengine.geodata.Cell;
@@ -46,6 +48,10 @@ import org.l2jmobius.gameserver.util.HtmlUtil;
  */
 public class AdminGeodata implements IAdminCommandHandler
 {
+	private static final int SEGMENT_CELLS = 64;
+	private static final int DEFAULT_BENCH_SAMPLES = 1000000;
+	private static final int MAX_BENCH_SAMPLES = 10000000;
+	
 	private static final String[] ADMIN_COMMANDS =
 	{
 		"admin_geo_pos",
@@ -56,6 +62,7 @@ public class AdminGeodata implements IAdminCommandHandler
 		"admin_geomap",
 		"admin_geomap_reload",
 		"admin_geocell",
+		"admin_geo_bench",
 		"admin_geosave",
 		"admin_geosaveall",
 		"admin_geoenablenorth",
@@ -222,6 +229,41 @@ public class AdminGeodata implements IAdminCommandHandler
 				activeChar.sendSysMessage("GeoCell: " + geoX + ", " + geoY + ". XYZ (" + worldX + ", " + worldY + ", " + geoZ + ")");
 				break;
 			}
+			case "admin_geo_bench":
+			{
+				final int geoX = GeoEngine.getGeoX(activeChar.getX());
+				final int geoY = GeoEngine.getGeoY(activeChar.getY());
+				if (!GeoEngine.getInstance().hasGeoPos(geoX, geoY))
+				{
+					activeChar.sendSysMessage("There is no geodata at this position.");
+					return false;
+				}
+				
+				int samples = DEFAULT_BENCH_SAMPLES;
+				if (st.hasMoreTokens())
+				{
+					try
+					{
+						samples = Integer.parseInt(st.nextToken());
+					}
+					catch (NumberFormatException e)
+					{
+						activeChar.sendSysMessage("Usage: //geo_bench [samples]");
+						return false;
+					}
+				}
+				if ((samples < 1) || (samples > MAX_BENCH_SAMPLES))
+				{
+					activeChar.sendSysMessage("Samples must be between 1 and " + MAX_BENCH_SAMPLES + ".");
+					return false;
+				}
+				
+				// The bench runs for a while, keep it off the packet thread.
+				final int benchSamples = samples;
+				activeChar.sendSysMessage("GeoBench: running " + benchSamples + " samples...");
+				ThreadPool.execute(() -> runGeoBench(activeChar, geoX, geoY, benchSamples));
+				break;
+			}
 			case "admin_geosave":
 			{
 				// Create the saves directory if it does not exist.
@@ -676,6 +718,55 @@ public class AdminGeodata implements IAdminCommandHandler
 		return true;
 	}
 	
+	/**
+	 * Times single height lookups against segment lookups in the region of the given cell.
+	 * @param activeChar the admin to report to
+	 * @param geoX the geodata X of the sampled cell
+	 * @param geoY the geodata Y of the sampled cell
+	 * @param samples the number of random cells to sample
+	 */
+	private void runGeoBench(Player activeChar, int geoX, int geoY, int samples)
+	{
+		final int worldZ = activeChar.getZ();
+		
+		// Sample random cells and segments of the region the admin stands in.
+		final int regionGeoX = (geoX / IRegion.REGION_CELLS_X) * IRegion.REGION_CELLS_X;
+		final int regionGeoY = (geoY / IRegion.REGION_CELLS_Y) * IRegion.REGION_CELLS_Y;
+		final int[] sampleX = new int[samples];
+		final int[] sampleY = new int[samples];
+		for (int i = 0; i < samples; i++)
+		{
+			sampleX[i] = regionGeoX + Rnd.get(IRegion.REGION_CELLS_X);
+			sampleY[i] = regionGeoY + Rnd.get(IRegion.REGION_CELLS_Y);
+		}
+		
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < samples; i++)
+		{
+			checksum += GeoEngine.getInstance().getNearestZ(sampleX[i], sampleY[i], worldZ);
+		}
+		final long singleTime = System.nanoTime() - start;
+		
+		final int[] heights = new int[SEGMENT_CELLS];
+		int batchedCount = 0;
+		start = System.nanoTime();
+		for (int i = 0; (i + 1) < samples; i += 2)
+		{
+			final int fromX = GeoEngine.getWorldX(sampleX[i]);
+			final int fromY = GeoEngine.getWorldY(sampleY[i]);
+			final int toX = fromX + (((sampleX[i + 1] - regionGeoX) % SEGMENT_CELLS) * 16);
+			final int toY = fromY + (((sampleY[i + 1] - regionGeoY) % SEGMENT_CELLS) * 16);
+			final int count = GeoEngine.getInstance().getHeights(fromX, fromY, worldZ, toX, toY, heights);
+			batchedCount += count;
+			checksum += heights[count - 1];
+		}
+		final long batchedTime = System.nanoTime() - start;
+		
+		activeChar.sendSysMessage("GeoBench: " + samples + " single lookups, " + (singleTime / Math.max(1, samples)) + " ns per height.");
+		activeChar.sendSysMessage("GeoBench: " + batchedCount + " segment lookups, " + (batchedTime / Math.max(1, batchedCount)) + " ns per height (checksum " + checksum + ").");
+	}
+	
 	private int getPlayerDirection(Player activeChar)
 	{
 		final int heading = activeChar.getHeading();
@@ -0,0 +1,189 @@
+/*
+ * This file is part of the L2J Mobius project.
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package handlers.admincommandhandlers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.l2jmobius.commons.util.AllocationUtil;
+import org.l2jmobius.gameserver.cache.HtmCache;
+import org.l2jmobius.gameserver.data.xml.SkillData;
+import org.l2jmobius.gameserver.handler.IAdminCommandHandler;
+import org.l2jmobius.gameserver.model.WorldObject;
+import org.l2jmobius.gameserver.model.WorldRegion;
+import org.l2jmobius.gameserver.model.actor.Creature;
+import org.l2jmobius.gameserver.model.actor.Player;
+import org.l2jmobius.gameserver.model.actor.stat.CreatureStat;
+import org.l2jmobius.gameserver.model.events.Containers;
+import org.l2jmobius.gameserver.model.events.EventDispatcher;
+import org.l2jmobius.gameserver.model.events.EventType;
+import org.l2jmobius.gameserver.model.events.ListenersContainer;
+import org.l2jmobius.gameserver.model.events.holders.IBaseEvent;
+import org.l2jmobius.gameserver.model.events.listeners.ConsumerEventListener;
+import org.l2jmobius.gameserver.taskmanagers.AttackableThinkTaskManager;
+import org.l2jmobius.gameserver.taskmanagers.AutobotTaskManager;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager;
+
+/**
+ * Displays timing counters of the server tick subsystems and runs micro-benchmarks of hot paths.
+ * @author Mobius
+ */
+public class AdminPerformance implements IAdminCommandHandler
+{
+	private static final String[] ADMIN_COMMANDS =
+	{
+		"admin_perf",
+		"admin_perf_listeners"
+	};
+	
+	private static final EventType[] HOT_EVENT_TYPES =
+	{
+		EventType.ON_CREATURE_DAMAGE_RECEIVED,
+		EventType.ON_CREATURE_SEE,
+		EventType.ON_CREATURE_ATTACK
+	};
+	private static final int BENCHMARK_ITERATIONS = 1_000_000;
+	private static final int BENCHMARK_LISTENERS = 3;
+	
+	@Override
+	public boolean onCommand(String command, Player activeChar)
+	{
+		if (command.equals("admin_perf"))
+		{
+			activeChar.sendSysMessage("Region AI switches: " + WorldRegion.getSwitchCount() + ", average " + toMillis(WorldRegion.getSwitchAverageTime()) + " ms, max " + toMillis(WorldRegion.getSwitchMaxTime()) + " ms.");
+			activeChar.sendSysMessage("Stat recalculations: " + CreatureStat.getRecalculationCount() + ", average " + toMillis(CreatureStat.getRecalculationAverageTime()) + " ms, max " + toMillis(CreatureStat.getRecalculationMaxTime()) + " ms, " + CreatureStat.getRecalculationAverageAllocation() + " bytes allocated each, " + CreatureStat.getIncrementalRecalculationCount() + " incremental.");
+			final int skillLevels = SkillData.getInstance().getLevelCount();
+			final int builtSkillLevels = SkillData.getInstance().getBuiltLevelCount();
+			activeChar.sendSysMessage("Skill levels built: " + builtSkillLevels + " of " + skillLevels + " (" + (skillLevels > 0 ? (builtSkillLevels * 100) / skillLevels : 0) + "%).");
+			activeChar.sendSysMessage("Html cache: " + String.format("%.3f", HtmCache.getInstance().getMemoryUsage()) + " megabytes on " + HtmCache.getInstance().getLoadedFiles() + " files, " + String.format("%.3f", HtmCache.getInstance().getEncodedMemoryUsage()) + " megabytes kept encoded for packets.");
+			activeChar.sendSysMessage("Memoised stat reads: " + CreatureStat.getFinalizedHitCount() + ", debug mismatches " + CreatureStat.getFinalizedMismatchCount() + ".");
+			for (String line : AttackableThinkTaskManager.getInstance().getShardStatistics())
+			{
+				activeChar.sendSysMessage(line);
+			}
+			
+			for (String line : AutobotTaskManager.getInstance().getShardStatistics())
+			{
+				activeChar.sendSysMessage(line);
+			}
+			
+			for (String line : TickTaskManager.getInstance().getShardStatistics())
+			{
+				activeChar.sendSysMessage(line);
+			}
+			
+			for (String line : EventDispatcher.getInstance().getAsyncStatistics())
+			{
+				activeChar.sendSysMessage(line);
+			}
+		}
+		else if (command.equals("admin_perf_listeners"))
+		{
+			final WorldObject target = activeChar.getTarget();
+			final Creature creature = (target != null) && target.isCreature() ? target.asCreature() : activeChar;
+			for (EventType type : HOT_EVENT_TYPES)
+			{
+				activeChar.sendSysMessage(benchmarkListenerCheck(type, creature));
+				activeChar.sendSysMessage(benchmarkDispatch(type));
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Measures the listener check done before firing an event on the given creature.
+	 * @param type the event type
+	 * @param creature the creature
+	 * @return the result line
+	 */
+	private static String benchmarkListenerCheck(EventType type, Creature creature)
+	{
+		final EventDispatcher dispatcher = EventDispatcher.getInstance();
+		int found = 0;
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+		{
+			if (dispatcher.hasListener(type, creature))
+			{
+				found++;
+			}
+		}
+		
+		final long allocatedBefore = AllocationUtil.getCurrentThreadAllocatedBytes();
+		final long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+		{
+			if (dispatcher.hasListener(type, creature))
+			{
+				found++;
+			}
+		}
+		
+		final long time = System.nanoTime() - startTime;
+		final long allocated = AllocationUtil.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		return type + " check: " + String.format("%.1f", time / (double) BENCHMARK_ITERATIONS) + " ns, " + (allocated / BENCHMARK_ITERATIONS) + " bytes, " + (found > 0 ? "has" : "no") + " listeners.";
+	}
+	
+	/**
+	 * Measures the dispatch of an event to a detached container holding a few no-op listeners.
+	 * @param type the event type
+	 * @return the result line
+	 */
+	private static String benchmarkDispatch(EventType type)
+	{
+		// Dispatch also reaches the global container, do not feed fake events to real listeners.
+		if (Containers.Global().hasOwnListener(type))
+		{
+			return type + " dispatch: skipped, global listeners are registered.";
+		}
+		
+		final ListenersContainer container = new ListenersContainer();
+		final int[] calls = new int[1];
+		for (int i = 0; i < BENCHMARK_LISTENERS; i++)
+		{
+			container.addListener(new ConsumerEventListener(container, type, event -> calls[0]++, AdminPerformance.class));
+		}
+		
+		final IBaseEvent event = () -> type;
+		final EventDispatcher dispatcher = EventDispatcher.getInstance();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+		{
+			dispatcher.notifyEvent(event, container);
+		}
+		
+		final long allocatedBefore = AllocationUtil.getCurrentThreadAllocatedBytes();
+		final long startTime = System.nanoTime();
+		for (int i = 0; i < BENCHMARK_ITERATIONS; i++)
+		{
+			dispatcher.notifyEvent(event, container);
+		}
+		
+		final long time = System.nanoTime() - startTime;
+		final long allocated = AllocationUtil.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		return type + " dispatch to " + BENCHMARK_LISTENERS + " listeners: " + String.format("%.1f", time / (double) BENCHMARK_ITERATIONS) + " ns, " + (allocated / BENCHMARK_ITERATIONS) + " bytes, " + calls[0] + " calls.";
+	}
+	
+	private static String toMillis(long nanos)
+	{
+		return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+	}
+	
+	@Override
+	public String[] getCommandList()
+	{
+		return ADMIN_COMMANDS;
+	}
+}
@@ -88,8 +88,15 @@ public class AdminQuest implements IAdminCommandHandler
 				return false;
 			}
 			
-			quest.reload();
-			activeChar.sendSysMessage("Script successful reloaded.");
+			try
+			{
+				activeChar.sendSysMessage(ScriptManager.getInstance().reloadScript(quest));
+			}
+			catch (Exception e)
+			{
+				activeChar.sendSysMessage("Failed to reload script!");
+				LOGGER.log(Level.WARNING, "Failed to reload script " + script + "!", e);
+			}
 		}
 		else if (command.startsWith("admin_script_load"))
 		{
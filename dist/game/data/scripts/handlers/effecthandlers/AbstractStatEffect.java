@@ -141,6 +141,13 @@ public abstract class AbstractStatEffect extends AbstractEffect
 		}
 	}
 	
+	@Override
+	public boolean canReplayPump()
+	{
+		// Conditions such as combat state can change without a stat recalculation.
+		return _conditions.isEmpty();
+	}
+	
 	@Override
 	public void pump(Creature effected, Skill skill)
 	{
@@ -50,6 +50,13 @@ public class AddSkillBySkill extends AbstractEffect
 		return effected.isPlayer() && !effected.isTransformed() && (effected.getSkillLevel(_existingSkillId) == _existingSkillLevel);
 	}
 	
+	@Override
+	public boolean canReplayPump()
+	{
+		// Adds a skill when pumped.
+		return false;
+	}
+	
 	@Override
 	public void pump(Creature effected, Skill skill)
 	{
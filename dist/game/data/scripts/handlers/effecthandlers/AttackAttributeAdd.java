@@ -35,6 +35,13 @@ public class AttackAttributeAdd extends AbstractEffect
 		_amount = params.getDouble("amount", 0);
 	}
 	
+	@Override
+	public boolean canReplayPump()
+	{
+		// Depends on the current attack attribute values.
+		return false;
+	}
+	
 	@Override
 	public void pump(Creature effected, Skill skill)
 	{
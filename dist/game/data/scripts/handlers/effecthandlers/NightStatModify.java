@@ -82,6 +82,13 @@ public class NightStatModify extends AbstractEffect
 		NIGHT_STAT_CHARACTERS.remove(effected);
 	}
 	
+	@Override
+	public boolean canReplayPump()
+	{
+		// Depends on the time of day.
+		return false;
+	}
+	
 	@Override
 	public void pump(Creature effected, Skill skill)
 	{
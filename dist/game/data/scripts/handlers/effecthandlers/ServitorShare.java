@@ -60,6 +60,13 @@ public class ServitorShare extends AbstractEffect
 		return effected.isSummon();
 	}
 	
+	@Override
+	public boolean canReplayPump()
+	{
+		// Depends on the current stats of the owner.
+		return false;
+	}
+	
 	@Override
 	public void pump(Creature effected, Skill skill)
 	{
@@ -209,6 +209,7 @@ public class Config
 	public static int HIGH_PRIORITY_SCHEDULED_THREAD_POOL_SIZE;
 	public static int INSTANT_THREAD_POOL_SIZE;
 	public static boolean THREADS_FOR_LOADING;
+	public static boolean DATAPACK_SNAPSHOT;
 	public static boolean DEADLOCK_WATCHER;
 	public static int DEADLOCK_CHECK_INTERVAL;
 	public static boolean RESTART_ON_DEADLOCK;
@@ -509,6 +510,7 @@ public class Config
 	// Development
 	// --------------------------------------------------
 	public static boolean HTML_ACTION_CACHE_DEBUG;
+	public static boolean STAT_CACHE_DEBUG;
 	public static boolean NO_QUESTS;
 	public static boolean NO_SPAWNS;
 	public static boolean SHOW_QUEST_LOAD_IN_LOGS;
@@ -1663,6 +1665,7 @@ public class Config
 				INSTANT_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
 			}
 			THREADS_FOR_LOADING = serverConfig.getBoolean("ThreadsForLoading", false);
+			DATAPACK_SNAPSHOT = serverConfig.getBoolean("DatapackSnapshot", true);
 			DEADLOCK_WATCHER = serverConfig.getBoolean("DeadlockWatcher", true);
 			DEADLOCK_CHECK_INTERVAL = serverConfig.getInt("DeadlockCheckInterval", 20);
 			RESTART_ON_DEADLOCK = serverConfig.getBoolean("RestartOnDeadlock", false);
@@ -2077,6 +2080,7 @@ public class Config
 			// --------------------------------------------------
 			final ConfigReader developmentConfig = new ConfigReader(DEVELOPMENT_CONFIG_FILE);
 			HTML_ACTION_CACHE_DEBUG = developmentConfig.getBoolean("HtmlActionCacheDebug", false);
+			STAT_CACHE_DEBUG = developmentConfig.getBoolean("StatCacheDebug", false);
 			NO_QUESTS = developmentConfig.getBoolean("NoQuests", false);
 			NO_SPAWNS = developmentConfig.getBoolean("NoSpawns", false);
 			SHOW_QUEST_LOAD_IN_LOGS = developmentConfig.getBoolean("ShowQuestLoadInLogs", false);
@@ -148,6 +148,21 @@ public abstract class WritableBuffer implements Buffer
 		writeChar('\000');
 	}
 	
+	/**
+	 * Write a <b>String</b> already encoded as UTF-16LE to the buffer with a null termination (\000).<br>
+	 * Used for text that is sent many times, so it is encoded only once.
+	 * @param text the encoded text, {@code null} writes an empty string.
+	 */
+	public void writeEncodedString(byte[] text)
+	{
+		if (text != null)
+		{
+			writeBytes(text);
+		}
+		
+		writeChar('\000');
+	}
+	
 	private void writeStringWithCharset(CharSequence text)
 	{
 		writeBytes(text.toString().getBytes(StandardCharsets.UTF_16LE));
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.threads;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * A graph of startup tasks with declared dependencies.<br>
+ * Tasks can only depend on tasks added before them, so the order of addition is always a valid sequential order and the graph cannot contain cycles.<br>
+ * When run in parallel, every task starts on the loading pool of {@link ThreadPool} as soon as all of its dependencies are done.
+ * @author Mobius
+ */
+public class TaskGraph
+{
+	private static final Logger LOGGER = Logger.getLogger(TaskGraph.class.getName());
+	
+	private static final int REPORTED_SLOWEST_TASKS = 5;
+	
+	private final List<Task> _tasks = new ArrayList<>();
+	private String _section;
+	private long _startTime;
+	private long _wallTime;
+	
+	/**
+	 * A task of the graph.
+	 */
+	public static class Task
+	{
+		private final int _index;
+		private final String _name;
+		private final String _section;
+		private final Runnable _runnable;
+		private final Task[] _dependencies;
+		private final List<Task> _dependents = new ArrayList<>();
+		private final AtomicInteger _pendingDependencies = new AtomicInteger();
+		private long _startTime;
+		private long _endTime;
+		
+		private Task(int index, String name, String section, Runnable runnable, Task[] dependencies)
+		{
+			_index = index;
+			_name = name;
+			_section = section;
+			_runnable = runnable;
+			_dependencies = dependencies;
+		}
+		
+		public String getName()
+		{
+			return _name;
+		}
+		
+		/**
+		 * @return the run time of the task in nanoseconds
+		 */
+		public long getDuration()
+		{
+			return _endTime - _startTime;
+		}
+	}
+	
+	/**
+	 * Sets the section of the tasks added next. Sections are announced when the graph runs sequentially.
+	 * @param section the section name
+	 */
+	public void section(String section)
+	{
+		_section = section;
+	}
+	
+	/**
+	 * Adds a task to the graph.
+	 * @param name the name of the task
+	 * @param runnable the work of the task
+	 * @param dependencies the tasks that must be done before this task starts
+	 * @return the added task
+	 */
+	public Task add(String name, Runnable runnable, Task... dependencies)
+	{
+		for (Task dependency : dependencies)
+		{
+			if ((dependency._index >= _tasks.size()) || (_tasks.get(dependency._index) != dependency))
+			{
+				throw new IllegalArgumentException("TaskGraph: Dependency " + dependency.getName() + " of " + name + " is not part of the graph.");
+			}
+		}
+		
+		final Task task = new Task(_tasks.size(), name, _section, runnable, dependencies);
+		for (Task dependency : dependencies)
+		{
+			dependency._dependents.add(task);
+		}
+		
+		_tasks.add(task);
+		return task;
+	}
+	
+	/**
+	 * @return all tasks added so far, for a task that depends on everything before it
+	 */
+	public Task[] getTasks()
+	{
+		return _tasks.toArray(new Task[0]);
+	}
+	
+	/**
+	 * Runs all tasks and waits until they are done.<br>
+	 * Sequential runs keep the order of addition and announce each section. Parallel runs stop starting tasks after the first failure.
+	 * @param parallel {@code true} to run on the loading pool, {@code false} to run in order on the calling thread
+	 * @param sectionListener called with the section name when a sequential run enters a new section
+	 */
+	public void run(boolean parallel, Consumer<String> sectionListener)
+	{
+		_startTime = System.nanoTime();
+		if (parallel)
+		{
+			runParallel();
+		}
+		else
+		{
+			String section = null;
+			for (Task task : _tasks)
+			{
+				if ((task._section != null) && !task._section.equals(section))
+				{
+					section = task._section;
+					sectionListener.accept(section);
+				}
+				
+				execute(task);
+			}
+		}
+		
+		_wallTime = System.nanoTime() - _startTime;
+	}
+	
+	private void runParallel()
+	{
+		final CountDownLatch done = new CountDownLatch(_tasks.size());
+		final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		for (Task task : _tasks)
+		{
+			task._pendingDependencies.set(task._dependencies.length);
+		}
+		
+		for (Task task : _tasks)
+		{
+			if (task._dependencies.length == 0)
+			{
+				submit(task, done, failure);
+			}
+		}
+		
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				done.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		if (failure.get() != null)
+		{
+			throw failure.get();
+		}
+	}
+	
+	private void submit(Task task, CountDownLatch done, AtomicReference<RuntimeException> failure)
+	{
+		ThreadPool.executeLoading(() ->
+		{
+			try
+			{
+				if (failure.get() == null)
+				{
+					execute(task);
+				}
+			}
+			catch (Throwable t)
+			{
+				failure.compareAndSet(null, new IllegalStateException("TaskGraph: Task " + task.getName() + " failed.", t));
+			}
+			finally
+			{
+				for (Task dependent : task._dependents)
+				{
+					if (dependent._pendingDependencies.decrementAndGet() == 0)
+					{
+						submit(dependent, done, failure);
+					}
+				}
+				
+				done.countDown();
+			}
+		});
+	}
+	
+	private void execute(Task task)
+	{
+		task._startTime = System.nanoTime();
+		try
+		{
+			task._runnable.run();
+		}
+		finally
+		{
+			task._endTime = System.nanoTime();
+		}
+	}
+	
+	/**
+	 * @return the report lines: totals, the critical path and the slowest tasks
+	 */
+	public List<String> getReport()
+	{
+		// Tasks are in a valid order, so the longest chain ending at each task is known once its dependencies are visited.
+		final int count = _tasks.size();
+		final long[] pathTime = new long[count];
+		final Task[] previous = new Task[count];
+		long totalTime = 0;
+		int last = -1;
+		for (int i = 0; i < count; i++)
+		{
+			final Task task = _tasks.get(i);
+			long longest = 0;
+			for (Task dependency : task._dependencies)
+			{
+				if (pathTime[dependency._index] > longest)
+				{
+					longest = pathTime[dependency._index];
+					previous[i] = dependency;
+				}
+			}
+			
+			pathTime[i] = longest + task.getDuration();
+			totalTime += task.getDuration();
+			if ((last < 0) || (pathTime[i] > pathTime[last]))
+			{
+				last = i;
+			}
+		}
+		
+		final List<String> lines = new ArrayList<>();
+		if (last < 0)
+		{
+			return lines;
+		}
+		
+		final List<Task> path = new ArrayList<>();
+		for (Task task = _tasks.get(last); task != null; task = previous[task._index])
+		{
+			path.add(task);
+		}
+		
+		Collections.reverse(path);
+		lines.add(count + " tasks took " + toMillis(_wallTime) + " ms, " + toMillis(totalTime) + " ms of task time, critical path " + toMillis(pathTime[last]) + " ms.");
+		for (Task task : path)
+		{
+			lines.add("Critical path: " + task.getName() + " " + toMillis(task.getDuration()) + " ms, started at " + toMillis(task._startTime - _startTime) + " ms.");
+		}
+		
+		final List<Task> slowest = new ArrayList<>(_tasks);
+		slowest.removeAll(path);
+		slowest.sort((a, b) -> Long.compare(b.getDuration(), a.getDuration()));
+		for (Task task : slowest.subList(0, Math.min(REPORTED_SLOWEST_TASKS, slowest.size())))
+		{
+			lines.add("Off critical path: " + task.getName() + " " + toMillis(task.getDuration()) + " ms, started at " + toMillis(task._startTime - _startTime) + " ms.");
+		}
+		
+		return lines;
+	}
+	
+	/**
+	 * Logs the timing report of the last run.
+	 */
+	public void logReport()
+	{
+		for (String line : getReport())
+		{
+			LOGGER.info(getClass().getSimpleName() + ": " + line);
+		}
+	}
+	
+	private static long toMillis(long nanos)
+	{
+		return nanos / 1000000;
+	}
+}
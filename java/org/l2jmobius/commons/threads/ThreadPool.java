@@ -21,6 +21,10 @@
 package org.l2jmobius.commons.threads;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -28,6 +32,9 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.l2jmobius.Config;
@@ -157,6 +164,125 @@ public class ThreadPool
 		}
 	}
 	
+	/**
+	 * Executes the given startup task on the loading pool, a bounded pool shared by all startup loading work.
+	 * @param runnable : the task to execute.
+	 */
+	public static void executeLoading(Runnable runnable)
+	{
+		LoadingPoolHolder.POOL.execute(runnable);
+	}
+	
+	/**
+	 * @return the number of threads of the loading pool.
+	 */
+	public static int getLoadingPoolSize()
+	{
+		return LoadingPoolHolder.POOL.getMaximumPoolSize();
+	}
+	
+	/**
+	 * Runs an action for each item on the loading pool and waits until all items are done.<br>
+	 * The calling thread works through the items as well and only waits for items already taken by pool threads, so it is safe to call from a task of the loading pool itself.
+	 * @param <T> the type of the items.
+	 * @param items : the items.
+	 * @param action : the action to run for each item. Exceptions are logged and do not stop the other items.
+	 */
+	public static <T> void executeAll(Collection<T> items, Consumer<? super T> action)
+	{
+		executeAll(items, action, LoadingPoolHolder.POOL);
+	}
+	
+	/**
+	 * Runs an action for each item on the bulk pool and waits until all items are done, like {@link #executeAll(Collection, Consumer)}.<br>
+	 * Meant for bulk work requested once the server runs, such as spawning the npcs of an instance, so it neither uses the loading pool nor holds the instant pool.
+	 * @param <T> the type of the items.
+	 * @param items : the items.
+	 * @param action : the action to run for each item. Exceptions are logged and do not stop the other items.
+	 */
+	public static <T> void executeAllBulk(Collection<T> items, Consumer<? super T> action)
+	{
+		executeAll(items, action, BulkPoolHolder.POOL);
+	}
+	
+	private static <T> void executeAll(Collection<T> items, Consumer<? super T> action, ThreadPoolExecutor pool)
+	{
+		final Queue<T> queue = new ConcurrentLinkedQueue<>(items);
+		final int helperCount = Math.min(items.size() - 1, pool.getMaximumPoolSize());
+		if (helperCount <= 0)
+		{
+			drain(queue, action);
+			return;
+		}
+		
+		// A helper that has not started when the caller runs out of items is claimed by the caller and never runs.
+		final CountDownLatch done = new CountDownLatch(helperCount);
+		final AtomicBoolean[] started = new AtomicBoolean[helperCount];
+		for (int i = 0; i < helperCount; i++)
+		{
+			final AtomicBoolean helperStarted = new AtomicBoolean();
+			started[i] = helperStarted;
+			pool.execute(() ->
+			{
+				if (helperStarted.compareAndSet(false, true))
+				{
+					try
+					{
+						drain(queue, action);
+					}
+					finally
+					{
+						done.countDown();
+					}
+				}
+			});
+		}
+		
+		drain(queue, action);
+		for (AtomicBoolean helperStarted : started)
+		{
+			if (helperStarted.compareAndSet(false, true))
+			{
+				done.countDown();
+			}
+		}
+		
+		boolean interrupted = false;
+		while (true)
+		{
+			try
+			{
+				done.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static <T> void drain(Queue<T> queue, Consumer<? super T> action)
+	{
+		T item;
+		while ((item = queue.poll()) != null)
+		{
+			try
+			{
+				action.accept(item);
+			}
+			catch (Exception e)
+			{
+				LOGGER.log(Level.WARNING, "ThreadPool: Task failed for " + item + ".", e);
+			}
+		}
+	}
+	
 	/**
 	 * @param delay : the delay to validate.
 	 * @return a valid value, from MIN_DELAY to MAX_DELAY.
@@ -197,6 +323,38 @@ public class ThreadPool
 		}
 	}
 	
+	/**
+	 * Bounded pool for startup loading work, created on first use. Idle threads stop after a minute, so it costs nothing once the server is up.
+	 */
+	private static class LoadingPoolHolder
+	{
+		protected static final ThreadPoolExecutor POOL = createPool();
+		
+		private static ThreadPoolExecutor createPool()
+		{
+			final int size = Math.max(2, Runtime.getRuntime().availableProcessors());
+			final ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new ThreadProvider("L2jMobius LoadingThread", true));
+			pool.allowCoreThreadTimeOut(true);
+			return pool;
+		}
+	}
+	
+	/**
+	 * Bounded pool for bulk work once the server runs, created on first use. Idle threads stop after a minute.
+	 */
+	private static class BulkPoolHolder
+	{
+		protected static final ThreadPoolExecutor POOL = createPool();
+		
+		private static ThreadPoolExecutor createPool()
+		{
+			final int size = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+			final ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), new ThreadProvider("L2jMobius BulkThread", true));
+			pool.allowCoreThreadTimeOut(true);
+			return pool;
+		}
+	}
+	
 	/**
 	 * Handles tasks rejected by ThreadPoolExecutor, either running them in a new thread<br>
 	 * or in the current thread depending on the thread's priority.
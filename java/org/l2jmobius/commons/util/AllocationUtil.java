@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Utility class for measuring heap allocation of the current thread.
+ * @author Mobius
+ */
+public class AllocationUtil
+{
+	private static final Logger LOGGER = Logger.getLogger(AllocationUtil.class.getName());
+	
+	private static final ThreadMXBean THREAD_BEAN = getAllocationBean();
+	
+	private static ThreadMXBean getAllocationBean()
+	{
+		try
+		{
+			if ((ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean) && bean.isThreadAllocatedMemorySupported())
+			{
+				bean.setThreadAllocatedMemoryEnabled(true);
+				return bean;
+			}
+		}
+		catch (Exception e)
+		{
+			LOGGER.log(Level.WARNING, "AllocationUtil: Thread allocation measurement is not available.", e);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return {@code true} if the JVM can measure allocation per thread
+	 */
+	public static boolean isSupported()
+	{
+		return THREAD_BEAN != null;
+	}
+	
+	/**
+	 * Returns the total bytes allocated by the current thread. Only the difference of two calls is meaningful.
+	 * @return the allocated bytes, or 0 if not supported
+	 */
+	public static long getCurrentThreadAllocatedBytes()
+	{
+		return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : 0;
+	}
+}
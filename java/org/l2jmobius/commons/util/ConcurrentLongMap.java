@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Map with primitive {@code long} keys for data that is read far more often than written.<br>
+ * Reads are lock free and do not box the key. Writes are serialized and publish each value after its key, so a reader that finds a value always finds its key.<br>
+ * A read racing a write may miss the value being written, callers that create missing values should do so through {@link #putIfAbsent(long, Object)}.
+ * @param <V> the type of the values
+ * @author Mobius
+ */
+public class ConcurrentLongMap<V>
+{
+	private static final int MIN_CAPACITY = 16;
+	
+	private volatile Table _table = new Table(MIN_CAPACITY);
+	private int _size;
+	
+	private static class Table
+	{
+		final long[] _keys;
+		final AtomicReferenceArray<Object> _values;
+		final int _mask;
+		
+		Table(int capacity)
+		{
+			_keys = new long[capacity];
+			_values = new AtomicReferenceArray<>(capacity);
+			_mask = capacity - 1;
+		}
+		
+		/**
+		 * @param key the key
+		 * @return the slot holding the key, or the empty slot where it belongs
+		 */
+		int indexOf(long key)
+		{
+			int index = hash(key) & _mask;
+			while ((_values.get(index) != null) && (_keys[index] != key))
+			{
+				index = (index + 1) & _mask;
+			}
+			
+			return index;
+		}
+	}
+	
+	private static int hash(long key)
+	{
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
+	/**
+	 * @param key the key
+	 * @return the value of the key, or {@code null} if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key)
+	{
+		final Table table = _table;
+		return (V) table._values.get(table.indexOf(key));
+	}
+	
+	/**
+	 * @param key the key
+	 * @param value the value, not {@code null}
+	 * @return the previous value of the key, or {@code null} if there was none
+	 */
+	public synchronized V put(long key, V value)
+	{
+		return put(key, value, true);
+	}
+	
+	/**
+	 * @param key the key
+	 * @param value the value, not {@code null}
+	 * @return the current value of the key if there is one, otherwise {@code null} after storing the given value
+	 */
+	public synchronized V putIfAbsent(long key, V value)
+	{
+		return put(key, value, false);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private V put(long key, V value, boolean replace)
+	{
+		Table table = _table;
+		int index = table.indexOf(key);
+		final V previous = (V) table._values.get(index);
+		if (previous != null)
+		{
+			if (replace)
+			{
+				table._values.set(index, value);
+			}
+			
+			return previous;
+		}
+		
+		if (((_size + 1) * 4L) > (table._keys.length * 3L))
+		{
+			table = resize(table);
+			index = table.indexOf(key);
+		}
+		
+		table._keys[index] = key;
+		table._values.set(index, value);
+		_size++;
+		return null;
+	}
+	
+	private Table resize(Table table)
+	{
+		final Table resized = new Table(table._keys.length * 2);
+		for (int i = 0; i < table._keys.length; i++)
+		{
+			final Object value = table._values.get(i);
+			if (value != null)
+			{
+				final int index = resized.indexOf(table._keys[i]);
+				resized._keys[index] = table._keys[i];
+				resized._values.set(index, value);
+			}
+		}
+		
+		_table = resized;
+		return resized;
+	}
+	
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear()
+	{
+		_table = new Table(MIN_CAPACITY);
+		_size = 0;
+	}
+	
+	/**
+	 * @return the number of entries
+	 */
+	public synchronized int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * Performs an action for each value. Values added while iterating may or may not be seen.
+	 * @param action the action
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachValue(Consumer<V> action)
+	{
+		final Table table = _table;
+		for (int i = 0; i < table._keys.length; i++)
+		{
+			final Object value = table._values.get(i);
+			if (value != null)
+			{
+				action.accept((V) value);
+			}
+		}
+	}
+}
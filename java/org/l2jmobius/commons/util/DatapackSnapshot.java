@@ -0,0 +1,591 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+import org.l2jmobius.Config;
+
+/**
+ * Binary snapshot of the parsed datapack XML documents, keyed by the content hash of each file.<br>
+ * While open, {@link IXmlReader} rebuilds unchanged files from the snapshot instead of parsing and validating their XML, and records the files it did parse.<br>
+ * Closing writes the documents used by this boot back to disk and releases them.
+ * @author Mobius
+ */
+public class DatapackSnapshot
+{
+	private static final Logger LOGGER = Logger.getLogger(DatapackSnapshot.class.getName());
+	
+	private static final int VERSION = 1;
+	
+	private static final int END = 0;
+	private static final int ELEMENT = 1;
+	private static final int TEXT = 2;
+	private static final int CDATA = 3;
+	
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() ->
+	{
+		try
+		{
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder();
+		}
+		catch (ParserConfigurationException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	});
+	
+	/** Documents read from the snapshot file. */
+	private final Map<String, SnapshotEntry> _previous = new ConcurrentHashMap<>();
+	/** Documents used by this boot, written back on close. */
+	private final Map<String, SnapshotEntry> _current = new ConcurrentHashMap<>();
+	private final AtomicInteger _hits = new AtomicInteger();
+	private final AtomicInteger _misses = new AtomicInteger();
+	private volatile boolean _open = false;
+	private File _file;
+	
+	private static class SnapshotEntry
+	{
+		final byte[] _hash;
+		final byte[] _data;
+		
+		SnapshotEntry(byte[] hash, byte[] data)
+		{
+			_hash = hash;
+			_data = data;
+		}
+	}
+	
+	protected DatapackSnapshot()
+	{
+	}
+	
+	/**
+	 * Reads the snapshot file and starts serving and recording documents.
+	 */
+	public synchronized void open()
+	{
+		_file = new File(Config.DATAPACK_ROOT, "data/datapack.snapshot");
+		_previous.clear();
+		_current.clear();
+		_hits.set(0);
+		_misses.set(0);
+		if (_file.isFile())
+		{
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(_file.toPath()))))
+			{
+				if (in.readInt() == VERSION)
+				{
+					final int count = in.readInt();
+					for (int i = 0; i < count; i++)
+					{
+						final String path = in.readUTF();
+						final byte[] hash = new byte[in.readUnsignedByte()];
+						in.readFully(hash);
+						final byte[] data = new byte[in.readInt()];
+						in.readFully(data);
+						_previous.put(path, new SnapshotEntry(hash, data));
+					}
+				}
+			}
+			catch (Exception e)
+			{
+				LOGGER.warning(getClass().getSimpleName() + ": Could not read " + _file.getName() + ", parsing all XML files. " + e.getMessage());
+				_previous.clear();
+			}
+		}
+		
+		_open = true;
+	}
+	
+	/**
+	 * Writes the documents used by this boot to the snapshot file and stops serving documents.
+	 */
+	public synchronized void close()
+	{
+		if (!_open)
+		{
+			return;
+		}
+		
+		_open = false;
+		
+		// Nothing to write when every file came from an unchanged snapshot.
+		if ((_misses.get() > 0) || (_current.size() != _previous.size()))
+		{
+			final Path path = _file.toPath();
+			final Path temporaryPath = path.resolveSibling(_file.getName() + ".tmp");
+			try
+			{
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath))))
+				{
+					out.writeInt(VERSION);
+					out.writeInt(_current.size());
+					for (Map.Entry<String, SnapshotEntry> entry : _current.entrySet())
+					{
+						final SnapshotEntry snapshotEntry = entry.getValue();
+						out.writeUTF(entry.getKey());
+						out.writeByte(snapshotEntry._hash.length);
+						out.write(snapshotEntry._hash);
+						out.writeInt(snapshotEntry._data.length);
+						out.write(snapshotEntry._data);
+					}
+				}
+				
+				Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException e)
+			{
+				LOGGER.warning(getClass().getSimpleName() + ": Could not write " + _file.getName() + ". " + e.getMessage());
+			}
+		}
+		
+		LOGGER.info(getClass().getSimpleName() + ": Loaded " + _hits.get() + " files from snapshot, parsed " + _misses.get() + " changed or new files.");
+		_previous.clear();
+		_current.clear();
+	}
+	
+	/**
+	 * @return {@code true} if documents are served and recorded
+	 */
+	public boolean isOpen()
+	{
+		return _open;
+	}
+	
+	/**
+	 * @param file the XML file
+	 * @param content the current content of the file
+	 * @return the document rebuilt from the snapshot, {@code null} if the file is not in the snapshot or changed
+	 */
+	public Document getDocument(File file, byte[] content)
+	{
+		final String path = file.getAbsolutePath();
+		final SnapshotEntry entry = _previous.get(path);
+		if (entry == null)
+		{
+			return null;
+		}
+		
+		final byte[] hash = hash(content);
+		if (!Arrays.equals(hash, entry._hash))
+		{
+			return null;
+		}
+		
+		final Document document = decode(entry._data);
+		_current.put(path, entry);
+		_hits.incrementAndGet();
+		return document;
+	}
+	
+	/**
+	 * Hands the child elements of the root of an unchanged file to a consumer one at a time, without rebuilding the whole document.<br>
+	 * Each element is detached from its root after the consumer returns. The root keeps its attributes but no other children.
+	 * @param file the XML file
+	 * @param content the current content of the file
+	 * @param consumer the consumer of the root child elements
+	 * @return {@code true} if the elements came from the snapshot, {@code false} if the file is not in the snapshot or changed
+	 */
+	public boolean forEachElement(File file, byte[] content, Consumer<Element> consumer)
+	{
+		final String path = file.getAbsolutePath();
+		final SnapshotEntry entry = _previous.get(path);
+		if ((entry == null) || !Arrays.equals(hash(content), entry._hash))
+		{
+			return false;
+		}
+		
+		final ByteBuffer buffer = ByteBuffer.wrap(entry._data);
+		final String[] strings = readStrings(buffer, entry._data);
+		final Document document = newDocument();
+		while (true)
+		{
+			final int type = buffer.get();
+			if (type == END)
+			{
+				break;
+			}
+			
+			if (type != ELEMENT)
+			{
+				readString(buffer, strings);
+				continue;
+			}
+			
+			final Element root = decodeElement(document, buffer, strings);
+			document.appendChild(root);
+			while (true)
+			{
+				final int childType = buffer.get();
+				if (childType == END)
+				{
+					break;
+				}
+				
+				if (childType != ELEMENT)
+				{
+					readString(buffer, strings);
+					continue;
+				}
+				
+				final Element element = decodeElement(document, buffer, strings);
+				decodeChildren(document, element, buffer, strings);
+				root.appendChild(element);
+				consumer.accept(element);
+				root.removeChild(element);
+			}
+		}
+		
+		_current.put(path, entry);
+		_hits.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * Records a freshly parsed document, before it is handed to its reader.
+	 * @param file the XML file
+	 * @param content the content the document was parsed from
+	 * @param document the document
+	 */
+	public void store(File file, byte[] content, Document document)
+	{
+		_current.put(file.getAbsolutePath(), new SnapshotEntry(hash(content), encode(document)));
+		_misses.incrementAndGet();
+	}
+	
+	/**
+	 * Records a freshly parsed file that was encoded while it was streamed.
+	 * @param file the XML file
+	 * @param content the content the file was parsed from
+	 * @param encoder the encoder of the streamed nodes
+	 */
+	void store(File file, byte[] content, SnapshotEncoder encoder)
+	{
+		_current.put(file.getAbsolutePath(), new SnapshotEntry(hash(content), encoder.toByteArray()));
+		_misses.incrementAndGet();
+	}
+	
+	/**
+	 * @return a new empty document of the calling thread's document builder
+	 */
+	static Document newDocument()
+	{
+		return DOCUMENT_BUILDER.get().newDocument();
+	}
+	
+	private static byte[] hash(byte[] content)
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Encodes the elements and text of a document as a string table followed by a node stream of variable length integers.
+	 * @param document the document
+	 * @return the encoded document
+	 */
+	private static byte[] encode(Document document)
+	{
+		final SnapshotEncoder encoder = new SnapshotEncoder();
+		for (Node node = document.getFirstChild(); node != null; node = node.getNextSibling())
+		{
+			encoder.writeNode(node);
+		}
+		
+		encoder.writeEnd();
+		return encoder.toByteArray();
+	}
+	
+	/**
+	 * Builds the encoded form of a document node by node, so that a streamed file can be recorded without holding its whole tree.
+	 */
+	static class SnapshotEncoder
+	{
+		private final Map<String, Integer> _strings = new LinkedHashMap<>();
+		private final ByteArrayOutputStream _nodes = new ByteArrayOutputStream();
+		
+		/**
+		 * Writes the name and attributes of an element. Its children follow, closed by {@link #writeEnd()}.
+		 * @param element the element
+		 */
+		void writeStartElement(Node element)
+		{
+			_nodes.write(ELEMENT);
+			writeString(_nodes, _strings, element.getNamespaceURI());
+			writeString(_nodes, _strings, element.getNodeName());
+			final NamedNodeMap attributes = element.getAttributes();
+			writeVarInt(_nodes, attributes.getLength());
+			for (int i = 0; i < attributes.getLength(); i++)
+			{
+				final Node attribute = attributes.item(i);
+				writeString(_nodes, _strings, attribute.getNamespaceURI());
+				writeString(_nodes, _strings, attribute.getNodeName());
+				writeString(_nodes, _strings, attribute.getNodeValue());
+			}
+		}
+		
+		/**
+		 * Writes a node with all of its children. Node types other than elements, text and CDATA are skipped.<br>
+		 * Whitespace that the validating parser marked as element content is skipped as well, since rebuilt text nodes could no longer be told apart from real text.
+		 * @param node the node
+		 */
+		void writeNode(Node node)
+		{
+			switch (node.getNodeType())
+			{
+				case Node.ELEMENT_NODE:
+				{
+					writeStartElement(node);
+					for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+					{
+						writeNode(child);
+					}
+					
+					writeEnd();
+					break;
+				}
+				case Node.TEXT_NODE:
+				{
+					if (((Text) node).isElementContentWhitespace())
+					{
+						break;
+					}
+					
+					_nodes.write(TEXT);
+					writeString(_nodes, _strings, node.getNodeValue());
+					break;
+				}
+				case Node.CDATA_SECTION_NODE:
+				{
+					_nodes.write(CDATA);
+					writeString(_nodes, _strings, node.getNodeValue());
+					break;
+				}
+			}
+		}
+		
+		/**
+		 * Closes the children of the last started element, or of the document.
+		 */
+		void writeEnd()
+		{
+			_nodes.write(END);
+		}
+		
+		byte[] toByteArray()
+		{
+			final ByteArrayOutputStream result = new ByteArrayOutputStream(_nodes.size() + (_strings.size() * 16));
+			writeVarInt(result, _strings.size());
+			for (String value : _strings.keySet())
+			{
+				final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(result, bytes.length);
+				result.writeBytes(bytes);
+			}
+			
+			result.writeBytes(_nodes.toByteArray());
+			return result.toByteArray();
+		}
+	}
+	
+	/**
+	 * @param data the encoded document
+	 * @return a new document equal to the encoded one
+	 */
+	private static Document decode(byte[] data)
+	{
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		final String[] strings = readStrings(buffer, data);
+		final Document document = newDocument();
+		decodeChildren(document, document, buffer, strings);
+		return document;
+	}
+	
+	private static String[] readStrings(ByteBuffer buffer, byte[] data)
+	{
+		final String[] strings = new String[readVarInt(buffer)];
+		for (int i = 0; i < strings.length; i++)
+		{
+			final int length = readVarInt(buffer);
+			strings[i] = new String(data, buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		
+		return strings;
+	}
+	
+	/**
+	 * Reads the name and attributes of an element, leaving its children in the buffer.
+	 * @param document the owner document
+	 * @param buffer the node stream
+	 * @param strings the string table
+	 * @return the element without children
+	 */
+	private static Element decodeElement(Document document, ByteBuffer buffer, String[] strings)
+	{
+		final Element element = document.createElementNS(readString(buffer, strings), readString(buffer, strings));
+		final int attributeCount = readVarInt(buffer);
+		for (int i = 0; i < attributeCount; i++)
+		{
+			element.setAttributeNS(readString(buffer, strings), readString(buffer, strings), readString(buffer, strings));
+		}
+		
+		return element;
+	}
+	
+	private static void decodeChildren(Document document, Node parent, ByteBuffer buffer, String[] strings)
+	{
+		while (true)
+		{
+			switch (buffer.get())
+			{
+				case ELEMENT:
+				{
+					final Element element = decodeElement(document, buffer, strings);
+					decodeChildren(document, element, buffer, strings);
+					parent.appendChild(element);
+					break;
+				}
+				case TEXT:
+				{
+					parent.appendChild(document.createTextNode(readString(buffer, strings)));
+					break;
+				}
+				case CDATA:
+				{
+					parent.appendChild(document.createCDATASection(readString(buffer, strings)));
+					break;
+				}
+				default:
+				{
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the index of a string in the table plus one, zero standing for {@code null}.
+	 * @param out the stream
+	 * @param strings the string table
+	 * @param value the string
+	 */
+	private static void writeString(ByteArrayOutputStream out, Map<String, Integer> strings, String value)
+	{
+		if (value == null)
+		{
+			writeVarInt(out, 0);
+			return;
+		}
+		
+		Integer index = strings.get(value);
+		if (index == null)
+		{
+			index = strings.size();
+			strings.put(value, index);
+		}
+		
+		writeVarInt(out, index + 1);
+	}
+	
+	private static String readString(ByteBuffer buffer, String[] strings)
+	{
+		final int index = readVarInt(buffer);
+		return index == 0 ? null : strings[index - 1];
+	}
+	
+	private static void writeVarInt(ByteArrayOutputStream out, int value)
+	{
+		int remaining = value;
+		while ((remaining & ~0x7F) != 0)
+		{
+			out.write((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		
+		out.write(remaining);
+	}
+	
+	private static int readVarInt(ByteBuffer buffer)
+	{
+		int result = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = buffer.get();
+			result |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		
+		return result;
+	}
+	
+	public static DatapackSnapshot getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+	
+	private static class SingletonHolder
+	{
+		protected static final DatapackSnapshot INSTANCE = new DatapackSnapshot();
+	}
+}
@@ -20,15 +20,13 @@
  */
 package org.l2jmobius.commons.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -44,6 +42,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXParseException;
 
 import org.l2jmobius.Config;
+import org.l2jmobius.commons.threads.ThreadPool;
 
 /**
  * Interface for XML parsers.
@@ -71,7 +70,7 @@ public interface IXmlReader
 	}
 	
 	/**
-	 * Parses a single XML file. Calls {@link #parseDocument(Document, File)} if the file is successfully parsed. <b>Validation is enabled by default.</b>
+	 * Parses a single XML file. Calls {@link #parseDocument(Document, File)} if the file is successfully parsed, or {@link #parseElement(Node, File)} for each root child element when {@link #isStreaming()}. <b>Validation is enabled by default.</b>
 	 * @param file the XML file to parse.
 	 */
 	default void parseFile(File file)
@@ -82,15 +81,43 @@ public interface IXmlReader
 			return;
 		}
 		
-		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		factory.setValidating(isValidating());
-		factory.setIgnoringComments(true);
+		final long start = System.nanoTime();
+		final long allocatedBefore = AllocationUtil.getCurrentThreadAllocatedBytes();
 		try
 		{
-			factory.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-			final DocumentBuilder builder = factory.newDocumentBuilder();
-			parseDocument(builder.parse(file), file);
+			if (isStreaming())
+			{
+				XmlStreamParser.parse(this, file);
+			}
+			else
+			{
+				final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+				factory.setNamespaceAware(true);
+				factory.setValidating(isValidating());
+				factory.setIgnoringComments(true);
+				
+				// Unchanged files are rebuilt from the datapack snapshot, without parsing or validating their XML.
+				final DatapackSnapshot snapshot = DatapackSnapshot.getInstance();
+				if (snapshot.isOpen())
+				{
+					final byte[] content = Files.readAllBytes(file.toPath());
+					Document document = snapshot.getDocument(file, content);
+					if (document == null)
+					{
+						factory.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
+						document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(content), file.toURI().toString());
+						snapshot.store(file, content, document);
+					}
+					
+					parseDocument(document, file);
+				}
+				else
+				{
+					factory.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
+					final DocumentBuilder builder = factory.newDocumentBuilder();
+					parseDocument(builder.parse(file), file);
+				}
+			}
 		}
 		catch (SAXParseException e)
 		{
@@ -100,6 +127,8 @@ public interface IXmlReader
 		{
 			LOGGER.log(Level.WARNING, "Error parsing " + file.getName(), e);
 		}
+		
+		XmlReaderStatistics.record(this, System.nanoTime() - start, AllocationUtil.getCurrentThreadAllocatedBytes() - allocatedBefore);
 	}
 	
 	/**
@@ -137,12 +166,10 @@ public interface IXmlReader
 			return false;
 		}
 		
-		// If multithreading is enabled, use a thread pool to parse files.
+		// If multithreading is enabled, parse files on the shared loading pool.
 		if (Config.THREADS_FOR_LOADING)
 		{
-			final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
-			final List<Future<?>> tasks = new ArrayList<>();
-			
+			final List<File> tasks = new ArrayList<>();
 			final File[] files = directory.listFiles();
 			if (files != null)
 			{
@@ -154,33 +181,12 @@ public interface IXmlReader
 					}
 					else if (isValidXmlFile(file))
 					{
-						tasks.add(executorService.schedule(() -> parseFile(file), 0, TimeUnit.MILLISECONDS));
+						tasks.add(file);
 					}
 				}
 			}
 			
-			for (Future<?> task : tasks)
-			{
-				try
-				{
-					task.get();
-				}
-				catch (Exception e)
-				{
-					LOGGER.warning("Failed to parse file: " + e.getMessage());
-				}
-			}
-			
-			executorService.shutdown();
-			try
-			{
-				executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-			}
-			catch (InterruptedException e)
-			{
-				Thread.currentThread().interrupt();
-				LOGGER.warning("Parsing process was interrupted: " + e.getMessage());
-			}
+			ThreadPool.executeAll(tasks, this::parseFile);
 		}
 		else // Parse files sequentially if multithreading is not enabled.
 		{
@@ -211,6 +217,16 @@ public interface IXmlReader
 	 */
 	void parseDocument(Document document, File file);
 	
+	/**
+	 * Parses one child element of the document root. Called from {@link #parseFile(File)} instead of {@link #parseDocument(Document, File)} when {@link #isStreaming()}.<br>
+	 * The element is detached once this method returns. Its parent is the root element with its attributes only.
+	 * @param element the root child element to parse
+	 * @param file the file being processed
+	 */
+	default void parseElement(Node element, File file)
+	{
+	}
+	
 	/**
 	 * Parses a boolean value from the given node.
 	 * @param node the XML node to parse
@@ -726,6 +742,15 @@ public interface IXmlReader
 		return true;
 	}
 	
+	/**
+	 * Checks if files are streamed one root child element at a time to {@link #parseElement(Node, File)}, instead of being parsed to a whole document.
+	 * @return {@code true} if streaming is enabled, {@code false} otherwise.
+	 */
+	default boolean isStreaming()
+	{
+		return false;
+	}
+	
 	/**
 	 * Checks if a node is of element type.
 	 * @param node the XML node to check
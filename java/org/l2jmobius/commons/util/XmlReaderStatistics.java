@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Load time and memory statistics of the {@link IXmlReader} implementations, collected per reader class.<br>
+ * For each file the reader thread's allocation is measured and the heap in use is sampled, giving the transient memory of the largest file and the highest heap seen while the reader was loading.
+ * @author Mobius
+ */
+public class XmlReaderStatistics
+{
+	private static final Logger LOGGER = Logger.getLogger(XmlReaderStatistics.class.getName());
+	
+	private static final int LOGGED_READERS = 10;
+	
+	private static final Map<String, ReaderStatistics> STATISTICS = new ConcurrentHashMap<>();
+	
+	private static class ReaderStatistics
+	{
+		final String _name;
+		final AtomicLong _files = new AtomicLong();
+		final AtomicLong _nanos = new AtomicLong();
+		final AtomicLong _allocated = new AtomicLong();
+		final AtomicLong _maxFileAllocated = new AtomicLong();
+		final AtomicLong _maxHeapUsed = new AtomicLong();
+		
+		ReaderStatistics(String name)
+		{
+			_name = name;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return _name + ": " + _files.get() + " files in " + (_nanos.get() / 1000000) + " ms, " + (_allocated.get() / 1048576) + " MB allocated, largest file " + (_maxFileAllocated.get() / 1048576) + " MB, heap peak " + (_maxHeapUsed.get() / 1048576) + " MB";
+		}
+	}
+	
+	private XmlReaderStatistics()
+	{
+	}
+	
+	/**
+	 * Records a parsed file.
+	 * @param reader the reader that parsed the file
+	 * @param nanos the time spent parsing and handling the file
+	 * @param allocated the bytes allocated by the reader thread for the file
+	 */
+	public static void record(IXmlReader reader, long nanos, long allocated)
+	{
+		final Class<?> readerClass = reader.getClass();
+		final ReaderStatistics statistics = STATISTICS.computeIfAbsent(readerClass.getName(), _ -> new ReaderStatistics(readerClass.getSimpleName().isEmpty() ? readerClass.getName() : readerClass.getSimpleName()));
+		statistics._files.incrementAndGet();
+		statistics._nanos.addAndGet(nanos);
+		statistics._allocated.addAndGet(allocated);
+		statistics._maxFileAllocated.accumulateAndGet(allocated, Math::max);
+		statistics._maxHeapUsed.accumulateAndGet(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory(), Math::max);
+	}
+	
+	/**
+	 * @return one line per reader, slowest first
+	 */
+	public static List<String> getStatistics()
+	{
+		final List<ReaderStatistics> statistics = new ArrayList<>(STATISTICS.values());
+		statistics.sort(Comparator.comparingLong((ReaderStatistics value) -> value._nanos.get()).reversed());
+		final List<String> lines = new ArrayList<>(statistics.size());
+		for (ReaderStatistics value : statistics)
+		{
+			lines.add(value.toString());
+		}
+		
+		return lines;
+	}
+	
+	/**
+	 * Logs the slowest readers and the peak heap usage of the JVM so far.
+	 */
+	public static void log()
+	{
+		final List<String> lines = getStatistics();
+		long totalNanos = 0;
+		long totalAllocated = 0;
+		for (ReaderStatistics value : STATISTICS.values())
+		{
+			totalNanos += value._nanos.get();
+			totalAllocated += value._allocated.get();
+		}
+		
+		long heapPeak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if ((pool.getType() == MemoryType.HEAP) && (pool.getPeakUsage() != null))
+			{
+				heapPeak += pool.getPeakUsage().getUsed();
+			}
+		}
+		
+		LOGGER.info("XmlReaderStatistics: " + lines.size() + " readers took " + (totalNanos / 1000000) + " ms and allocated " + (totalAllocated / 1048576) + " MB, heap peak " + (heapPeak / 1048576) + " MB.");
+		for (int i = 0; i < Math.min(LOGGED_READERS, lines.size()); i++)
+		{
+			LOGGER.info("XmlReaderStatistics: " + lines.get(i));
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.commons.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Streaming parser for {@link IXmlReader} implementations that handle their files one root child element at a time.<br>
+ * The file is read with StAX and only the element being handed to {@link IXmlReader#parseElement(Node, File)} is kept as a tree, so memory stays bounded by the largest record instead of the whole document.<br>
+ * Validation is an optional separate streaming pass against the schema named by the file itself.
+ * @author Mobius
+ */
+class XmlStreamParser
+{
+	private static final Logger LOGGER = Logger.getLogger(XmlStreamParser.class.getName());
+	
+	private static final String XMLNS_ATTRIBUTE_NS_URI = "http://www.w3.org/2000/xmlns/";
+	
+	private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(() ->
+	{
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	});
+	
+	private static volatile Schema _schema;
+	
+	private XmlStreamParser()
+	{
+	}
+	
+	/**
+	 * Streams a file into the root child element callback of a reader.<br>
+	 * While the datapack snapshot is open, unchanged files are served from it and parsed files are recorded to it.
+	 * @param reader the reader
+	 * @param file the XML file
+	 * @throws Exception if the file cannot be read or is not well formed
+	 */
+	static void parse(IXmlReader reader, File file) throws Exception
+	{
+		final DatapackSnapshot snapshot = DatapackSnapshot.getInstance();
+		byte[] content = null;
+		DatapackSnapshot.SnapshotEncoder encoder = null;
+		if (snapshot.isOpen())
+		{
+			content = Files.readAllBytes(file.toPath());
+			if (snapshot.forEachElement(file, content, element -> reader.parseElement(element, file)))
+			{
+				return;
+			}
+			
+			encoder = new DatapackSnapshot.SnapshotEncoder();
+		}
+		
+		if (reader.isValidating())
+		{
+			validate(file, content);
+		}
+		
+		try (InputStream in = content != null ? new ByteArrayInputStream(content) : new BufferedInputStream(Files.newInputStream(file.toPath())))
+		{
+			final XMLStreamReader stream = INPUT_FACTORY.get().createXMLStreamReader(file.toURI().toString(), in);
+			try
+			{
+				stream(reader, file, stream, encoder);
+			}
+			finally
+			{
+				stream.close();
+			}
+		}
+		
+		if (encoder != null)
+		{
+			snapshot.store(file, content, encoder);
+		}
+	}
+	
+	private static void stream(IXmlReader reader, File file, XMLStreamReader stream, DatapackSnapshot.SnapshotEncoder encoder) throws XMLStreamException
+	{
+		final Document document = DatapackSnapshot.newDocument();
+		Element root = null;
+		Node current = null;
+		int depth = 0;
+		while (stream.hasNext())
+		{
+			switch (stream.next())
+			{
+				case XMLStreamConstants.START_ELEMENT:
+				{
+					final Element element = createElement(document, stream);
+					if (depth == 0)
+					{
+						root = element;
+						document.appendChild(root);
+						if (encoder != null)
+						{
+							encoder.writeStartElement(root);
+						}
+					}
+					else
+					{
+						current.appendChild(element);
+					}
+					
+					current = element;
+					depth++;
+					break;
+				}
+				case XMLStreamConstants.END_ELEMENT:
+				{
+					depth--;
+					if (depth == 1)
+					{
+						// A root child element is complete, hand it over and forget it.
+						if (encoder != null)
+						{
+							encoder.writeNode(current);
+						}
+						
+						reader.parseElement(current, file);
+						root.removeChild(current);
+						current = root;
+					}
+					else if (depth > 1)
+					{
+						current = current.getParentNode();
+					}
+					break;
+				}
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+				{
+					// Text between root child elements is not part of any record.
+					if (depth > 1)
+					{
+						final Node last = current.getLastChild();
+						if ((last != null) && (last.getNodeType() == Node.TEXT_NODE))
+						{
+							last.setNodeValue(last.getNodeValue() + stream.getText());
+						}
+						else
+						{
+							current.appendChild(document.createTextNode(stream.getText()));
+						}
+					}
+					break;
+				}
+				case XMLStreamConstants.CDATA:
+				{
+					if (depth > 1)
+					{
+						current.appendChild(document.createCDATASection(stream.getText()));
+					}
+					break;
+				}
+			}
+		}
+		
+		if (encoder != null)
+		{
+			if (root != null)
+			{
+				encoder.writeEnd();
+			}
+			
+			encoder.writeEnd();
+		}
+	}
+	
+	/**
+	 * @param document the owner document
+	 * @param stream the stream positioned on a start element
+	 * @return an element with the name, namespace declarations and attributes of the current start element
+	 */
+	private static Element createElement(Document document, XMLStreamReader stream)
+	{
+		final Element element = document.createElementNS(emptyToNull(stream.getNamespaceURI()), qualifiedName(stream.getPrefix(), stream.getLocalName()));
+		for (int i = 0; i < stream.getNamespaceCount(); i++)
+		{
+			final String prefix = stream.getNamespacePrefix(i);
+			element.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI, (prefix == null) || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, stream.getNamespaceURI(i));
+		}
+		
+		for (int i = 0; i < stream.getAttributeCount(); i++)
+		{
+			element.setAttributeNS(emptyToNull(stream.getAttributeNamespace(i)), qualifiedName(stream.getAttributePrefix(i), stream.getAttributeLocalName(i)), stream.getAttributeValue(i));
+		}
+		
+		return element;
+	}
+	
+	private static String qualifiedName(String prefix, String localName)
+	{
+		return (prefix == null) || prefix.isEmpty() ? localName : prefix + ":" + localName;
+	}
+	
+	private static String emptyToNull(String value)
+	{
+		return (value == null) || value.isEmpty() ? null : value;
+	}
+	
+	/**
+	 * Validates a file in a streaming pass against the schema referenced by its {@code xsi:noNamespaceSchemaLocation}.<br>
+	 * Like the document parser, validation errors are reported without rejecting the file. Only malformed XML stops it.
+	 * @param file the XML file
+	 * @param content the content of the file, or {@code null} to read it from disk
+	 * @throws SAXException if the file is not well formed
+	 * @throws IOException if the file cannot be read
+	 */
+	private static void validate(File file, byte[] content) throws SAXException, IOException
+	{
+		final Validator validator = getSchema().newValidator();
+		validator.setErrorHandler(new ErrorHandler()
+		{
+			@Override
+			public void warning(SAXParseException exception)
+			{
+				report(file, exception);
+			}
+			
+			@Override
+			public void error(SAXParseException exception)
+			{
+				report(file, exception);
+			}
+			
+			@Override
+			public void fatalError(SAXParseException exception) throws SAXException
+			{
+				throw exception;
+			}
+		});
+		
+		final String systemId = file.toURI().toString();
+		try (InputStream in = content != null ? new ByteArrayInputStream(content) : new BufferedInputStream(Files.newInputStream(file.toPath())))
+		{
+			validator.validate(new StreamSource(in, systemId));
+		}
+	}
+	
+	private static void report(File file, SAXParseException exception)
+	{
+		LOGGER.warning("Validation of " + file.getName() + " at line " + exception.getLineNumber() + ", column " + exception.getColumnNumber() + ": " + exception.getMessage());
+	}
+	
+	/**
+	 * @return a schema that validates each file against the schema location hints of the file
+	 * @throws SAXException if the schema factory cannot be created
+	 */
+	private static Schema getSchema() throws SAXException
+	{
+		Schema schema = _schema;
+		if (schema == null)
+		{
+			schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+			_schema = schema;
+		}
+		
+		return schema;
+	}
+}
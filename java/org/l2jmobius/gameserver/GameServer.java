@@ -35,9 +35,13 @@ import org.l2jmobius.Config;
 import org.l2jmobius.commons.database.DatabaseFactory;
 import org.l2jmobius.commons.enums.ServerMode;
 import org.l2jmobius.commons.network.ConnectionManager;
+import org.l2jmobius.commons.threads.TaskGraph;
+import org.l2jmobius.commons.threads.TaskGraph.Task;
 import org.l2jmobius.commons.threads.ThreadPool;
 import org.l2jmobius.commons.util.ConfigReader;
+import org.l2jmobius.commons.util.DatapackSnapshot;
 import org.l2jmobius.commons.util.DeadlockWatcher;
+import org.l2jmobius.commons.util.XmlReaderStatistics;
 import org.l2jmobius.gameserver.cache.HtmCache;
 import org.l2jmobius.gameserver.data.BotReportTable;
 import org.l2jmobius.gameserver.data.SchemeBufferTable;
@@ -210,170 +214,188 @@ public class GameServer
 		printSection("IdManager");
 		IdManager.getInstance();
 		
+		// Load unchanged datapack files from the snapshot of the previous startup.
+		if (Config.DATAPACK_SNAPSHOT)
+		{
+			DatapackSnapshot.getInstance().open();
+		}
+		
 		printSection("Scripting Engine");
 		EventDispatcher.getInstance();
 		ScriptManager.getInstance();
 		
-		printSection("World");
-		World.getInstance();
-		MapRegionManager.getInstance();
-		ZoneManager.getInstance();
-		DoorData.getInstance();
-		FenceData.getInstance();
-		AnnouncementsTable.getInstance();
-		GlobalVariablesManager.getInstance();
-		
-		printSection("Data");
-		ActionData.getInstance();
-		CategoryData.getInstance();
-		DynamicExpRateData.getInstance();
-		SecondaryAuthData.getInstance();
-		SayuneData.getInstance();
-		ClanRewardData.getInstance();
-		
-		printSection("Skills");
-		SkillConditionHandler.getInstance().executeScript();
-		EffectHandler.getInstance().executeScript();
-		EnchantSkillGroupsData.getInstance();
-		SkillTreeData.getInstance();
-		SkillData.getInstance();
-		PetSkillData.getInstance();
-		
-		printSection("Items");
-		ConditionHandler.getInstance().executeScript();
-		ItemData.getInstance();
-		EnchantItemGroupsData.getInstance();
-		EnchantItemData.getInstance();
-		EnchantItemOptionsData.getInstance();
-		ElementalAttributeData.getInstance();
-		ItemCrystallizationData.getInstance();
-		OptionData.getInstance();
-		VariationData.getInstance();
-		EnchantItemHPBonusData.getInstance();
-		BuyListData.getInstance();
-		MultisellData.getInstance();
-		CombinationItemsData.getInstance();
-		RecipeData.getInstance();
-		ArmorSetData.getInstance();
-		FishingData.getInstance();
-		HennaData.getInstance();
-		PrimeShopData.getInstance();
-		PcCafePointsManager.getInstance();
-		AppearanceItemData.getInstance();
-		ItemCommissionManager.getInstance();
-		LuckyGameData.getInstance();
-		AttendanceRewardData.getInstance();
-		VipData.getInstance();
-		ItemLifeTimeTaskManager.getInstance();
-		
-		printSection("Characters");
-		ClassListData.getInstance();
-		InitialEquipmentData.getInstance();
-		InitialShortcutData.getInstance();
-		ExperienceData.getInstance();
-		PlayerXpPercentLostData.getInstance();
-		KarmaData.getInstance();
-		HitConditionBonusData.getInstance();
-		PlayerTemplateData.getInstance();
-		CharInfoTable.getInstance();
-		AdminData.getInstance();
-		PetDataTable.getInstance();
-		CubicData.getInstance();
-		CharSummonTable.getInstance().init();
-		CaptchaManager.getInstance();
-		BeautyShopData.getInstance();
-		MentorManager.getInstance();
-		VipManager.getInstance();
-		
+		// Startup loaders as a dependency graph. Each task lists the loaders it reads from or registers into.
+		// The order of addition is the sequential order, run in parallel on the loading pool when threads are used for loading.
+		final TaskGraph graph = new TaskGraph();
+		graph.section("World");
+		final Task world = graph.add("World", World::getInstance);
+		final Task mapRegions = graph.add("MapRegionManager", MapRegionManager::getInstance);
+		final Task zones = graph.add("ZoneManager", ZoneManager::getInstance, world, mapRegions);
+		final Task doors = graph.add("DoorData", DoorData::getInstance, world, zones);
+		final Task fences = graph.add("FenceData", FenceData::getInstance, world);
+		graph.add("AnnouncementsTable", AnnouncementsTable::getInstance);
+		graph.add("GlobalVariablesManager", GlobalVariablesManager::getInstance);
+		
+		graph.section("Data");
+		graph.add("ActionData", ActionData::getInstance);
+		final Task categories = graph.add("CategoryData", CategoryData::getInstance);
+		graph.add("DynamicExpRateData", DynamicExpRateData::getInstance);
+		graph.add("SecondaryAuthData", SecondaryAuthData::getInstance);
+		graph.add("SayuneData", SayuneData::getInstance);
+		graph.add("ClanRewardData", ClanRewardData::getInstance);
+		
+		// Skills, items and everything holding them need the condition and effect handlers registered first.
+		graph.section("Skills");
+		final Task skillConditionHandlers = graph.add("SkillConditionHandler", () -> SkillConditionHandler.getInstance().executeScript());
+		final Task effectHandlers = graph.add("EffectHandler", () -> EffectHandler.getInstance().executeScript());
+		final Task enchantSkillGroups = graph.add("EnchantSkillGroupsData", EnchantSkillGroupsData::getInstance);
+		final Task skillTrees = graph.add("SkillTreeData", SkillTreeData::getInstance, skillConditionHandlers, effectHandlers, enchantSkillGroups);
+		final Task skills = graph.add("SkillData", SkillData::getInstance, skillTrees);
+		graph.add("PetSkillData", PetSkillData::getInstance, skills);
+		
+		graph.section("Items");
+		final Task conditionHandlers = graph.add("ConditionHandler", () -> ConditionHandler.getInstance().executeScript());
+		final Task items = graph.add("ItemData", ItemData::getInstance, conditionHandlers, skills);
+		final Task enchantItemGroups = graph.add("EnchantItemGroupsData", EnchantItemGroupsData::getInstance, items);
+		graph.add("EnchantItemData", EnchantItemData::getInstance, items);
+		final Task enchantItemOptions = graph.add("EnchantItemOptionsData", EnchantItemOptionsData::getInstance, items);
+		graph.add("ElementalAttributeData", ElementalAttributeData::getInstance, items);
+		graph.add("ItemCrystallizationData", ItemCrystallizationData::getInstance, items);
+		final Task options = graph.add("OptionData", OptionData::getInstance, skills, enchantItemOptions);
+		graph.add("VariationData", VariationData::getInstance, items, options);
+		graph.add("EnchantItemHPBonusData", EnchantItemHPBonusData::getInstance, items);
+		graph.add("BuyListData", BuyListData::getInstance, items);
+		graph.add("MultisellData", MultisellData::getInstance, items, enchantItemGroups);
+		graph.add("CombinationItemsData", CombinationItemsData::getInstance, items);
+		graph.add("RecipeData", RecipeData::getInstance, items);
+		graph.add("ArmorSetData", ArmorSetData::getInstance, items);
+		graph.add("FishingData", FishingData::getInstance, items);
+		graph.add("HennaData", HennaData::getInstance, items);
+		graph.add("PrimeShopData", PrimeShopData::getInstance, items);
+		graph.add("PcCafePointsManager", PcCafePointsManager::getInstance);
+		graph.add("AppearanceItemData", AppearanceItemData::getInstance, items);
+		graph.add("ItemCommissionManager", ItemCommissionManager::getInstance, items);
+		graph.add("LuckyGameData", LuckyGameData::getInstance, items);
+		graph.add("AttendanceRewardData", AttendanceRewardData::getInstance, items);
+		final Task vip = graph.add("VipData", VipData::getInstance, items);
+		graph.add("ItemLifeTimeTaskManager", ItemLifeTimeTaskManager::getInstance, items);
+		
+		graph.section("Characters");
+		final Task classes = graph.add("ClassListData", ClassListData::getInstance);
+		graph.add("InitialEquipmentData", InitialEquipmentData::getInstance, items);
+		graph.add("InitialShortcutData", InitialShortcutData::getInstance, items);
+		final Task experience = graph.add("ExperienceData", ExperienceData::getInstance);
+		graph.add("PlayerXpPercentLostData", PlayerXpPercentLostData::getInstance, experience);
+		graph.add("KarmaData", KarmaData::getInstance);
+		graph.add("HitConditionBonusData", HitConditionBonusData::getInstance);
+		graph.add("PlayerTemplateData", PlayerTemplateData::getInstance, experience, classes, items);
+		final Task characters = graph.add("CharInfoTable", CharInfoTable::getInstance, world);
+		final Task admins = graph.add("AdminData", AdminData::getInstance);
+		final Task pets = graph.add("PetDataTable", PetDataTable::getInstance, items);
+		graph.add("CubicData", CubicData::getInstance, items);
+		final Task summons = graph.add("CharSummonTable", () -> CharSummonTable.getInstance().init(), pets);
+		graph.add("CaptchaManager", CaptchaManager::getInstance, admins);
+		graph.add("BeautyShopData", BeautyShopData::getInstance, items);
+		graph.add("MentorManager", MentorManager::getInstance, world, characters);
+		graph.add("VipManager", VipManager::getInstance, vip);
 		if (Config.PREMIUM_SYSTEM_ENABLED)
 		{
-			LOGGER.info("PremiumManager: Premium system is enabled.");
-			PremiumManager.getInstance();
+			graph.add("PremiumManager", () ->
+			{
+				LOGGER.info("PremiumManager: Premium system is enabled.");
+				PremiumManager.getInstance();
+			}, world);
 		}
 		
-		printSection("Clans");
-		ClanTable.getInstance();
-		ResidenceFunctionsData.getInstance();
-		ClanHallData.getInstance();
-		ClanHallAuctionManager.getInstance();
-		ClanEntryManager.getInstance();
-		
-		printSection("Geodata");
-		GeoEngine.getInstance();
-		
-		printSection("NPCs");
-		NpcData.getInstance();
-		FakePlayerChatManager.getInstance();
-		SpawnData.getInstance();
-		WalkingManager.getInstance();
-		StaticObjectData.getInstance();
-		ItemAuctionManager.getInstance();
-		CastleManager.getInstance().loadInstances();
-		SchemeBufferTable.getInstance();
-		GrandBossManager.getInstance();
-		EventDropManager.getInstance();
-		
-		printSection("Instance");
-		InstanceManager.getInstance();
-		
-		printSection("Olympiad");
-		Olympiad.getInstance();
-		Hero.getInstance();
-		
-		// Call to load caches
-		printSection("Cache");
-		HtmCache.getInstance();
-		CrestTable.getInstance();
-		TeleporterData.getInstance();
-		MatchingRoomManager.getInstance();
-		PetitionManager.getInstance();
-		CursedWeaponsManager.getInstance();
-		TransformData.getInstance();
-		BotReportTable.getInstance();
+		graph.section("Clans");
+		final Task clans = graph.add("ClanTable", ClanTable::getInstance, characters, items);
+		graph.add("ResidenceFunctionsData", ResidenceFunctionsData::getInstance, skills);
+		final Task clanHalls = graph.add("ClanHallData", ClanHallData::getInstance, mapRegions, zones, doors, clans);
+		graph.add("ClanHallAuctionManager", ClanHallAuctionManager::getInstance, clanHalls);
+		graph.add("ClanEntryManager", ClanEntryManager::getInstance, clans);
+		
+		graph.section("Geodata");
+		final Task geodata = graph.add("GeoEngine", GeoEngine::getInstance, world, doors, fences);
+		
+		graph.section("NPCs");
+		final Task npcs = graph.add("NpcData", NpcData::getInstance, items, summons);
+		graph.add("FakePlayerChatManager", FakePlayerChatManager::getInstance, geodata, npcs);
+		final Task spawns = graph.add("SpawnData", SpawnData::getInstance, world, zones, npcs);
+		graph.add("WalkingManager", WalkingManager::getInstance, npcs);
+		graph.add("StaticObjectData", StaticObjectData::getInstance, world, geodata);
+		graph.add("ItemAuctionManager", ItemAuctionManager::getInstance, items, npcs);
+		final Task castles = graph.add("CastleManager", () -> CastleManager.getInstance().loadInstances(), mapRegions, zones, doors, clans, npcs);
+		graph.add("SchemeBufferTable", SchemeBufferTable::getInstance, skills);
+		graph.add("GrandBossManager", GrandBossManager::getInstance, zones, npcs);
+		graph.add("EventDropManager", EventDropManager::getInstance, items);
+		
+		graph.section("Instance");
+		graph.add("InstanceManager", InstanceManager::getInstance, doors, geodata, spawns);
+		
+		graph.section("Olympiad");
+		final Task olympiad = graph.add("Olympiad", Olympiad::getInstance, world, zones, categories, classes, npcs);
+		final Task heroes = graph.add("Hero", Hero::getInstance, skillTrees, classes, characters, clans, castles, olympiad);
+		
+		graph.section("Cache");
+		final Task htmCache = graph.add("HtmCache", HtmCache::getInstance, heroes);
+		graph.add("CrestTable", CrestTable::getInstance, clans);
+		graph.add("TeleporterData", TeleporterData::getInstance, npcs);
+		graph.add("MatchingRoomManager", MatchingRoomManager::getInstance);
+		graph.add("PetitionManager", PetitionManager::getInstance, admins);
+		graph.add("CursedWeaponsManager", CursedWeaponsManager::getInstance, items);
+		graph.add("TransformData", TransformData::getInstance, items);
+		graph.add("BotReportTable", BotReportTable::getInstance, skills);
 		if (Config.SELLBUFF_ENABLED)
 		{
-			SellBuffsManager.getInstance();
+			graph.add("SellBuffsManager", SellBuffsManager::getInstance, items, olympiad, htmCache);
 		}
 		
 		if (Config.MULTILANG_ENABLE)
 		{
-			SystemMessageId.loadLocalisations();
-			NpcStringId.loadLocalisations();
-			SendMessageLocalisationData.getInstance();
-			NpcNameLocalisationData.getInstance();
+			graph.add("SystemMessageId", SystemMessageId::loadLocalisations);
+			graph.add("NpcStringId", NpcStringId::loadLocalisations);
+			graph.add("SendMessageLocalisationData", SendMessageLocalisationData::getInstance);
+			graph.add("NpcNameLocalisationData", NpcNameLocalisationData::getInstance, npcs);
 		}
 		
-		printSection("Scripts");
-		QuestManager.getInstance();
-		BoatManager.getInstance();
-		AirShipManager.getInstance();
-		ShuttleData.getInstance();
-		
-		try
-		{
-			LOGGER.info(getClass().getSimpleName() + ": Loading server scripts:");
-			ScriptManager.getInstance().executeScript(ScriptManager.MASTER_HANDLER_FILE);
-			ScriptManager.getInstance().executeScriptList();
-		}
-		catch (Exception e)
+		// Scripts may use any loaded data, so they wait for everything above.
+		graph.section("Scripts");
+		final Task[] data = graph.getTasks();
+		final Task quests = graph.add("QuestManager", QuestManager::getInstance, data);
+		final Task boats = graph.add("BoatManager", BoatManager::getInstance, data);
+		final Task airShips = graph.add("AirShipManager", AirShipManager::getInstance, data);
+		final Task shuttles = graph.add("ShuttleData", ShuttleData::getInstance, data);
+		final Task scripts = graph.add("Scripts", () ->
 		{
-			LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed to execute script list!", e);
-		}
+			try
+			{
+				LOGGER.info(getClass().getSimpleName() + ": Loading server scripts:");
+				ScriptManager.getInstance().executeScript(ScriptManager.MASTER_HANDLER_FILE);
+				ScriptManager.getInstance().executeScriptList();
+			}
+			catch (Exception e)
+			{
+				LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed to execute script list!", e);
+			}
+		}, quests, boats, airShips, shuttles);
 		
-		SpawnData.getInstance().init();
-		DBSpawnManager.getInstance();
+		final Task spawnInitialization = graph.add("SpawnData.init", () -> SpawnData.getInstance().init(), scripts);
+		graph.add("DBSpawnManager", DBSpawnManager::getInstance, spawnInitialization);
 		
-		printSection("Siege");
-		SiegeManager.getInstance().getSieges();
-		CastleManager.getInstance().activateInstances();
+		graph.section("Siege");
+		final Task sieges = graph.add("SiegeManager", () -> SiegeManager.getInstance().getSieges(), scripts);
+		final Task castleActivation = graph.add("CastleManager.activateInstances", () -> CastleManager.getInstance().activateInstances(), sieges, spawnInitialization);
 		
 		// No fortresses
 		// FortManager.getInstance().loadInstances();
 		// FortManager.getInstance().activateInstances();
 		// FortSiegeManager.getInstance();
-		SiegeScheduleData.getInstance();
-		CastleManorManager.getInstance();
-		SiegeGuardManager.getInstance();
+		graph.add("SiegeScheduleData", SiegeScheduleData::getInstance, sieges);
+		graph.add("CastleManorManager", CastleManorManager::getInstance, castleActivation);
+		graph.add("SiegeGuardManager", SiegeGuardManager::getInstance, castleActivation);
+		
+		graph.run(Config.THREADS_FOR_LOADING, this::printSection);
+		
 		QuestManager.getInstance().report();
 		if (Config.SAVE_DROPPED_ITEM)
 		{
@@ -460,6 +482,10 @@ public class GameServer
 			deadlockWatcher.start();
 		}
 		
+		graph.logReport();
+		XmlReaderStatistics.log();
+		DatapackSnapshot.getInstance().close();
+		
 		System.gc();
 		final long totalMem = Runtime.getRuntime().maxMemory() / 1048576;
 		LOGGER.info(getClass().getSimpleName() + ": Started, using " + getUsedMemoryMB() + " of " + totalMem + " MB total memory.");
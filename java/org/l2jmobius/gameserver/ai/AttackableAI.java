@@ -1221,6 +1221,15 @@ public class AttackableAI extends CreatureAI
 	/**
 	 * Manage AI thinking actions of a Attackable.
 	 */
+	/**
+	 * The think task skips an AttackableAI while it is idle or no player is around, since {@link #onActionThink()} has nothing to do then.
+	 * @return {@code true} if this AI has to think in those cases as well
+	 */
+	public boolean needsIdleThink()
+	{
+		return false;
+	}
+	
 	@Override
 	public void onActionThink()
 	{
@@ -13,9 +13,8 @@
  */
 package org.l2jmobius.gameserver.ai;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.HashSet;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
 
@@ -23,8 +22,6 @@ import org.l2jmobius.gameserver.network.enums.ChatType;
 import org.l2jmobius.gameserver.geoengine.GeoEngine;
 import org.l2jmobius.gameserver.managers.AutobotManager;
 import org.l2jmobius.gameserver.model.Location;
-import org.l2jmobius.gameserver.model.World;
-import org.l2jmobius.gameserver.model.actor.Attackable;
 import org.l2jmobius.gameserver.model.actor.Autobot;
 import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.actor.Player;
@@ -32,8 +29,6 @@ import org.l2jmobius.gameserver.model.zone.ZoneId;
 import org.l2jmobius.gameserver.ai.Intention;
 import org.l2jmobius.commons.util.Rnd;
 
-import static java.util.stream.Collectors.toList;
-
 /**
  * Enhanced AI for autobot with state management and intelligent behavior
  */
@@ -79,9 +74,13 @@ public class AutobotAI extends PlayerAI
     private long _lastThinkTime = 0; // To prevent command spamming
     
     // Enhanced target switching - track checked targets to avoid returning to previous ones
-    private Set<Integer> _checkedTargets = new HashSet<>();
+    private int[] _checkedTargets = new int[16];
+    private int _checkedTargetCount = 0;
     private long _lastTargetSwitchTime = 0;
     
+    // Creatures around the bot, refreshed once per think
+    private final AutobotNeighbourhood _neighbourhood = new AutobotNeighbourhood();
+    
     public AutobotAI(Autobot autobot)
     {
         super(autobot.getPlayer());
@@ -127,6 +126,36 @@ public class AutobotAI extends PlayerAI
         return _socialLevel;
     }
     
+    /**
+     * Use different thinking intervals based on current activity
+     */
+    private long getThinkingInterval()
+    {
+        final Player player = _autobot.getPlayer();
+        if (player.isMoving())
+        {
+            // When moving, think much less frequently to avoid interrupting movement
+            return 5000; // 5 seconds when moving (increased from 3)
+        }
+        else if (player.isInCombat() || player.isCastingNow() || player.isAttackingNow())
+        {
+            // When in combat, think quickly for responsiveness
+            return 800; // 0.8 seconds in combat (decreased from 1.5)
+        }
+        
+        // Normal thinking interval when idle
+        return 2500; // 2.5 seconds when idle (increased from 2)
+    }
+    
+    /**
+     * Check if the last decision expired and the bot should think again, dead bots always think to get despawned
+     */
+    public boolean isThinkDue(long currentTime)
+    {
+        final Player player = _autobot.getPlayer();
+        return (player == null) || player.isDead() || ((currentTime - _lastThinkTime) >= getThinkingInterval());
+    }
+    
     public void onEvtThink()
     {
         if (!_autobot.isOnline() || _autobot.getPlayer() == null)
@@ -143,31 +172,15 @@ public class AutobotAI extends PlayerAI
         
         // Reduce thinking frequency to prevent movement interruption and command spamming
         long currentTime = System.currentTimeMillis();
-        
-        // Use different thinking intervals based on current activity
-        long thinkingInterval;
-        if (_autobot.getPlayer().isMoving())
-        {
-            // When moving, think much less frequently to avoid interrupting movement
-            thinkingInterval = 5000; // 5 seconds when moving (increased from 3)
-        }
-        else if (_autobot.getPlayer().isInCombat() || _autobot.getPlayer().isCastingNow() || _autobot.getPlayer().isAttackingNow())
-        {
-            // When in combat, think quickly for responsiveness
-            thinkingInterval = 800; // 0.8 seconds in combat (decreased from 1.5)
-        }
-        else
-        {
-            // Normal thinking interval when idle
-            thinkingInterval = 2500; // 2.5 seconds when idle (increased from 2)
-        }
-        
-        if (currentTime - _lastThinkTime < thinkingInterval)
+        if (currentTime - _lastThinkTime < getThinkingInterval())
         {
             return;
         }
         _lastThinkTime = currentTime;
         
+        // Single spatial query per think, all target scans below run over this snapshot
+        _neighbourhood.update(_autobot.getPlayer(), AutobotNeighbourhood.SCAN_RANGE);
+        
         // Add periodic logging to see if AI is thinking
         if (currentTime - _lastActionTime > 30000) // Every 30 seconds
         {
@@ -365,7 +378,7 @@ public class AutobotAI extends PlayerAI
                 FAKE_PLAYER_LOGGER.info(player.getName() + " abandoning " + target.getName() + " (already being attacked), looking for new target");
                 
                 // Mark current target as checked to avoid returning to it
-                _checkedTargets.add(target.getObjectId());
+                addCheckedTarget(target.getObjectId());
                 player.setTarget(null);
                 _lastTarget = null;
                 
@@ -554,32 +567,33 @@ public class AutobotAI extends PlayerAI
         long currentTime = System.currentTimeMillis();
         if (currentTime - _lastTargetSwitchTime > 45000)
         {
-            _checkedTargets.clear();
+            _checkedTargetCount = 0;
             _lastTargetSwitchTime = currentTime;
             FAKE_PLAYER_LOGGER.info(player.getName() + " cleared checked targets list, can revisit previous mobs");
         }
         
-        // First, try to find Gremlins nearby (only target Gremlins) with 1000 radius
-        List<Creature> nearbyGremlins = World.getInstance().getVisibleObjectsInRange(player, Attackable.class, 1000)
-            .stream()
-            .filter(mob -> mob instanceof Attackable && !mob.isDead() && mob.isAttackable())
-            .filter(mob -> mob.getName().toLowerCase().contains("gremlin")) // Only target Gremlins
-            .filter(mob -> !_checkedTargets.contains(mob.getObjectId())) // Not previously checked in this cycle
-            .map(mob -> (Creature) mob)
-            .collect(toList());
-        
-        if (nearbyGremlins.isEmpty())
-        {
-            FAKE_PLAYER_LOGGER.info(player.getName() + " found no available Gremlins within 1000 range");
-            return false;
-        }
-        
         // Prioritize targets: wounded targets first, then closest targets
         Creature bestTarget = null;
         double bestScore = Double.MAX_VALUE;
+        int gremlinCount = 0;
         
-        for (Creature gremlin : nearbyGremlins)
+        // Only target Gremlins within 1000 radius that were not previously checked in this cycle
+        for (int i = 0; i < _neighbourhood.size(); i++)
         {
+            Creature gremlin = _neighbourhood.get(i);
+            if (!gremlin.isAttackable() || gremlin.isDead() || !isGremlin(gremlin) || isCheckedTarget(gremlin.getObjectId()))
+            {
+                continue;
+            }
+            gremlinCount++;
+            
+            // Entries are sorted by distance, even the best possible boost cannot beat the current best anymore
+            double distance = _neighbourhood.getDistance(i);
+            if ((distance * 0.3 * 0.8) >= bestScore)
+            {
+                break;
+            }
+            
             // Skip if someone else is already attacking (but be less restrictive)
             int attackerCount = countAttackersOnTarget(gremlin);
             if (attackerCount >= 2) // Allow up to 2 attackers per target instead of 1
@@ -587,7 +601,6 @@ public class AutobotAI extends PlayerAI
                 continue;
             }
             
-            double distance = player.calculateDistance2D(gremlin);
             double hpPercent = (gremlin.getCurrentHp() / gremlin.getMaxHp()) * 100;
             
             // Calculate priority score (lower is better)
@@ -597,8 +610,6 @@ public class AutobotAI extends PlayerAI
             if (hpPercent < 50)
             {
                 score *= 0.3; // Wounded targets get 70% priority boost
-                FAKE_PLAYER_LOGGER.info(player.getName() + " found wounded Gremlin " + gremlin.getName() + 
-                    " with " + String.format("%.1f", hpPercent) + "% HP - prioritizing");
             }
             else if (hpPercent < 75)
             {
@@ -618,10 +629,16 @@ public class AutobotAI extends PlayerAI
             }
         }
         
+        if (gremlinCount == 0)
+        {
+            FAKE_PLAYER_LOGGER.info(player.getName() + " found no available Gremlins within 1000 range");
+            return false;
+        }
+        
         if (bestTarget != null)
         {
             // Mark this target as checked to avoid returning to it immediately
-            _checkedTargets.add(bestTarget.getObjectId());
+            addCheckedTarget(bestTarget.getObjectId());
             
             double targetHpPercent = (bestTarget.getCurrentHp() / bestTarget.getMaxHp()) * 100;
             
@@ -644,7 +661,7 @@ public class AutobotAI extends PlayerAI
         }
         
         // No suitable Gremlins found
-        FAKE_PLAYER_LOGGER.info(player.getName() + " found " + nearbyGremlins.size() + " Gremlins but all are being attacked by 2+ players");
+        FAKE_PLAYER_LOGGER.info(player.getName() + " found " + gremlinCount + " Gremlins but all are being attacked by 2+ players");
         return false;
     }
     
@@ -662,7 +679,7 @@ public class AutobotAI extends PlayerAI
     }
     
     /**
-     * Count how many players are currently attacking this target
+     * Count how many players around the bot are currently attacking this target
      */
     private int countAttackersOnTarget(Creature target)
     {
@@ -671,21 +688,52 @@ public class AutobotAI extends PlayerAI
             return 0;
         }
         
-        int attackerCount = 0;
-        
-        for (Player other : World.getInstance().getPlayers())
+        return _neighbourhood.countPlayersTargeting(target, AutobotNeighbourhood.SCAN_RANGE);
+    }
+    
+    /**
+     * Check if the target was already checked in the current target switching cycle
+     */
+    private boolean isCheckedTarget(int objectId)
+    {
+        for (int i = 0; i < _checkedTargetCount; i++)
         {
-            if (other == null || other == _autobot.getPlayer() || other.getTarget() == null)
-                continue;
-            
-            if (other.getTarget() == target)
+            if (_checkedTargets[i] == objectId)
             {
-                // Count any player targeting this mob
-                attackerCount++;
+                return true;
             }
         }
+        return false;
+    }
+    
+    private void addCheckedTarget(int objectId)
+    {
+        if (isCheckedTarget(objectId))
+        {
+            return;
+        }
         
-        return attackerCount;
+        if (_checkedTargetCount == _checkedTargets.length)
+        {
+            _checkedTargets = Arrays.copyOf(_checkedTargets, _checkedTargetCount * 2);
+        }
+        _checkedTargets[_checkedTargetCount++] = objectId;
+    }
+    
+    /**
+     * Case insensitive name check that does not create lower case copies of the name
+     */
+    private static boolean isGremlin(Creature creature)
+    {
+        final String name = creature.getName();
+        for (int i = 0, limit = name.length() - 7; i <= limit; i++)
+        {
+            if (name.regionMatches(true, i, "gremlin", 0, 7))
+            {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -719,18 +767,25 @@ public class AutobotAI extends PlayerAI
         }
         _lastMobScanTime = System.currentTimeMillis();
         
-        // Get all nearby creatures in a wider range, focusing on Gremlins
-        List<Creature> nearbyCreatures = World.getInstance().getVisibleObjectsInRange(player, Creature.class, 1000)
-            .stream()
-            .filter(creature -> !(creature instanceof Player)) // Exclude other players - only target monsters
-            .collect(toList());
-        
-        // Separate Gremlins from other creatures
-        List<Creature> gremlins = nearbyCreatures.stream()
-            .filter(creature -> creature.getName().toLowerCase().contains("gremlin"))
-            .collect(toList());
+        // Count nearby monsters from the think snapshot, other players are excluded
+        int creatureCount = 0;
+        int gremlinCount = 0;
+        for (int i = 0; i < _neighbourhood.size(); i++)
+        {
+            Creature creature = _neighbourhood.get(i);
+            if (creature.isPlayer())
+            {
+                continue;
+            }
+            
+            creatureCount++;
+            if (isGremlin(creature))
+            {
+                gremlinCount++;
+            }
+        }
         
-        if (nearbyCreatures.isEmpty())
+        if (creatureCount == 0)
         {
             FAKE_PLAYER_LOGGER.info(player.getName() + " at " + player.getLocation() + " - No mobs detected within 1000 range");
             return;
@@ -739,35 +794,43 @@ public class AutobotAI extends PlayerAI
         // Log summary of nearby mobs with special focus on Gremlins
         StringBuilder mobInfo = new StringBuilder();
         mobInfo.append(player.getName()).append(" at ").append(player.getLocation())
-            .append(" detects ").append(nearbyCreatures.size()).append(" creatures")
-            .append(" (including ").append(gremlins.size()).append(" Gremlins):\n");
-        
-        // Group mobs by type and count them
-        java.util.Map<String, java.util.List<Creature>> mobGroups = nearbyCreatures.stream()
-            .collect(java.util.stream.Collectors.groupingBy(creature -> creature.getName()));
+            .append(" detects ").append(creatureCount).append(" creatures")
+            .append(" (including ").append(gremlinCount).append(" Gremlins):\n");
         
-        for (java.util.Map.Entry<String, java.util.List<Creature>> entry : mobGroups.entrySet())
+        // Group mobs by type and count them, entries are sorted by distance so the first one of a type is the closest
+        java.util.Map<String, double[]> mobGroups = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < _neighbourhood.size(); i++)
         {
-            String mobName = entry.getKey();
-            java.util.List<Creature> mobs = entry.getValue();
-            
-            // Find closest and furthest of this type
-            double minDistance = mobs.stream()
-                .mapToDouble(mob -> player.calculateDistance2D(mob))
-                .min().orElse(0);
-            double maxDistance = mobs.stream()
-                .mapToDouble(mob -> player.calculateDistance2D(mob))
-                .max().orElse(0);
+            Creature mob = _neighbourhood.get(i);
+            if (mob.isPlayer())
+            {
+                continue;
+            }
             
-            // Check how many are attackable
-            long attackableCount = mobs.stream()
-                .filter(mob -> mob instanceof Attackable && !mob.isDead() && mob.isAttackable())
-                .count();
+            double distance = _neighbourhood.getDistance(i);
+            double[] group = mobGroups.get(mob.getName());
+            if (group == null)
+            {
+                // Total, attackable, min distance, max distance.
+                group = new double[] { 0, 0, distance, distance };
+                mobGroups.put(mob.getName(), group);
+            }
             
-            mobInfo.append("  - ").append(mobName).append(": ").append(mobs.size()).append(" total")
-                .append(", ").append(attackableCount).append(" attackable")
-                .append(", range ").append(String.format("%.1f", minDistance))
-                .append("-").append(String.format("%.1f", maxDistance)).append("\n");
+            group[0]++;
+            if (mob.isAttackable() && !mob.isDead())
+            {
+                group[1]++;
+            }
+            group[3] = distance;
+        }
+        
+        for (java.util.Map.Entry<String, double[]> entry : mobGroups.entrySet())
+        {
+            double[] group = entry.getValue();
+            mobInfo.append("  - ").append(entry.getKey()).append(": ").append((int) group[0]).append(" total")
+                .append(", ").append((int) group[1]).append(" attackable")
+                .append(", range ").append(String.format("%.1f", group[2]))
+                .append("-").append(String.format("%.1f", group[3])).append("\n");
         }
         
         FAKE_PLAYER_LOGGER.info(mobInfo.toString());
@@ -804,11 +867,8 @@ public class AutobotAI extends PlayerAI
         }
         
         // Flee if overwhelmed by enemies
-        long enemyCount = World.getInstance().getVisibleObjectsInRange(player, Player.class, 200)
-            .stream()
-            .filter(p -> p.getTarget() == player)
-            .count();
-            
+        int enemyCount = _neighbourhood.countPlayersTargeting(player, 200);
+        
         return enemyCount > 2 && _aggressionLevel < 60;
     }
     
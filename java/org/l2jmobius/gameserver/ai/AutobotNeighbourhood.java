@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ */
+package org.l2jmobius.gameserver.ai;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.l2jmobius.gameserver.model.World;
+import org.l2jmobius.gameserver.model.WorldObject;
+import org.l2jmobius.gameserver.model.actor.Creature;
+import org.l2jmobius.gameserver.model.actor.Player;
+
+/**
+ * Snapshot of the creatures around an autobot, taken with a single world query per think.<br>
+ * Entries are sorted by ascending 2D distance and kept in reusable arrays, so the target scans of a think do not allocate.
+ * @author Mobius
+ */
+public class AutobotNeighbourhood
+{
+	public static final int SCAN_RANGE = 1000;
+	
+	private static final int INDEX_BITS = 20;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	
+	private Player _owner;
+	private int _size;
+	
+	// Unsorted entries as collected from the world.
+	private Creature[] _collected = new Creature[64];
+	private double[] _collectedDistances = new double[64];
+	private long[] _sortKeys = new long[64];
+	
+	// Entries sorted by distance.
+	private Creature[] _creatures = new Creature[64];
+	private double[] _distances = new double[64];
+	private double[] _distances3D = new double[64];
+	
+	private final Consumer<Creature> _collector = this::collect;
+	
+	/**
+	 * Replaces the snapshot content with the creatures within range of the given player.
+	 * @param player the player in the center of the snapshot
+	 * @param range the 3D scan range
+	 */
+	public void update(Player player, int range)
+	{
+		clear();
+		_owner = player;
+		World.getInstance().forEachVisibleObjectInRange(player, Creature.class, range, _collector);
+		
+		// Sort on primitive keys packing the rounded distance with the collection index.
+		for (int i = 0; i < _size; i++)
+		{
+			_sortKeys[i] = (Math.round(_collectedDistances[i]) << INDEX_BITS) | i;
+		}
+		Arrays.sort(_sortKeys, 0, _size);
+		
+		for (int i = 0; i < _size; i++)
+		{
+			final int index = (int) (_sortKeys[i] & INDEX_MASK);
+			final Creature creature = _collected[index];
+			_creatures[i] = creature;
+			_distances[i] = _collectedDistances[index];
+			_distances3D[i] = creature.calculateDistance3D(player);
+			_collected[index] = null;
+		}
+	}
+	
+	private void collect(Creature creature)
+	{
+		if (_size == INDEX_MASK)
+		{
+			return;
+		}
+		
+		if (_size == _collected.length)
+		{
+			final int capacity = _size * 2;
+			_collected = Arrays.copyOf(_collected, capacity);
+			_collectedDistances = Arrays.copyOf(_collectedDistances, capacity);
+			_sortKeys = Arrays.copyOf(_sortKeys, capacity);
+			_creatures = Arrays.copyOf(_creatures, capacity);
+			_distances = Arrays.copyOf(_distances, capacity);
+			_distances3D = Arrays.copyOf(_distances3D, capacity);
+		}
+		
+		_collected[_size] = creature;
+		_collectedDistances[_size] = creature.calculateDistance2D(_owner);
+		_size++;
+	}
+	
+	/**
+	 * Releases the creature references of the previous snapshot.
+	 */
+	public void clear()
+	{
+		Arrays.fill(_creatures, 0, _size, null);
+		_size = 0;
+		_owner = null;
+	}
+	
+	/**
+	 * @return the number of creatures in the snapshot
+	 */
+	public int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * @param index the entry index, entries are sorted by ascending distance
+	 * @return the creature of the entry
+	 */
+	public Creature get(int index)
+	{
+		return _creatures[index];
+	}
+	
+	/**
+	 * @param index the entry index
+	 * @return the 2D distance between the snapshot owner and the creature when the snapshot was taken
+	 */
+	public double getDistance(int index)
+	{
+		return _distances[index];
+	}
+	
+	/**
+	 * @param target the target
+	 * @param range the 3D range
+	 * @return the number of players of the snapshot within range that have the given target
+	 */
+	public int countPlayersTargeting(WorldObject target, int range)
+	{
+		int count = 0;
+		for (int i = 0; i < _size; i++)
+		{
+			final Creature creature = _creatures[i];
+			if (creature.isPlayer() && (creature.getTarget() == target) && (_distances3D[i] <= range))
+			{
+				count++;
+			}
+		}
+		
+		return count;
+	}
+}
@@ -65,6 +65,13 @@ public class ControllableMobAI extends AttackableAI
 		}
 	}
 	
+	@Override
+	public boolean needsIdleThink()
+	{
+		// Controlled mobs follow the orders of their group whatever their intention is.
+		return true;
+	}
+	
 	@Override
 	public void onActionThink()
 	{
@@ -20,10 +20,9 @@
  */
 package org.l2jmobius.gameserver.cache;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,7 +41,13 @@ public class HtmCache
 {
 	private static final Logger LOGGER = Logger.getLogger(HtmCache.class.getName());
 	
-	private static final Map<String, String> HTML_CACHE = Config.HTM_CACHE ? new HashMap<>() : new ConcurrentHashMap<>();
+	private static final Map<String, HtmlTemplate> HTML_CACHE = new ConcurrentHashMap<>();
+	
+	// Templates by page text, so identical files of different folders share one template. Guarded by itself.
+	private static final Map<String, HtmlTemplate> TEMPLATES = new HashMap<>();
+	
+	// Locks of the pages the lazy cache is loading, so a page is read once and readers of other pages never wait.
+	private static final Map<String, Object> LOADING = new ConcurrentHashMap<>();
 	
 	private int _loadedFiles;
 	private long _bytesBuffLen;
@@ -63,13 +68,18 @@ public class HtmCache
 		{
 			LOGGER.info("Html cache start...");
 			parseDir(file);
-			LOGGER.info("Cache[HTML]: " + String.format("%.3f", getMemoryUsage()) + " megabytes on " + _loadedFiles + " files loaded.");
+			LOGGER.info("Cache[HTML]: " + String.format("%.3f", getMemoryUsage()) + " megabytes on " + _loadedFiles + " files loaded, " + getSharedFiles() + " identical files shared.");
 		}
 		else
 		{
-			HTML_CACHE.clear();
-			_loadedFiles = 0;
-			_bytesBuffLen = 0;
+			synchronized (TEMPLATES)
+			{
+				HTML_CACHE.clear();
+				TEMPLATES.clear();
+				_loadedFiles = 0;
+				_bytesBuffLen = 0;
+			}
+			
 			LOGGER.info("Cache[HTML]: Running lazy cache.");
 		}
 	}
@@ -80,16 +90,47 @@ public class HtmCache
 		LOGGER.info("Cache[HTML]: Reloaded specified path.");
 	}
 	
+	/**
+	 * @return the megabytes used by the text of the cached pages, counting pages shared by identical files once
+	 */
 	public double getMemoryUsage()
 	{
 		return (float) _bytesBuffLen / 1048576;
 	}
 	
+	/**
+	 * @return the megabytes used by pages kept encoded for packets
+	 */
+	public double getEncodedMemoryUsage()
+	{
+		long bytes = 0;
+		synchronized (TEMPLATES)
+		{
+			for (HtmlTemplate template : TEMPLATES.values())
+			{
+				bytes += template.getEncodedSize();
+			}
+		}
+		
+		return (float) bytes / 1048576;
+	}
+	
 	public int getLoadedFiles()
 	{
 		return _loadedFiles;
 	}
 	
+	/**
+	 * @return the number of loaded files that reuse the page of an identical file
+	 */
+	public int getSharedFiles()
+	{
+		synchronized (TEMPLATES)
+		{
+			return _loadedFiles - TEMPLATES.size();
+		}
+	}
+	
 	private void parseDir(File dir)
 	{
 		final File[] files = dir.listFiles();
@@ -110,6 +151,12 @@ public class HtmCache
 	}
 	
 	public String loadFile(File file)
+	{
+		final HtmlTemplate template = loadTemplate(file);
+		return template == null ? null : template.getSource();
+	}
+	
+	private HtmlTemplate loadTemplate(File file)
 	{
 		if ((file == null) || !file.isFile())
 		{
@@ -122,62 +169,174 @@ public class HtmCache
 			return null;
 		}
 		
-		String filePath = null;
-		String content = null;
-		try (FileInputStream fis = new FileInputStream(file);
-			BufferedInputStream bis = new BufferedInputStream(fis))
+		try
 		{
-			final int bytes = bis.available();
-			final byte[] raw = new byte[bytes];
-			
-			bis.read(raw);
-			content = new String(raw, StandardCharsets.UTF_8);
-			content = content.replaceAll("(?s)<!--.*?-->", ""); // Remove html comments.
-			content = content.replaceAll("[\\t\\n]", ""); // Remove tabs and new lines.
-			
-			filePath = file.toURI().getPath().substring(Config.DATAPACK_ROOT.toURI().getPath().length());
+			final String content = minify(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			final String filePath = file.toURI().getPath().substring(Config.DATAPACK_ROOT.toURI().getPath().length());
 			if (Config.CHECK_HTML_ENCODING && !filePath.startsWith("data/lang") && !StandardCharsets.US_ASCII.newEncoder().canEncode(content))
 			{
 				LOGGER.warning("HTML encoding check: File " + filePath + " contains non ASCII content.");
 			}
 			
-			final String oldContent = HTML_CACHE.put(filePath, content);
-			if (oldContent == null)
+			return store(filePath, content);
+		}
+		catch (Exception e)
+		{
+			LOGGER.log(Level.WARNING, "Problem with htm file:", e);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Removes html comments, tabs and new lines in a single pass.<br>
+	 * The result is the same as removing comments first and then tabs and new lines, since comments are matched on the original text.
+	 * @param content the file content
+	 * @return the content without comments, tabs and new lines
+	 */
+	private static String minify(String content)
+	{
+		final int length = content.length();
+		final StringBuilder sb = new StringBuilder(length);
+		int index = 0;
+		while (index < length)
+		{
+			final char c = content.charAt(index);
+			if ((c == '<') && content.startsWith("<!--", index))
+			{
+				final int commentEnd = content.indexOf("-->", index + 4);
+				if (commentEnd >= 0)
+				{
+					index = commentEnd + 3;
+					continue;
+				}
+			}
+			
+			if ((c != '\t') && (c != '\n'))
+			{
+				sb.append(c);
+			}
+			
+			index++;
+		}
+		
+		return sb.length() == length ? content : sb.toString();
+	}
+	
+	/**
+	 * Stores a page under its path, reusing the template of an identical page if one is cached.
+	 * @param filePath the path of the page
+	 * @param content the page text
+	 * @return the stored template
+	 */
+	private HtmlTemplate store(String filePath, String content)
+	{
+		synchronized (TEMPLATES)
+		{
+			HtmlTemplate template = TEMPLATES.get(content);
+			if (template == null)
+			{
+				template = new HtmlTemplate(content);
+				TEMPLATES.put(content, template);
+				_bytesBuffLen += getTextSize(content);
+			}
+			
+			template._references++;
+			
+			final HtmlTemplate oldTemplate = HTML_CACHE.put(filePath, template);
+			if (oldTemplate == null)
 			{
-				_bytesBuffLen += bytes;
 				_loadedFiles++;
 			}
-			else
+			else if (--oldTemplate._references == 0)
 			{
-				_bytesBuffLen = (_bytesBuffLen - oldContent.length()) + bytes;
+				TEMPLATES.remove(oldTemplate.getSource());
+				_bytesBuffLen -= getTextSize(oldTemplate.getSource());
 			}
+			
+			return template;
 		}
-		catch (Exception e)
+	}
+	
+	/**
+	 * @param text the text
+	 * @return the bytes the text takes in memory, one per character when all characters are Latin-1 and two otherwise
+	 */
+	private static int getTextSize(String text)
+	{
+		for (int i = 0; i < text.length(); i++)
 		{
-			LOGGER.log(Level.WARNING, "Problem with htm file:", e);
+			if (text.charAt(i) > 0xFF)
+			{
+				return text.length() * 2;
+			}
 		}
 		
-		return content;
+		return text.length();
+	}
+	
+	/**
+	 * Loads a page for the lazy cache. Concurrent requests for the same page wait for a single read, requests for other pages are not affected.
+	 * @param path the path of the page
+	 * @return the template, or {@code null} if the page does not exist
+	 */
+	private HtmlTemplate loadLazily(String path)
+	{
+		final Object lock = LOADING.computeIfAbsent(path, _ -> new Object());
+		synchronized (lock)
+		{
+			try
+			{
+				HtmlTemplate content = HTML_CACHE.get(path);
+				if (content == null)
+				{
+					content = loadTemplate(new File(Config.DATAPACK_ROOT, path));
+					if (content == null)
+					{
+						content = loadTemplate(new File(Config.SCRIPT_ROOT, path));
+					}
+				}
+				
+				return content;
+			}
+			finally
+			{
+				LOADING.remove(path, lock);
+			}
+		}
 	}
 	
 	public String getHtm(Player player, String path)
+	{
+		final HtmlTemplate template = getTemplate(player, path);
+		return template == null ? null : template.getSource();
+	}
+	
+	/**
+	 * Same lookup as {@link #getHtm(Player, String)}, returning the cached page as a template whose placeholders can be filled without copying the page once per placeholder.
+	 * @param player the player the page is for, used for the localisation prefix
+	 * @param path the path of the page
+	 * @return the template, or {@code null} if the page does not exist
+	 */
+	public HtmlTemplate getTemplate(Player player, String path)
 	{
 		final String prefix = player != null ? player.getHtmlPrefix() : "";
 		String newPath = prefix + path;
-		String content = HTML_CACHE.get(newPath);
+		HtmlTemplate content = HTML_CACHE.get(newPath);
 		if (!Config.HTM_CACHE && (content == null))
 		{
-			content = loadFile(new File(Config.DATAPACK_ROOT, newPath));
-			if (content == null)
-			{
-				content = loadFile(new File(Config.SCRIPT_ROOT, newPath));
-			}
+			content = loadLazily(newPath);
 		}
 		
 		// In case localisation does not exist try the default path.
 		if ((content == null) && !prefix.contentEquals(""))
 		{
 			content = HTML_CACHE.get(path);
+			if (!Config.HTM_CACHE && (content == null))
+			{
+				content = loadLazily(path);
+			}
+			
 			newPath = path;
 		}
 		
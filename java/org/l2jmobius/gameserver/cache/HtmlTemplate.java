@@ -0,0 +1,541 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.l2jmobius.gameserver.util.HtmlUtil;
+
+/**
+ * A cached html page with the positions of its {@code %placeholder%} slots indexed.<br>
+ * Slots are located the first time the template is used, after which filling any number of them costs a single copy of the page.<br>
+ * A placeholder is only indexed when its slots are exactly the matches {@link String#replaceAll(String, String)} would find, so filling a slot never differs from replacing the pattern in the page text.<br>
+ * The bypass and link actions of the page are located once as well, so the action cache of a player is built without scanning the page.
+ * @author Mobius
+ */
+public class HtmlTemplate
+{
+	private static final int MAX_BUFFER_CAPACITY = 65536;
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+	
+	private final String _source;
+	private volatile Slots _slots;
+	private volatile byte[] _encoded;
+	
+	// The number of cached paths using this template, guarded by the html cache.
+	int _references;
+	private volatile Actions _bypasses;
+	private volatile Actions _links;
+	
+	/**
+	 * The slot positions of a template, in page order.
+	 */
+	private static class Slots
+	{
+		final Map<String, Integer> _placeholders;
+		final int[] _starts;
+		final int[] _ends;
+		final int[] _ids;
+		
+		Slots(Map<String, Integer> placeholders, int[] starts, int[] ends, int[] ids)
+		{
+			_placeholders = placeholders;
+			_starts = starts;
+			_ends = ends;
+			_ids = ids;
+		}
+	}
+	
+	/**
+	 * The possible starts of one kind of action, in page order.<br>
+	 * Since no filled value contains a quote, every action of a rendered page starts at a quote of the template. A quote is kept when the template already has an action there, or when a slot is close enough to form one.
+	 */
+	private static class Actions
+	{
+		final int[] _quotes;
+		final int[] _closings;
+		final String[] _actions;
+		
+		Actions(int[] quotes, int[] closings, String[] actions)
+		{
+			_quotes = quotes;
+			_closings = closings;
+			_actions = actions;
+		}
+	}
+	
+	public HtmlTemplate(String source)
+	{
+		_source = source;
+	}
+	
+	/**
+	 * @return the page text, with no slot filled
+	 */
+	public String getSource()
+	{
+		return _source;
+	}
+	
+	/**
+	 * @param placeholder the placeholder including its percent signs, for example {@code %objectId%}
+	 * @return the slot id of the placeholder, or -1 if the page does not contain it as a slot
+	 */
+	public int getSlotId(String placeholder)
+	{
+		final Integer id = getSlots()._placeholders.get(placeholder);
+		return id == null ? -1 : id.intValue();
+	}
+	
+	/**
+	 * @return the number of distinct placeholders, the size of the value array expected by {@link #render(String[])}
+	 */
+	public int getSlotCount()
+	{
+		return getSlots()._placeholders.size();
+	}
+	
+	/**
+	 * Builds the page with the given slot values in one pass.
+	 * @param values the values indexed by slot id, a {@code null} array or element leaves the placeholder in place
+	 * @return the page text
+	 */
+	public String render(String[] values)
+	{
+		if (values == null)
+		{
+			return _source;
+		}
+		
+		final Slots slots = getSlots();
+		final StringBuilder sb = BUFFER.get();
+		int position = 0;
+		for (int i = 0; i < slots._ids.length; i++)
+		{
+			final String value = values[slots._ids[i]];
+			if (value != null)
+			{
+				sb.append(_source, position, slots._starts[i]);
+				sb.append(value);
+				position = slots._ends[i];
+			}
+		}
+		
+		if (position == 0)
+		{
+			return _source;
+		}
+		
+		sb.append(_source, position, _source.length());
+		final String result = sb.toString();
+		sb.setLength(0);
+		if (sb.capacity() > MAX_BUFFER_CAPACITY)
+		{
+			sb.trimToSize();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Finds the actions of a page rendered from this template, in the order {@link HtmlUtil#buildHtmlActionCache} adds them: bypasses first, then links.<br>
+	 * Actions that no filled slot touches are taken from the template, only the others are read from the page.
+	 * @param values the values the page was rendered with
+	 * @param html the page rendered with {@link #render(String[])}
+	 * @param bypassConsumer receives the bypass actions
+	 * @param linkConsumer receives the link paths
+	 * @return {@code false} without reporting any action if a value contains a quote, in which case the page has to be scanned
+	 */
+	public boolean forEachAction(String[] values, String html, Consumer<String> bypassConsumer, Consumer<String> linkConsumer)
+	{
+		if (values != null)
+		{
+			for (String value : values)
+			{
+				if ((value != null) && (value.indexOf('"') >= 0))
+				{
+					return false;
+				}
+			}
+		}
+		
+		Actions bypasses = _bypasses;
+		if (bypasses == null)
+		{
+			bypasses = parseActions(HtmlUtil.BYPASS_START);
+			_bypasses = bypasses;
+		}
+		
+		Actions links = _links;
+		if (links == null)
+		{
+			links = parseActions(HtmlUtil.LINK_START);
+			_links = links;
+		}
+		
+		forEachAction(bypasses, HtmlUtil.BYPASS_START, values, html, bypassConsumer);
+		forEachAction(links, HtmlUtil.LINK_START, values, html, linkConsumer);
+		return true;
+	}
+	
+	/**
+	 * Walks the action starts of the template, tracking how far the filled slots before each of them moved it in the rendered page.
+	 * @param actions the action starts of the template
+	 * @param start the text that starts an action
+	 * @param values the values the page was rendered with
+	 * @param html the rendered page
+	 * @param consumer receives the actions
+	 */
+	private void forEachAction(Actions actions, String start, String[] values, String html, Consumer<String> consumer)
+	{
+		final Slots slots = getSlots();
+		int slot = 0;
+		int offset = 0;
+		int actionEnd = 0;
+		for (int i = 0; i < actions._quotes.length; i++)
+		{
+			final int quote = actions._quotes[i];
+			while ((slot < slots._ends.length) && (slots._ends[slot] <= quote))
+			{
+				final String value = values == null ? null : values[slots._ids[slot]];
+				if (value != null)
+				{
+					offset += value.length() - (slots._ends[slot] - slots._starts[slot]);
+				}
+				
+				slot++;
+			}
+			
+			final int actionStart = (quote + offset) - 1;
+			if (actionStart < actionEnd)
+			{
+				continue;
+			}
+			
+			final String action = actions._actions[i];
+			if ((action != null) && isUnfilled(slots, values, slot, actions._closings[i]))
+			{
+				if (actions._closings[i] < 0)
+				{
+					return;
+				}
+				
+				consumer.accept(action);
+				actionEnd = actions._closings[i] + offset;
+				continue;
+			}
+			
+			if (!html.regionMatches(true, actionStart, start, 0, start.length()))
+			{
+				continue;
+			}
+			
+			actionEnd = html.indexOf('"', actionStart + start.length());
+			if (actionEnd < 0)
+			{
+				return;
+			}
+			
+			consumer.accept(HtmlUtil.readAction(html, start, actionStart + start.length(), actionEnd));
+		}
+	}
+	
+	/**
+	 * @param slots the slots of the template
+	 * @param values the filled values
+	 * @param slot the first slot that ends after the position
+	 * @param end the end of the checked range in the template
+	 * @return {@code true} if no filled slot starts before the end
+	 */
+	private static boolean isUnfilled(Slots slots, String[] values, int slot, int end)
+	{
+		if (values == null)
+		{
+			return true;
+		}
+		
+		for (int i = slot; (i < slots._starts.length) && ((end < 0) || (slots._starts[i] <= end)); i++)
+		{
+			if (values[slots._ids[i]] != null)
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Locates the quotes of the template where an action starts, or may start once slots are filled.
+	 * @param start the text that starts an action, beginning with the equal sign before the quote
+	 * @return the action starts
+	 */
+	private Actions parseActions(String start)
+	{
+		final Slots slots = getSlots();
+		final List<Integer> quotes = new ArrayList<>();
+		final List<Integer> closings = new ArrayList<>();
+		final List<String> actions = new ArrayList<>();
+		int slot = 0;
+		int quote = _source.indexOf('"', 1);
+		while (quote >= 0)
+		{
+			final int actionStart = quote - 1;
+			final int startEnd = actionStart + start.length();
+			while ((slot < slots._ends.length) && (slots._ends[slot] <= actionStart))
+			{
+				slot++;
+			}
+			
+			// Slots are never shorter than three characters, so one that ends inside the start text also starts before its end.
+			if ((slot < slots._starts.length) && (slots._starts[slot] < startEnd))
+			{
+				quotes.add(quote);
+				closings.add(-1);
+				actions.add(null);
+			}
+			else if (_source.regionMatches(true, actionStart, start, 0, start.length()))
+			{
+				final int closing = _source.indexOf('"', startEnd);
+				quotes.add(quote);
+				closings.add(closing);
+				
+				// An action containing a slot is read from the rendered page when that slot is filled.
+				actions.add(closing < 0 ? "" : HtmlUtil.readAction(_source, start, startEnd, closing));
+			}
+			
+			quote = _source.indexOf('"', quote + 1);
+		}
+		
+		final int[] quoteArray = new int[quotes.size()];
+		final int[] closingArray = new int[quotes.size()];
+		for (int i = 0; i < quoteArray.length; i++)
+		{
+			quoteArray[i] = quotes.get(i);
+			closingArray[i] = closings.get(i);
+		}
+		
+		return new Actions(quoteArray, closingArray, actions.toArray(new String[0]));
+	}
+	
+	/**
+	 * @return the page text encoded as UTF-16LE, as written to packets, encoded the first time it is requested and shared afterwards
+	 */
+	public byte[] getEncoded()
+	{
+		byte[] encoded = _encoded;
+		if (encoded == null)
+		{
+			encoded = _source.getBytes(StandardCharsets.UTF_16LE);
+			_encoded = encoded;
+		}
+		
+		return encoded;
+	}
+	
+	/**
+	 * @return the size in bytes of the encoded page, 0 if it was never requested
+	 */
+	public int getEncodedSize()
+	{
+		final byte[] encoded = _encoded;
+		return encoded == null ? 0 : encoded.length;
+	}
+	
+	/**
+	 * Builds the page with the given slot values directly as UTF-16LE. The text between slots is copied from the encoded page, only the values are encoded.
+	 * @param values the values indexed by slot id, a {@code null} array or element leaves the placeholder in place
+	 * @return the encoded page, shared with other callers when no slot is filled
+	 */
+	public byte[] renderEncoded(String[] values)
+	{
+		final byte[] encoded = getEncoded();
+		if (values == null)
+		{
+			return encoded;
+		}
+		
+		final Slots slots = getSlots();
+		int length = _source.length();
+		for (int i = 0; i < slots._ids.length; i++)
+		{
+			final String value = values[slots._ids[i]];
+			if (value != null)
+			{
+				length += value.length() - (slots._ends[i] - slots._starts[i]);
+			}
+		}
+		
+		final byte[] result = new byte[length * 2];
+		int position = 0;
+		int index = 0;
+		for (int i = 0; i < slots._ids.length; i++)
+		{
+			final String value = values[slots._ids[i]];
+			if (value != null)
+			{
+				final int count = (slots._starts[i] - position) * 2;
+				System.arraycopy(encoded, position * 2, result, index, count);
+				index += count;
+				final byte[] encodedValue = value.getBytes(StandardCharsets.UTF_16LE);
+				System.arraycopy(encodedValue, 0, result, index, encodedValue.length);
+				index += encodedValue.length;
+				position = slots._ends[i];
+			}
+		}
+		
+		System.arraycopy(encoded, position * 2, result, index, encoded.length - (position * 2));
+		return result;
+	}
+	
+	private Slots getSlots()
+	{
+		Slots slots = _slots;
+		if (slots == null)
+		{
+			slots = parse(_source);
+			_slots = slots;
+		}
+		
+		return slots;
+	}
+	
+	/**
+	 * Locates the {@code %word%} placeholders of a page. Placeholders that also match text outside their slots, for example across the percent sign of a neighbouring slot, are left out.<br>
+	 * So are placeholders with a slot that a filled value could turn into a new placeholder together with the text around it, see {@link #canFormPlaceholder(String, int, int)}.
+	 * @param source the page text
+	 * @return the slots
+	 */
+	private static Slots parse(String source)
+	{
+		final Map<String, List<Integer>> found = new HashMap<>();
+		final int length = source.length();
+		int start = source.indexOf('%');
+		while (start >= 0)
+		{
+			int end = start + 1;
+			while ((end < length) && isPlaceholderChar(source.charAt(end)))
+			{
+				end++;
+			}
+			
+			if ((end < length) && (end > (start + 1)) && (source.charAt(end) == '%'))
+			{
+				found.computeIfAbsent(source.substring(start, end + 1), _ -> new ArrayList<>()).add(start);
+				start = source.indexOf('%', end + 1);
+			}
+			else
+			{
+				start = source.indexOf('%', start + 1);
+			}
+		}
+		
+		final Map<String, Integer> placeholders = new HashMap<>();
+		final List<int[]> slots = new ArrayList<>();
+		for (Map.Entry<String, List<Integer>> entry : found.entrySet())
+		{
+			final String placeholder = entry.getKey();
+			final List<Integer> starts = entry.getValue();
+			int match = source.indexOf(placeholder);
+			int count = 0;
+			while ((match >= 0) && (count < starts.size()) && (starts.get(count) == match))
+			{
+				count++;
+				match = source.indexOf(placeholder, match + placeholder.length());
+			}
+			
+			boolean isolated = (match < 0) && (count == starts.size());
+			for (int i = 0; isolated && (i < starts.size()); i++)
+			{
+				isolated = !canFormPlaceholder(source, starts.get(i), starts.get(i) + placeholder.length());
+			}
+			
+			if (isolated)
+			{
+				final int id = placeholders.size();
+				placeholders.put(placeholder, id);
+				for (int slotStart : starts)
+				{
+					slots.add(new int[]
+					{
+						slotStart,
+						slotStart + placeholder.length(),
+						id
+					});
+				}
+			}
+		}
+		
+		slots.sort((a, b) -> Integer.compare(a[0], b[0]));
+		final int[] starts = new int[slots.size()];
+		final int[] ends = new int[slots.size()];
+		final int[] ids = new int[slots.size()];
+		for (int i = 0; i < starts.length; i++)
+		{
+			final int[] slot = slots.get(i);
+			starts[i] = slot[0];
+			ends[i] = slot[1];
+			ids[i] = slot[2];
+		}
+		
+		return new Slots(placeholders, starts, ends, ids);
+	}
+	
+	/**
+	 * A value never contains a percent sign, so a placeholder formed with a filled value has to run from a percent sign before the slot to one after it, through placeholder characters only.<br>
+	 * For example in {@code %%a%% %b%}, filling {@code %a%} with {@code b} makes a new {@code %b%} that replacing the text would fill as well.
+	 * @param source the page text
+	 * @param start the start of the slot
+	 * @param end the end of the slot
+	 * @return {@code true} if the text reaches a percent sign on both sides of the slot through placeholder characters only
+	 */
+	private static boolean canFormPlaceholder(String source, int start, int end)
+	{
+		int before = start - 1;
+		while ((before >= 0) && isPlaceholderChar(source.charAt(before)))
+		{
+			before--;
+		}
+		
+		if ((before < 0) || (source.charAt(before) != '%'))
+		{
+			return false;
+		}
+		
+		int after = end;
+		while ((after < source.length()) && isPlaceholderChar(source.charAt(after)))
+		{
+			after++;
+		}
+		
+		return (after < source.length()) && (source.charAt(after) == '%');
+	}
+	
+	private static boolean isPlaceholderChar(char c)
+	{
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_');
+	}
+}
@@ -20,8 +20,8 @@
  */
 package org.l2jmobius.gameserver.cache;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,10 +39,19 @@ public class PaperdollCache
 {
 	private final Set<Item> _paperdollItems = ConcurrentHashMap.newKeySet();
 	
-	private final Map<BaseStat, Double> _baseStatValues = new ConcurrentHashMap<>();
-	private final Map<Stat, Double> _statValues = new ConcurrentHashMap<>();
+	private static final int BASE_STAT_COUNT = BaseStat.values().length;
+	
+	// Cached values indexed by ordinal, NaN marks a value that is not calculated yet.
+	private final double[] _baseStatValues = new double[BASE_STAT_COUNT];
+	private final double[] _statValues = new double[Stat.NUM_STATS];
 	private int _armorSetEnchant = -1;
 	
+	public PaperdollCache()
+	{
+		Arrays.fill(_baseStatValues, Double.NaN);
+		Arrays.fill(_statValues, Double.NaN);
+	}
+	
 	public Set<Item> getPaperdollItems()
 	{
 		return _paperdollItems;
@@ -50,8 +59,8 @@ public class PaperdollCache
 	
 	public void clearCachedStats()
 	{
-		_baseStatValues.clear();
-		_statValues.clear();
+		Arrays.fill(_baseStatValues, Double.NaN);
+		Arrays.fill(_statValues, Double.NaN);
 		
 		clearArmorSetEnchant();
 	}
@@ -63,10 +72,10 @@ public class PaperdollCache
 	
 	public double getBaseStatValue(Player player, BaseStat stat)
 	{
-		final Double baseStatValue = _baseStatValues.get(stat);
-		if (baseStatValue != null)
+		final double baseStatValue = _baseStatValues[stat.ordinal()];
+		if (!Double.isNaN(baseStatValue))
 		{
-			return baseStatValue.doubleValue();
+			return baseStatValue;
 		}
 		
 		final Set<ArmorSet> appliedSets = new HashSet<>(2);
@@ -82,7 +91,7 @@ public class PaperdollCache
 			}
 		}
 		
-		_baseStatValues.put(stat, value);
+		_baseStatValues[stat.ordinal()] = value;
 		return value;
 	}
 	
@@ -113,10 +122,10 @@ public class PaperdollCache
 	
 	public double getStats(Stat stat)
 	{
-		final Double statValue = _statValues.get(stat);
-		if (statValue != null)
+		final double statValue = _statValues[stat.ordinal()];
+		if (!Double.isNaN(statValue))
 		{
-			return statValue.doubleValue();
+			return statValue;
 		}
 		
 		double value = 0;
@@ -125,7 +134,7 @@ public class PaperdollCache
 			value += item.getTemplate().getStats(stat, 0);
 		}
 		
-		_statValues.put(stat, value);
+		_statValues[stat.ordinal()] = value;
 		return value;
 	}
 }
\ No newline at end of file
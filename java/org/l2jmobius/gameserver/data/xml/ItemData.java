@@ -28,7 +28,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.logging.Logger;
 
 import org.l2jmobius.Config;
@@ -93,31 +92,15 @@ public class ItemData
 		_etcItems.clear();
 		_weapons.clear();
 		
-		// If multithreading is enabled, use a thread pool to parse files.
+		// If multithreading is enabled, parse files on the shared loading pool.
 		if (Config.THREADS_FOR_LOADING)
 		{
-			final Collection<ScheduledFuture<?>> tasks = ConcurrentHashMap.newKeySet();
-			for (File file : _itemFiles)
-			{
-				tasks.add(ThreadPool.schedule(() ->
-				{
-					final DocumentItem document = new DocumentItem(file);
-					document.parse();
-					items.addAll(document.getItemList());
-				}, 0));
-			}
-			
-			// Wait for all scheduled tasks to complete.
-			while (!tasks.isEmpty())
+			ThreadPool.executeAll(_itemFiles, file ->
 			{
-				for (ScheduledFuture<?> task : tasks)
-				{
-					if ((task == null) || task.isDone() || task.isCancelled())
-					{
-						tasks.remove(task);
-					}
-				}
-			}
+				final DocumentItem document = new DocumentItem(file);
+				document.parse();
+				items.addAll(document.getItemList());
+			});
 		}
 		else // Parse files sequentially if multithreading is not enabled.
 		{
@@ -30,10 +30,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -45,6 +45,7 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 import org.l2jmobius.Config;
+import org.l2jmobius.commons.util.ConcurrentLongMap;
 import org.l2jmobius.commons.util.IXmlReader;
 import org.l2jmobius.commons.util.StringUtil;
 import org.l2jmobius.commons.util.TraceUtil;
@@ -66,8 +67,9 @@ public class SkillData implements IXmlReader
 {
 	private static final Logger LOGGER = Logger.getLogger(SkillData.class.getName());
 	
-	private final Map<Long, Skill> _skillsByHash = new ConcurrentHashMap<>();
-	private final Map<Integer, Integer> _maxSkillLevels = new ConcurrentHashMap<>();
+	private final ConcurrentLongMap<SkillDefinition> _definitions = new ConcurrentLongMap<>();
+	private final ConcurrentLongMap<Skill> _skillsByHash = new ConcurrentLongMap<>();
+	private final AtomicInteger _levelCount = new AtomicInteger();
 	
 	private class NamedParamInfo
 	{
@@ -119,6 +121,90 @@ public class SkillData implements IXmlReader
 		}
 	}
 	
+	/**
+	 * The parsed data of a skill. Each level is built from it the first time it is requested.
+	 */
+	private class SkillDefinition
+	{
+		private final Map<Integer, Set<Integer>> _levels;
+		private final Map<Integer, Map<Integer, StatSet>> _skillInfo;
+		private final Map<EffectScope, List<NamedParamInfo>> _effectParamInfo;
+		private final Map<SkillConditionScope, List<NamedParamInfo>> _conditionParamInfo;
+		private SkillDefinition _previous;
+		private int _maxLevel;
+		
+		public SkillDefinition(Map<Integer, Set<Integer>> levels, Map<Integer, Map<Integer, StatSet>> skillInfo, Map<EffectScope, List<NamedParamInfo>> effectParamInfo, Map<SkillConditionScope, List<NamedParamInfo>> conditionParamInfo)
+		{
+			final Map<Integer, Set<Integer>> compactLevels = new HashMap<>();
+			levels.forEach((level, subLevels) -> compactLevels.put(level, Set.copyOf(subLevels)));
+			_levels = Map.copyOf(compactLevels);
+			_skillInfo = compactInfo(skillInfo);
+			_effectParamInfo = effectParamInfo;
+			_conditionParamInfo = conditionParamInfo;
+			for (int level : levels.keySet())
+			{
+				_maxLevel = Math.max(_maxLevel, level);
+			}
+		}
+		
+		/**
+		 * Chains an earlier definition of the same skill id, which still provides the levels this definition does not override.
+		 * @param previous the earlier definition, or {@code null}
+		 */
+		public void setPrevious(SkillDefinition previous)
+		{
+			_previous = previous;
+			if (previous != null)
+			{
+				_maxLevel = Math.max(_maxLevel, previous._maxLevel);
+			}
+		}
+		
+		public boolean hasLevel(int level, int subLevel)
+		{
+			final Set<Integer> subLevels = _levels.get(level);
+			return (subLevels != null) && subLevels.contains(subLevel);
+		}
+		
+		/**
+		 * @return the number of levels that no earlier definition of the same skill id provides
+		 */
+		public int getNewLevelCount()
+		{
+			int count = 0;
+			for (Entry<Integer, Set<Integer>> entry : _levels.entrySet())
+			{
+				for (int subLevel : entry.getValue())
+				{
+					if ((_previous == null) || (_previous.findDefinition(entry.getKey(), subLevel) == null))
+					{
+						count++;
+					}
+				}
+			}
+			
+			return count;
+		}
+		
+		/**
+		 * @param level the level of the skill
+		 * @param subLevel the sub-level of the skill
+		 * @return the newest definition in this chain that provides the level, or {@code null} if none does
+		 */
+		public SkillDefinition findDefinition(int level, int subLevel)
+		{
+			for (SkillDefinition definition = this; definition != null; definition = definition._previous)
+			{
+				if (definition.hasLevel(level, subLevel))
+				{
+					return definition;
+				}
+			}
+			
+			return null;
+		}
+	}
+	
 	protected SkillData()
 	{
 		load();
@@ -133,8 +219,9 @@ public class SkillData implements IXmlReader
 	@Override
 	public synchronized void load()
 	{
+		_definitions.clear();
 		_skillsByHash.clear();
-		_maxSkillLevels.clear();
+		_levelCount.set(0);
 		
 		parseDatapackDirectory("data/stats/skills/", false);
 		if (Config.CUSTOM_SKILLS_LOAD)
@@ -142,7 +229,7 @@ public class SkillData implements IXmlReader
 			parseDatapackDirectory("data/stats/skills/custom", false);
 		}
 		
-		LOGGER.info(getClass().getSimpleName() + ": Loaded " + _skillsByHash.size() + " Skills.");
+		LOGGER.info(getClass().getSimpleName() + ": Loaded " + _levelCount.get() + " Skills.");
 	}
 	
 	public void reload()
@@ -153,6 +240,12 @@ public class SkillData implements IXmlReader
 		SkillTreeData.getInstance().load();
 	}
 	
+	@Override
+	public boolean isStreaming()
+	{
+		return true;
+	}
+	
 	@Override
 	public void parseDocument(Document document, File file)
 	{
@@ -162,209 +255,244 @@ public class SkillData implements IXmlReader
 			{
 				for (Node listNode = node.getFirstChild(); listNode != null; listNode = listNode.getNextSibling())
 				{
-					if ("skill".equalsIgnoreCase(listNode.getNodeName()))
+					parseElement(listNode, file);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void parseElement(Node listNode, File file)
+	{
+		if ("skill".equalsIgnoreCase(listNode.getNodeName()))
+		{
+			NamedNodeMap attributes = listNode.getAttributes();
+			final Map<Integer, Set<Integer>> levels = new HashMap<>();
+			final Map<Integer, Map<Integer, StatSet>> skillInfo = new HashMap<>();
+			final StatSet generalSkillInfo = skillInfo.computeIfAbsent(-1, _ -> new HashMap<>()).computeIfAbsent(-1, _ -> new StatSet());
+			parseAttributes(attributes, "", generalSkillInfo);
+			
+			final Map<String, Map<Integer, Map<Integer, Object>>> variableValues = new HashMap<>();
+			final Map<EffectScope, List<NamedParamInfo>> effectParamInfo = new EnumMap<>(EffectScope.class);
+			final Map<SkillConditionScope, List<NamedParamInfo>> conditionParamInfo = new EnumMap<>(SkillConditionScope.class);
+			for (Node skillNode = listNode.getFirstChild(); skillNode != null; skillNode = skillNode.getNextSibling())
+			{
+				final String skillNodeName = skillNode.getNodeName();
+				switch (skillNodeName.toLowerCase())
+				{
+					case "variable":
 					{
-						NamedNodeMap attributes = listNode.getAttributes();
-						final Map<Integer, Set<Integer>> levels = new HashMap<>();
-						final Map<Integer, Map<Integer, StatSet>> skillInfo = new HashMap<>();
-						final StatSet generalSkillInfo = skillInfo.computeIfAbsent(-1, _ -> new HashMap<>()).computeIfAbsent(-1, _ -> new StatSet());
-						parseAttributes(attributes, "", generalSkillInfo);
-						
-						final Map<String, Map<Integer, Map<Integer, Object>>> variableValues = new HashMap<>();
-						final Map<EffectScope, List<NamedParamInfo>> effectParamInfo = new EnumMap<>(EffectScope.class);
-						final Map<SkillConditionScope, List<NamedParamInfo>> conditionParamInfo = new EnumMap<>(SkillConditionScope.class);
-						for (Node skillNode = listNode.getFirstChild(); skillNode != null; skillNode = skillNode.getNextSibling())
+						attributes = skillNode.getAttributes();
+						final String name = "@" + parseString(attributes, "name");
+						variableValues.put(name, parseValues(skillNode));
+						break;
+					}
+					case "#text":
+					{
+						break;
+					}
+					default:
+					{
+						final EffectScope effectScope = EffectScope.findByXmlNodeName(skillNodeName);
+						if (effectScope != null)
 						{
-							final String skillNodeName = skillNode.getNodeName();
-							switch (skillNodeName.toLowerCase())
+							for (Node effectsNode = skillNode.getFirstChild(); effectsNode != null; effectsNode = effectsNode.getNextSibling())
 							{
-								case "variable":
+								if ("effect".equalsIgnoreCase(effectsNode.getNodeName()))
 								{
-									attributes = skillNode.getAttributes();
-									final String name = "@" + parseString(attributes, "name");
-									variableValues.put(name, parseValues(skillNode));
-									break;
-								}
-								case "#text":
-								{
-									break;
-								}
-								default:
-								{
-									final EffectScope effectScope = EffectScope.findByXmlNodeName(skillNodeName);
-									if (effectScope != null)
-									{
-										for (Node effectsNode = skillNode.getFirstChild(); effectsNode != null; effectsNode = effectsNode.getNextSibling())
-										{
-											if ("effect".equalsIgnoreCase(effectsNode.getNodeName()))
-											{
-												effectParamInfo.computeIfAbsent(effectScope, _ -> new LinkedList<>()).add(parseNamedParamInfo(effectsNode, variableValues));
-											}
-										}
-										break;
-									}
-									
-									final SkillConditionScope skillConditionScope = SkillConditionScope.findByXmlNodeName(skillNodeName);
-									if (skillConditionScope != null)
-									{
-										for (Node conditionNode = skillNode.getFirstChild(); conditionNode != null; conditionNode = conditionNode.getNextSibling())
-										{
-											if ("condition".equalsIgnoreCase(conditionNode.getNodeName()))
-											{
-												conditionParamInfo.computeIfAbsent(skillConditionScope, _ -> new LinkedList<>()).add(parseNamedParamInfo(conditionNode, variableValues));
-											}
-										}
-									}
-									else
-									{
-										parseInfo(skillNode, variableValues, skillInfo);
-									}
-									break;
+									effectParamInfo.computeIfAbsent(effectScope, _ -> new LinkedList<>()).add(parseNamedParamInfo(effectsNode, variableValues));
 								}
 							}
+							break;
 						}
 						
-						final int fromLevel = generalSkillInfo.getInt(".fromLevel", 1);
-						final int toLevel = generalSkillInfo.getInt(".toLevel", 0);
-						for (int i = fromLevel; i <= toLevel; i++)
-						{
-							levels.computeIfAbsent(i, _ -> new HashSet<>()).add(0);
-						}
-						
-						skillInfo.forEach((level, subLevelMap) ->
+						final SkillConditionScope skillConditionScope = SkillConditionScope.findByXmlNodeName(skillNodeName);
+						if (skillConditionScope != null)
 						{
-							if (level == -1)
-							{
-								return;
-							}
-							
-							subLevelMap.forEach((subLevel, _) ->
-							{
-								if (subLevel == -1)
-								{
-									return;
-								}
-								
-								levels.computeIfAbsent(level, _ -> new HashSet<>()).add(subLevel);
-							});
-						});
-						
-						Stream.concat(effectParamInfo.values().stream(), conditionParamInfo.values().stream()).forEach(namedParamInfos -> namedParamInfos.forEach(namedParamInfo ->
-						{
-							namedParamInfo.getInfo().forEach((level, subLevelMap) ->
-							{
-								if (level == -1)
-								{
-									return;
-								}
-								
-								subLevelMap.forEach((subLevel, _) ->
-								{
-									if (subLevel == -1)
-									{
-										return;
-									}
-									
-									levels.computeIfAbsent(level, _ -> new HashSet<>()).add(subLevel);
-								});
-							});
-							
-							if ((namedParamInfo.getFromLevel() != null) && (namedParamInfo.getToLevel() != null))
+							for (Node conditionNode = skillNode.getFirstChild(); conditionNode != null; conditionNode = conditionNode.getNextSibling())
 							{
-								for (int i = namedParamInfo.getFromLevel(); i <= namedParamInfo.getToLevel(); i++)
+								if ("condition".equalsIgnoreCase(conditionNode.getNodeName()))
 								{
-									if ((namedParamInfo.getFromSubLevel() != null) && (namedParamInfo.getToSubLevel() != null))
-									{
-										for (int j = namedParamInfo.getFromSubLevel(); j <= namedParamInfo.getToSubLevel(); j++)
-										{
-											levels.computeIfAbsent(i, _ -> new HashSet<>()).add(j);
-										}
-									}
-									else
-									{
-										levels.computeIfAbsent(i, _ -> new HashSet<>()).add(0);
-									}
+									conditionParamInfo.computeIfAbsent(skillConditionScope, _ -> new LinkedList<>()).add(parseNamedParamInfo(conditionNode, variableValues));
 								}
 							}
-						}));
+						}
+						else
+						{
+							parseInfo(skillNode, variableValues, skillInfo);
+						}
+						break;
+					}
+				}
+			}
+			
+			final int fromLevel = generalSkillInfo.getInt(".fromLevel", 1);
+			final int toLevel = generalSkillInfo.getInt(".toLevel", 0);
+			for (int i = fromLevel; i <= toLevel; i++)
+			{
+				levels.computeIfAbsent(i, _ -> new HashSet<>()).add(0);
+			}
+			
+			skillInfo.forEach((level, subLevelMap) ->
+			{
+				if (level == -1)
+				{
+					return;
+				}
+				
+				subLevelMap.forEach((subLevel, _) ->
+				{
+					if (subLevel == -1)
+					{
+						return;
+					}
+					
+					levels.computeIfAbsent(level, _ -> new HashSet<>()).add(subLevel);
+				});
+			});
+			
+			Stream.concat(effectParamInfo.values().stream(), conditionParamInfo.values().stream()).forEach(namedParamInfos -> namedParamInfos.forEach(namedParamInfo ->
+			{
+				namedParamInfo.getInfo().forEach((level, subLevelMap) ->
+				{
+					if (level == -1)
+					{
+						return;
+					}
+					
+					subLevelMap.forEach((subLevel, _) ->
+					{
+						if (subLevel == -1)
+						{
+							return;
+						}
 						
-						levels.forEach((level, subLevels) -> subLevels.forEach(subLevel ->
+						levels.computeIfAbsent(level, _ -> new HashSet<>()).add(subLevel);
+					});
+				});
+				
+				if ((namedParamInfo.getFromLevel() != null) && (namedParamInfo.getToLevel() != null))
+				{
+					for (int i = namedParamInfo.getFromLevel(); i <= namedParamInfo.getToLevel(); i++)
+					{
+						if ((namedParamInfo.getFromSubLevel() != null) && (namedParamInfo.getToSubLevel() != null))
 						{
-							final StatSet statSet = Optional.ofNullable(skillInfo.getOrDefault(level, Collections.emptyMap()).get(subLevel)).orElseGet(StatSet::new);
-							skillInfo.getOrDefault(level, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(statSet.getSet()::putIfAbsent);
-							skillInfo.getOrDefault(-1, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(statSet.getSet()::putIfAbsent);
-							statSet.set(".level", level);
-							statSet.set(".subLevel", subLevel);
-							final Skill skill = new Skill(statSet);
-							forEachNamedParamInfoParam(effectParamInfo, level, subLevel, ((effectScope, params) ->
-							{
-								final String effectName = params.getString(".name");
-								params.remove(".name");
-								try
-								{
-									final Function<StatSet, AbstractEffect> effectFunction = EffectHandler.getInstance().getHandlerFactory(effectName);
-									if (effectFunction != null)
-									{
-										skill.addEffect(effectScope, effectFunction.apply(params));
-									}
-									else
-									{
-										LOGGER.warning(getClass().getSimpleName() + ": Missing effect for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Effect Scope[" + effectScope + "] Effect Name[" + effectName + "]");
-									}
-								}
-								catch (Exception e)
-								{
-									LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed loading effect for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Effect Scope[" + effectScope + "] Effect Name[" + effectName + "]", e);
-								}
-							}));
-							
-							forEachNamedParamInfoParam(conditionParamInfo, level, subLevel, ((skillConditionScope, params) ->
-							{
-								final String conditionName = params.getString(".name");
-								params.remove(".name");
-								try
-								{
-									final Function<StatSet, ISkillCondition> conditionFunction = SkillConditionHandler.getInstance().getHandlerFactory(conditionName);
-									if (conditionFunction != null)
-									{
-										if (skill.isPassive())
-										{
-											if (skillConditionScope != SkillConditionScope.PASSIVE)
-											{
-												LOGGER.warning(getClass().getSimpleName() + ": Non passive condition for passive Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "]");
-											}
-										}
-										else if (skillConditionScope == SkillConditionScope.PASSIVE)
-										{
-											LOGGER.warning(getClass().getSimpleName() + ": Passive condition for non passive Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "]");
-										}
-										
-										skill.addCondition(skillConditionScope, conditionFunction.apply(params));
-									}
-									else
-									{
-										LOGGER.warning(getClass().getSimpleName() + ": Missing condition for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Effect Scope[" + skillConditionScope + "] Effect Name[" + conditionName + "]");
-									}
-								}
-								catch (Exception e)
-								{
-									LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed loading condition for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Condition Scope[" + skillConditionScope + "] Condition Name[" + conditionName + "]", e);
-								}
-							}));
-							
-							_skillsByHash.put(getSkillHashCode(skill), skill);
-							_maxSkillLevels.merge(skill.getId(), skill.getLevel(), Integer::max);
-							if ((skill.getSubLevel() % 1000) == 1)
+							for (int j = namedParamInfo.getFromSubLevel(); j <= namedParamInfo.getToSubLevel(); j++)
 							{
-								EnchantSkillGroupsData.getInstance().addRouteForSkill(skill.getId(), skill.getLevel(), skill.getSubLevel());
+								levels.computeIfAbsent(i, _ -> new HashSet<>()).add(j);
 							}
-						}));
+						}
+						else
+						{
+							levels.computeIfAbsent(i, _ -> new HashSet<>()).add(0);
+						}
 					}
 				}
+			}));
+			
+			// Levels are built on first use, so handlers missing for any level are reported now.
+			final int skillId = generalSkillInfo.getInt(".id");
+			effectParamInfo.forEach((effectScope, namedParamInfos) -> namedParamInfos.forEach(namedParamInfo ->
+			{
+				if (EffectHandler.getInstance().getHandlerFactory(namedParamInfo.getName()) == null)
+				{
+					LOGGER.warning(getClass().getSimpleName() + ": Missing effect for Skill Id[" + skillId + "] Effect Scope[" + effectScope + "] Effect Name[" + namedParamInfo.getName() + "]");
+				}
+			}));
+			
+			conditionParamInfo.forEach((skillConditionScope, namedParamInfos) -> namedParamInfos.forEach(namedParamInfo ->
+			{
+				if (SkillConditionHandler.getInstance().getHandlerFactory(namedParamInfo.getName()) == null)
+				{
+					LOGGER.warning(getClass().getSimpleName() + ": Missing condition for Skill Id[" + skillId + "] Condition Scope[" + skillConditionScope + "] Condition Name[" + namedParamInfo.getName() + "]");
+				}
+			}));
+			
+			levels.forEach((level, subLevels) -> subLevels.forEach(subLevel ->
+			{
+				if ((subLevel % 1000) == 1)
+				{
+					EnchantSkillGroupsData.getInstance().addRouteForSkill(skillId, level, subLevel);
+				}
+			}));
+			
+			final SkillDefinition definition = new SkillDefinition(levels, skillInfo, effectParamInfo, conditionParamInfo);
+			synchronized (_definitions)
+			{
+				definition.setPrevious(_definitions.get(skillId));
+				_levelCount.addAndGet(definition.getNewLevelCount());
+				_definitions.put(skillId, definition);
 			}
 		}
 	}
 	
+	/**
+	 * Builds one level of a skill from its parsed definition. Called once per level, while holding the lock of the definition.
+	 * @param definition the parsed skill
+	 * @param level the level of the skill
+	 * @param subLevel the sub-level of the skill
+	 * @return the new {@link Skill}
+	 */
+	private Skill createSkill(SkillDefinition definition, int level, int subLevel)
+	{
+		final StatSet statSet = new StatSet();
+		statSet.getSet().putAll(definition._skillInfo.getOrDefault(level, Collections.emptyMap()).getOrDefault(subLevel, StatSet.EMPTY_STATSET).getSet());
+		definition._skillInfo.getOrDefault(level, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(statSet.getSet()::putIfAbsent);
+		definition._skillInfo.getOrDefault(-1, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(statSet.getSet()::putIfAbsent);
+		statSet.set(".level", level);
+		statSet.set(".subLevel", subLevel);
+		final Skill skill = new Skill(statSet);
+		forEachNamedParamInfoParam(definition._effectParamInfo, level, subLevel, ((effectScope, params) ->
+		{
+			final String effectName = params.getString(".name");
+			params.remove(".name");
+			try
+			{
+				final Function<StatSet, AbstractEffect> effectFunction = EffectHandler.getInstance().getHandlerFactory(effectName);
+				if (effectFunction != null)
+				{
+					skill.addEffect(effectScope, effectFunction.apply(params));
+				}
+			}
+			catch (Exception e)
+			{
+				LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed loading effect for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Effect Scope[" + effectScope + "] Effect Name[" + effectName + "]", e);
+			}
+		}));
+		
+		forEachNamedParamInfoParam(definition._conditionParamInfo, level, subLevel, ((skillConditionScope, params) ->
+		{
+			final String conditionName = params.getString(".name");
+			params.remove(".name");
+			try
+			{
+				final Function<StatSet, ISkillCondition> conditionFunction = SkillConditionHandler.getInstance().getHandlerFactory(conditionName);
+				if (conditionFunction != null)
+				{
+					if (skill.isPassive())
+					{
+						if (skillConditionScope != SkillConditionScope.PASSIVE)
+						{
+							LOGGER.warning(getClass().getSimpleName() + ": Non passive condition for passive Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "]");
+						}
+					}
+					else if (skillConditionScope == SkillConditionScope.PASSIVE)
+					{
+						LOGGER.warning(getClass().getSimpleName() + ": Passive condition for non passive Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "]");
+					}
+					
+					skill.addCondition(skillConditionScope, conditionFunction.apply(params));
+				}
+			}
+			catch (Exception e)
+			{
+				LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Failed loading condition for Skill Id[" + statSet.getInt(".id") + "] Level[" + level + "] SubLevel[" + subLevel + "] Condition Scope[" + skillConditionScope + "] Condition Name[" + conditionName + "]", e);
+			}
+		}));
+		
+		return skill;
+	}
+	
 	/**
 	 * Iterates over a map of parameter info entries and applies a specified consumer action on each entry that matches the provided level and subLevel.
 	 * <p>
@@ -383,7 +511,8 @@ public class SkillData implements IXmlReader
 			if ((((namedParamInfo.getFromLevel() == null) && (namedParamInfo.getToLevel() == null)) || ((namedParamInfo.getFromLevel() <= level) && (namedParamInfo.getToLevel() >= level))) //
 				&& (((namedParamInfo.getFromSubLevel() == null) && (namedParamInfo.getToSubLevel() == null)) || ((namedParamInfo.getFromSubLevel() <= subLevel) && (namedParamInfo.getToSubLevel() >= subLevel))))
 			{
-				final StatSet params = Optional.ofNullable(namedParamInfo.getInfo().getOrDefault(level, Collections.emptyMap()).get(subLevel)).orElseGet(StatSet::new);
+				final StatSet params = new StatSet();
+				params.getSet().putAll(namedParamInfo.getInfo().getOrDefault(level, Collections.emptyMap()).getOrDefault(subLevel, StatSet.EMPTY_STATSET).getSet());
 				namedParamInfo.getInfo().getOrDefault(level, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(params.getSet()::putIfAbsent);
 				namedParamInfo.getInfo().getOrDefault(-1, Collections.emptyMap()).getOrDefault(-1, StatSet.EMPTY_STATSET).getSet().forEach(params.getSet()::putIfAbsent);
 				params.set(".name", namedParamInfo.getName());
@@ -421,7 +550,35 @@ public class SkillData implements IXmlReader
 			}
 		}
 		
-		return new NamedParamInfo(name, fromLevel, toLevel, fromSubLevel, toSubLevel, info);
+		return new NamedParamInfo(name, fromLevel, toLevel, fromSubLevel, toSubLevel, compactInfo(info));
+	}
+	
+	/**
+	 * Copies parsed level information into immutable maps with shared string values. Definitions are kept for the whole uptime, so this trades a little parsing time for a much smaller resident size.<br>
+	 * The returned sets must not be modified; building a skill copies them first.
+	 * @param info the parsed information, by level and sub-level
+	 * @return the compact copy
+	 */
+	private static Map<Integer, Map<Integer, StatSet>> compactInfo(Map<Integer, Map<Integer, StatSet>> info)
+	{
+		final Map<Integer, Map<Integer, StatSet>> result = new HashMap<>();
+		info.forEach((level, subLevels) ->
+		{
+			final Map<Integer, StatSet> compactSubLevels = new HashMap<>();
+			subLevels.forEach((subLevel, set) ->
+			{
+				final Map<String, Object> values = new HashMap<>();
+				for (Entry<String, Object> entry : set.getSet().entrySet())
+				{
+					final Object value = entry.getValue();
+					values.put(entry.getKey().intern(), value instanceof String string ? string.intern() : value);
+				}
+				
+				compactSubLevels.put(subLevel, values.containsValue(null) ? new StatSet(values) : new StatSet(Map.copyOf(values)));
+			});
+			result.put(level, Map.copyOf(compactSubLevels));
+		});
+		return Map.copyOf(result);
 	}
 	
 	/**
@@ -973,7 +1130,7 @@ public class SkillData implements IXmlReader
 	 */
 	public Skill getSkill(int skillId, int level, int subLevel)
 	{
-		final Skill result = _skillsByHash.get(getSkillHashCode(skillId, level, subLevel));
+		final Skill result = findSkill(skillId, level, subLevel);
 		if (result != null)
 		{
 			return result;
@@ -986,13 +1143,50 @@ public class SkillData implements IXmlReader
 		if ((maxLevel > 0) && (level > maxLevel))
 		{
 			LOGGER.warning(StringUtil.concat(getClass().getSimpleName(), ": Call to unexisting skill level id: ", String.valueOf(skillId), " requested level: ", String.valueOf(level), " max level: ", String.valueOf(maxLevel), ".", System.lineSeparator(), TraceUtil.getStackTrace(new Exception())));
-			return _skillsByHash.get(getSkillHashCode(skillId, maxLevel));
+			return findSkill(skillId, maxLevel, 0);
 		}
 		
 		LOGGER.warning(StringUtil.concat(getClass().getSimpleName(), ": No skill info found for skill id ", String.valueOf(skillId), " and skill level ", String.valueOf(level), ".", System.lineSeparator(), TraceUtil.getStackTrace(new Exception())));
 		return null;
 	}
 	
+	/**
+	 * Returns a skill level, building it from the skill definition on first use.
+	 * @param skillId The ID of the skill.
+	 * @param level The level of the skill.
+	 * @param subLevel The sub-level of the skill.
+	 * @return The {@link Skill} object, or null if the skill has no such level.
+	 */
+	private Skill findSkill(int skillId, int level, int subLevel)
+	{
+		final long hashCode = getSkillHashCode(skillId, level, subLevel);
+		final Skill skill = _skillsByHash.get(hashCode);
+		if (skill != null)
+		{
+			return skill;
+		}
+		
+		final SkillDefinition skillDefinition = _definitions.get(skillId);
+		final SkillDefinition definition = skillDefinition != null ? skillDefinition.findDefinition(level, subLevel) : null;
+		if (definition == null)
+		{
+			return null;
+		}
+		
+		synchronized (definition)
+		{
+			final Skill existing = _skillsByHash.get(hashCode);
+			if (existing != null)
+			{
+				return existing;
+			}
+			
+			final Skill created = createSkill(definition, level, subLevel);
+			_skillsByHash.put(hashCode, created);
+			return created;
+		}
+	}
+	
 	/**
 	 * Retrieves the maximum level available for a skill based on its ID.
 	 * @param skillId The ID of the skill.
@@ -1000,8 +1194,24 @@ public class SkillData implements IXmlReader
 	 */
 	public int getMaxLevel(int skillId)
 	{
-		final Integer maxLevel = _maxSkillLevels.get(skillId);
-		return maxLevel != null ? maxLevel : 0;
+		final SkillDefinition definition = _definitions.get(skillId);
+		return definition != null ? definition._maxLevel : 0;
+	}
+	
+	/**
+	 * @return the number of skill levels defined by the datapack
+	 */
+	public int getLevelCount()
+	{
+		return _levelCount.get();
+	}
+	
+	/**
+	 * @return the number of skill levels built since loading, as skill levels are only built when first requested
+	 */
+	public int getBuiltLevelCount()
+	{
+		return _skillsByHash.size();
 	}
 	
 	/**
@@ -1016,18 +1226,18 @@ public class SkillData implements IXmlReader
 	public List<Skill> getSiegeSkills(boolean addNoble, boolean hasCastle)
 	{
 		final List<Skill> result = new LinkedList<>();
-		result.add(_skillsByHash.get(getSkillHashCode(CommonSkill.IMPRIT_OF_LIGHT.getId(), 1)));
-		result.add(_skillsByHash.get(getSkillHashCode(CommonSkill.IMPRIT_OF_DARKNESS.getId(), 1)));
-		result.add(_skillsByHash.get(getSkillHashCode(247, 1))); // Build Headquarters
+		result.add(findSkill(CommonSkill.IMPRIT_OF_LIGHT.getId(), 1, 0));
+		result.add(findSkill(CommonSkill.IMPRIT_OF_DARKNESS.getId(), 1, 0));
+		result.add(findSkill(247, 1, 0)); // Build Headquarters
 		if (addNoble)
 		{
-			result.add(_skillsByHash.get(getSkillHashCode(326, 1))); // Build Advanced Headquarters
+			result.add(findSkill(326, 1, 0)); // Build Advanced Headquarters
 		}
 		
 		if (hasCastle)
 		{
-			result.add(_skillsByHash.get(getSkillHashCode(844, 1))); // Outpost Construction
-			result.add(_skillsByHash.get(getSkillHashCode(845, 1))); // Outpost Demolition
+			result.add(findSkill(844, 1, 0)); // Outpost Construction
+			result.add(findSkill(845, 1, 0)); // Outpost Demolition
 		}
 		
 		return result;
@@ -32,7 +32,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,7 +41,6 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 import org.l2jmobius.Config;
-import org.l2jmobius.commons.threads.ThreadPool;
 import org.l2jmobius.commons.util.IXmlReader;
 import org.l2jmobius.gameserver.data.SpawnTable;
 import org.l2jmobius.gameserver.model.Location;
@@ -418,7 +416,7 @@ public class SpawnData implements IXmlReader
 	/**
 	 * Initializes all spawn templates by spawning the NPCs defined in each template.
 	 * <p>
-	 * If configured, this method uses a thread pool to load spawns in parallel. Otherwise, it loads spawns sequentially. The process initializes the spawns by calling {@link SpawnTemplate#spawnAll} and notifies activation for each template if they are configured to spawn by default.
+	 * If configured, the spawns of all templates are prepared in parallel and then added to the world in order, see {@link NpcSpawnTemplate#spawnAll}. Otherwise, they are spawned sequentially. Activation is notified for each template configured to spawn by default once all NPCs are spawned.
 	 * </p>
 	 */
 	public void init()
@@ -429,44 +427,40 @@ public class SpawnData implements IXmlReader
 		}
 		
 		LOGGER.info(getClass().getSimpleName() + ": Initializing spawns...");
-		if (Config.THREADS_FOR_LOADING)
+		final long start = System.currentTimeMillis();
+		final List<SpawnTemplate> templates = new ArrayList<>();
+		final List<NpcSpawnTemplate> spawns = new ArrayList<>();
+		for (SpawnTemplate template : _spawnTemplates)
 		{
-			final Collection<ScheduledFuture<?>> jobs = ConcurrentHashMap.newKeySet();
-			for (SpawnTemplate template : _spawnTemplates)
+			if (template.isSpawningByDefault())
 			{
-				if (template.isSpawningByDefault())
-				{
-					jobs.add(ThreadPool.schedule(() ->
-					{
-						template.spawnAll(null);
-						template.notifyActivate();
-					}, 0));
-				}
-			}
-			while (!jobs.isEmpty())
-			{
-				for (ScheduledFuture<?> job : jobs)
-				{
-					if ((job == null) || job.isDone() || job.isCancelled())
-					{
-						jobs.remove(job);
-					}
-				}
+				templates.add(template);
+				spawns.addAll(template.getSpawns(SpawnGroup::isSpawningByDefault));
 			}
 		}
+		
+		if (Config.THREADS_FOR_LOADING)
+		{
+			NpcSpawnTemplate.spawnAll(spawns, null);
+		}
 		else
 		{
-			for (SpawnTemplate template : _spawnTemplates)
+			for (NpcSpawnTemplate spawn : spawns)
 			{
-				if (template.isSpawningByDefault())
-				{
-					template.spawnAll(null);
-					template.notifyActivate();
-				}
+				spawn.spawn(null);
 			}
 		}
 		
-		LOGGER.info(getClass().getSimpleName() + ": All spawns has been initialized!");
+		templates.forEach(SpawnTemplate::notifyActivate);
+		
+		int count = 0;
+		for (NpcSpawnTemplate spawn : spawns)
+		{
+			count += spawn.getSpawnedNpcs().size();
+		}
+		
+		final long time = Math.max(1, System.currentTimeMillis() - start);
+		LOGGER.info(getClass().getSimpleName() + ": Spawned " + count + " NPCs in " + time + " ms (" + ((count * 1000L) / time) + " per second).");
 	}
 	
 	/**
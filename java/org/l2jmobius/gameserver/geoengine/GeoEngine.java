@@ -377,6 +377,45 @@ public class GeoEngine
 		return getNearestZ(getGeoX(x), getGeoY(y), z);
 	}
 	
+	/**
+	 * Resolves the heights of all geodata cells crossed by a movement segment in a single pass.<br>
+	 * Each cell height is resolved from the height of the previous cell, so the segment follows the layer it starts on.
+	 * @param x the start x coordinate
+	 * @param y the start y coordinate
+	 * @param z the start z coordinate
+	 * @param tx the destination x coordinate
+	 * @param ty the destination y coordinate
+	 * @param heights the array receiving the height of each crossed cell, starting with the cell of the start point
+	 * @return the number of heights written, limited by the length of the given array
+	 */
+	public int getHeights(int x, int y, int z, int tx, int ty, int[] heights)
+	{
+		final GridLineIterator2D iterator = new GridLineIterator2D(getGeoX(x), getGeoY(y), getGeoX(tx), getGeoY(ty));
+		
+		IRegion region = null;
+		int regionIndex = -1;
+		int height = z;
+		int count = 0;
+		while ((count < heights.length) && iterator.next())
+		{
+			final int geoX = iterator.x();
+			final int geoY = iterator.y();
+			
+			// Consecutive cells mostly share a region, avoid looking it up again.
+			final int currentRegionIndex = ((geoX / IRegion.REGION_CELLS_X) * GEO_REGIONS_Y) + (geoY / IRegion.REGION_CELLS_Y);
+			if (currentRegionIndex != regionIndex)
+			{
+				regionIndex = currentRegionIndex;
+				region = REGIONS.get(currentRegionIndex);
+			}
+			
+			height = region.getNearestZ(geoX, geoY, height);
+			heights[count++] = height;
+		}
+		
+		return count;
+	}
+	
 	/**
 	 * Gets the spawn height.
 	 * @param x the x coordinate
@@ -26,11 +26,17 @@ import org.l2jmobius.gameserver.geoengine.geodata.Cell;
 import org.l2jmobius.gameserver.geoengine.geodata.IBlock;
 
 /**
+ * A block where each cell holds one or more vertical layers.<br>
+ * Layers are indexed on load: {@link #_cellOffsets} points at the first layer of each cell inside {@link #_layers},<br>
+ * where the layers of every cell are stored sorted by ascending height, so height queries never walk the raw block data.
  * @author HorridoJoho, Mobius
  */
 public class MultilayerBlock implements IBlock
 {
-	private final byte[] _data;
+	/** Index of the first layer of each cell in {@link #_layers}, the extra last entry marks the end of the final cell. */
+	private final short[] _cellOffsets = new short[IBlock.BLOCK_CELLS + 1];
+	/** Packed layer data (height and NSWE) of all cells, sorted by ascending height within each cell. */
+	private final short[] _layers;
 	
 	/**
 	 * Initializes a new instance of this block reading the specified buffer.
@@ -40,6 +46,7 @@ public class MultilayerBlock implements IBlock
 	{
 		final int start = bb.position();
 		
+		int totalLayers = 0;
 		for (int blockCellOffset = 0; blockCellOffset < IBlock.BLOCK_CELLS; blockCellOffset++)
 		{
 			final byte nLayers = bb.get();
@@ -48,63 +55,110 @@ public class MultilayerBlock implements IBlock
 				throw new RuntimeException("L2JGeoDriver: Geo file corrupted! Invalid layers count!");
 			}
 			
+			_cellOffsets[blockCellOffset] = (short) totalLayers;
+			totalLayers += nLayers;
 			bb.position(bb.position() + (nLayers * 2));
 		}
 		
-		_data = new byte[bb.position() - start];
+		_cellOffsets[IBlock.BLOCK_CELLS] = (short) totalLayers;
+		_layers = new short[totalLayers];
+		
 		bb.position(start);
-		bb.get(_data);
+		for (int blockCellOffset = 0; blockCellOffset < IBlock.BLOCK_CELLS; blockCellOffset++)
+		{
+			final int layerStart = _cellOffsets[blockCellOffset];
+			final int layerEnd = layerStart + bb.get();
+			for (int index = layerStart; index < layerEnd; index++)
+			{
+				// Insertion sort, cells rarely have more than a few layers.
+				final short layerData = (short) ((bb.get() & 0xff) | (bb.get() << 8));
+				final int layerZ = extractLayerHeight(layerData);
+				int position = index;
+				while ((position > layerStart) && (extractLayerHeight(_layers[position - 1]) > layerZ))
+				{
+					_layers[position] = _layers[position - 1];
+					position--;
+				}
+				
+				_layers[position] = layerData;
+			}
+		}
 	}
 	
-	private short getNearestLayer(int geoX, int geoY, int worldZ)
+	private int getCellIndex(int geoX, int geoY)
 	{
-		final int startOffset = getCellDataOffset(geoX, geoY);
-		final byte nLayers = _data[startOffset];
-		final int endOffset = startOffset + 1 + (nLayers * 2);
-		
-		// One layer at least was required on loading so this is set at least once on the loop below.
-		int nearestDZ = 0;
-		short nearestData = 0;
-		for (int offset = startOffset + 1; offset < endOffset; offset += 2)
+		return ((geoX % IBlock.BLOCK_CELLS_X) * IBlock.BLOCK_CELLS_Y) + (geoY % IBlock.BLOCK_CELLS_Y);
+	}
+	
+	/**
+	 * @param start the first layer index of the cell
+	 * @param end the index after the last layer of the cell
+	 * @param worldZ the world Z coordinate
+	 * @return the index of the lowest layer of the cell with a height greater than or equal to worldZ, or {@code end} if there is none
+	 */
+	private int getCeilingIndex(int start, int end, int worldZ)
+	{
+		int low = start;
+		int high = end;
+		while (low < high)
 		{
-			final short layerData = extractLayerData(offset);
-			final int layerZ = extractLayerHeight(layerData);
-			if (layerZ == worldZ)
+			final int middle = (low + high) >>> 1;
+			if (extractLayerHeight(_layers[middle]) < worldZ)
 			{
-				// Exact z.
-				return layerData;
+				low = middle + 1;
 			}
-			
-			final int layerDZ = Math.abs(layerZ - worldZ);
-			if ((offset == (startOffset + 1)) || (layerDZ < nearestDZ))
+			else
 			{
-				nearestDZ = layerDZ;
-				nearestData = layerData;
+				high = middle;
 			}
 		}
 		
-		return nearestData;
+		return low;
 	}
 	
-	private int getCellDataOffset(int geoX, int geoY)
+	/**
+	 * On equal distance the upper layer is preferred, matching the top-down layer order of the geodata files.
+	 * @param geoX the geodata X coordinate
+	 * @param geoY the geodata Y coordinate
+	 * @param worldZ the world Z coordinate
+	 * @return the index in {@link #_layers} of the layer nearest to worldZ
+	 */
+	private int getNearestLayerIndex(int geoX, int geoY, int worldZ)
 	{
-		final int cellLocalOffset = ((geoX % IBlock.BLOCK_CELLS_X) * IBlock.BLOCK_CELLS_Y) + (geoY % IBlock.BLOCK_CELLS_Y);
-		int cellDataOffset = 0;
+		final int cellIndex = getCellIndex(geoX, geoY);
+		final int start = _cellOffsets[cellIndex];
+		final int end = _cellOffsets[cellIndex + 1];
 		
-		// Move index to cell, we need to parse on each request, OR we parse on creation and save indexes.
-		for (int i = 0; i < cellLocalOffset; i++)
+		// Fastpath for the common single and double layer cells.
+		switch (end - start)
 		{
-			cellDataOffset += 1 + (_data[cellDataOffset] * 2);
+			case 1:
+			{
+				return start;
+			}
+			case 2:
+			{
+				return Math.abs(extractLayerHeight(_layers[start + 1]) - worldZ) <= Math.abs(extractLayerHeight(_layers[start]) - worldZ) ? start + 1 : start;
+			}
 		}
 		
-		// Now the index points to the cell we need.
+		final int ceiling = getCeilingIndex(start, end, worldZ);
+		if (ceiling == start)
+		{
+			return start;
+		}
+		
+		if (ceiling == end)
+		{
+			return end - 1;
+		}
 		
-		return cellDataOffset;
+		return (extractLayerHeight(_layers[ceiling]) - worldZ) <= (worldZ - extractLayerHeight(_layers[ceiling - 1])) ? ceiling : ceiling - 1;
 	}
 	
-	private short extractLayerData(int dataOffset)
+	private short getNearestLayer(int geoX, int geoY, int worldZ)
 	{
-		return (short) ((_data[dataOffset] & 0xff) | (_data[dataOffset + 1] << 8));
+		return _layers[getNearestLayerIndex(geoX, geoY, worldZ)];
 	}
 	
 	private int getNearestNSWE(int geoX, int geoY, int worldZ)
@@ -121,110 +175,35 @@ public class MultilayerBlock implements IBlock
 	@Override
 	public void setNearestNswe(int geoX, int geoY, int worldZ, byte nswe)
 	{
-		final int startOffset = getCellDataOffset(geoX, geoY);
-		final byte nLayers = _data[startOffset];
-		final int endOffset = startOffset + 1 + (nLayers * 2);
-		
-		int nearestDZ = 0;
-		int nearestLayerZ = 0;
-		int nearestOffset = 0;
-		for (int offset = startOffset + 1; offset < endOffset; offset += 2)
-		{
-			final short layerData = extractLayerData(offset);
-			final int layerZ = extractLayerHeight(layerData);
-			if (layerZ == worldZ)
-			{
-				nearestLayerZ = layerZ;
-				nearestOffset = offset;
-				break;
-			}
-			
-			final int layerDZ = Math.abs(layerZ - worldZ);
-			if ((offset == (startOffset + 1)) || (layerDZ < nearestDZ))
-			{
-				nearestDZ = layerDZ;
-				nearestLayerZ = layerZ;
-				nearestOffset = offset;
-			}
-		}
-		
-		final short currentNswe = getNearestNswe(geoX, geoY, worldZ);
+		final int nearestIndex = getNearestLayerIndex(geoX, geoY, worldZ);
+		final short layerData = _layers[nearestIndex];
+		final short currentNswe = (short) extractLayerNswe(layerData);
 		if ((currentNswe & nswe) == 0)
 		{
-			final short encodedHeight = (short) (nearestLayerZ << 1); // Shift left by 1 bit.
+			final short encodedHeight = (short) (layerData & 0x0fff0); // Height bits are kept as they are.
 			final short newNswe = (short) (currentNswe | nswe); // Combine NSWE.
-			final short newCombinedData = (short) (encodedHeight | newNswe); // Combine height and NSWE.
-			_data[nearestOffset] = (byte) (newCombinedData & 0xff); // Update the first byte at offset.
-			_data[nearestOffset + 1] = (byte) ((newCombinedData >> 8) & 0xff); // Update the second byte at offset + 1.
+			_layers[nearestIndex] = (short) (encodedHeight | newNswe); // Combine height and NSWE.
 		}
 	}
 	
 	@Override
 	public void unsetNearestNswe(int geoX, int geoY, int worldZ, byte nswe)
 	{
-		final int startOffset = getCellDataOffset(geoX, geoY);
-		final byte nLayers = _data[startOffset];
-		final int endOffset = startOffset + 1 + (nLayers * 2);
-		
-		int nearestDZ = 0;
-		int nearestLayerZ = 0;
-		int nearestOffset = 0;
-		for (int offset = startOffset + 1; offset < endOffset; offset += 2)
-		{
-			final short layerData = extractLayerData(offset);
-			final int layerZ = extractLayerHeight(layerData);
-			if (layerZ == worldZ)
-			{
-				nearestLayerZ = layerZ;
-				nearestOffset = offset;
-				break;
-			}
-			
-			final int layerDZ = Math.abs(layerZ - worldZ);
-			if ((offset == (startOffset + 1)) || (layerDZ < nearestDZ))
-			{
-				nearestDZ = layerDZ;
-				nearestLayerZ = layerZ;
-				nearestOffset = offset;
-			}
-		}
-		
-		final short currentNswe = getNearestNswe(geoX, geoY, worldZ);
+		final int nearestIndex = getNearestLayerIndex(geoX, geoY, worldZ);
+		final short layerData = _layers[nearestIndex];
+		final short currentNswe = (short) extractLayerNswe(layerData);
 		if ((currentNswe & nswe) != 0)
 		{
-			final short encodedHeight = (short) (nearestLayerZ << 1); // Shift left by 1 bit.
+			final short encodedHeight = (short) (layerData & 0x0fff0); // Height bits are kept as they are.
 			final short newNswe = (short) (currentNswe & ~nswe); // Subtract NSWE.
-			final short newCombinedData = (short) (encodedHeight | newNswe); // Combine height and NSWE.
-			_data[nearestOffset] = (byte) (newCombinedData & 0xff); // Update the first byte at offset.
-			_data[nearestOffset + 1] = (byte) ((newCombinedData >> 8) & 0xff); // Update the second byte at offset + 1.
+			_layers[nearestIndex] = (short) (encodedHeight | newNswe); // Combine height and NSWE.
 		}
 	}
 	
 	@Override
 	public short getNearestNswe(int geoX, int geoY, int worldZ)
 	{
-		short nswe = 0;
-		if (checkNearestNswe(geoX, geoY, worldZ, Cell.NSWE_NORTH))
-		{
-			nswe = (short) (nswe | Cell.NSWE_NORTH);
-		}
-		
-		if (checkNearestNswe(geoX, geoY, worldZ, Cell.NSWE_EAST))
-		{
-			nswe = (short) (nswe | Cell.NSWE_EAST);
-		}
-		
-		if (checkNearestNswe(geoX, geoY, worldZ, Cell.NSWE_SOUTH))
-		{
-			nswe = (short) (nswe | Cell.NSWE_SOUTH);
-		}
-		
-		if (checkNearestNswe(geoX, geoY, worldZ, Cell.NSWE_WEST))
-		{
-			nswe = (short) (nswe | Cell.NSWE_WEST);
-		}
-		
-		return nswe;
+		return (short) (getNearestNSWE(geoX, geoY, worldZ) & Cell.NSWE_ALL);
 	}
 	
 	private int extractLayerNswe(short layer)
@@ -256,61 +235,51 @@ public class MultilayerBlock implements IBlock
 	@Override
 	public int getNextLowerZ(int geoX, int geoY, int worldZ)
 	{
-		final int startOffset = getCellDataOffset(geoX, geoY);
-		final byte nLayers = _data[startOffset];
-		final int endOffset = startOffset + 1 + (nLayers * 2);
+		final int cellIndex = getCellIndex(geoX, geoY);
+		final int start = _cellOffsets[cellIndex];
+		final int end = _cellOffsets[cellIndex + 1];
 		
-		int lowerZ = Integer.MIN_VALUE;
-		for (int offset = startOffset + 1; offset < endOffset; offset += 2)
+		// The layer right above the ceiling is either an exact match or the highest layer below worldZ.
+		final int ceiling = getCeilingIndex(start, end, worldZ);
+		if ((ceiling < end) && (extractLayerHeight(_layers[ceiling]) == worldZ))
 		{
-			final short layerData = extractLayerData(offset);
-			
-			final int layerZ = extractLayerHeight(layerData);
-			if (layerZ == worldZ)
-			{
-				// Exact z.
-				return layerZ;
-			}
-			
-			if ((layerZ < worldZ) && (layerZ > lowerZ))
-			{
-				lowerZ = layerZ;
-			}
+			// Exact z.
+			return worldZ;
 		}
 		
-		return lowerZ == Integer.MIN_VALUE ? worldZ : lowerZ;
+		return ceiling == start ? worldZ : extractLayerHeight(_layers[ceiling - 1]);
 	}
 	
 	@Override
 	public int getNextHigherZ(int geoX, int geoY, int worldZ)
 	{
-		final int startOffset = getCellDataOffset(geoX, geoY);
-		final byte nLayers = _data[startOffset];
-		final int endOffset = startOffset + 1 + (nLayers * 2);
-		
-		int higherZ = Integer.MAX_VALUE;
-		for (int offset = startOffset + 1; offset < endOffset; offset += 2)
+		final int cellIndex = getCellIndex(geoX, geoY);
+		final int end = _cellOffsets[cellIndex + 1];
+		final int ceiling = getCeilingIndex(_cellOffsets[cellIndex], end, worldZ);
+		return ceiling == end ? worldZ : extractLayerHeight(_layers[ceiling]);
+	}
+	
+	/**
+	 * Encodes this block back into the geodata file format, writing the layers of each cell top-down.
+	 * @return the raw block data
+	 */
+	public byte[] getData()
+	{
+		final byte[] data = new byte[IBlock.BLOCK_CELLS + (_layers.length * 2)];
+		int offset = 0;
+		for (int cellIndex = 0; cellIndex < IBlock.BLOCK_CELLS; cellIndex++)
 		{
-			final short layerData = extractLayerData(offset);
-			
-			final int layerZ = extractLayerHeight(layerData);
-			if (layerZ == worldZ)
-			{
-				// Exact z.
-				return layerZ;
-			}
-			
-			if ((layerZ > worldZ) && (layerZ < higherZ))
+			final int start = _cellOffsets[cellIndex];
+			final int end = _cellOffsets[cellIndex + 1];
+			data[offset++] = (byte) (end - start);
+			for (int index = end - 1; index >= start; index--)
 			{
-				higherZ = layerZ;
+				final short layerData = _layers[index];
+				data[offset++] = (byte) (layerData & 0xff);
+				data[offset++] = (byte) ((layerData >> 8) & 0xff);
 			}
 		}
 		
-		return higherZ == Integer.MAX_VALUE ? worldZ : higherZ;
-	}
-	
-	public byte[] getData()
-	{
-		return _data;
+		return data;
 	}
 }
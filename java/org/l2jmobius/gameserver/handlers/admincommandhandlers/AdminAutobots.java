@@ -23,6 +23,8 @@ package org.l2jmobius.gameserver.handlers.admincommandhandlers;
 
 import java.util.StringTokenizer;
 
+import org.l2jmobius.commons.util.Rnd;
+import org.l2jmobius.gameserver.geoengine.GeoEngine;
 import org.l2jmobius.gameserver.handler.IAdminCommandHandler;
 import org.l2jmobius.gameserver.managers.AutobotManager;
 import org.l2jmobius.gameserver.model.Location;
@@ -46,6 +48,7 @@ public class AdminAutobots implements IAdminCommandHandler
 		"admin_autobot_reload",
 		"admin_autobot_stats",
 		"admin_autobot_ai_toggle",
+		"admin_autobot_load",
 		"admin_spawn_fake",
 		"admin_despawn_fake",
 		"admin_fake_info",
@@ -209,6 +212,43 @@ public class AdminAutobots implements IAdminCommandHandler
 				}
 				break;
 			}
+			case "admin_autobot_load":
+			{
+				// Spawns a crowd of bots around the GM to measure the AI tick, bots only exist in memory until they are despawned.
+				final int count;
+				final int radius;
+				try
+				{
+					count = st.hasMoreTokens() ? Integer.parseInt(st.nextToken()) : 100;
+					radius = st.hasMoreTokens() ? Integer.parseInt(st.nextToken()) : 2000;
+				}
+				catch (NumberFormatException e)
+				{
+					activeChar.sendMessage("Usage: //autobot_load [count] [radius]");
+					return false;
+				}
+				
+				final PlayerClass[] classes =
+				{
+					PlayerClass.FIGHTER,
+					PlayerClass.MAGE
+				};
+				final long startTime = System.currentTimeMillis();
+				int spawned = 0;
+				for (int i = 0; i < count; i++)
+				{
+					final int x = activeChar.getX() + Rnd.get(-radius, radius);
+					final int y = activeChar.getY() + Rnd.get(-radius, radius);
+					final Location location = new Location(x, y, GeoEngine.getInstance().getHeight(x, y, activeChar.getZ()));
+					if (AutobotManager.getInstance().createAutobot("LoadBot" + startTime % 100000 + "_" + i, classes[i % classes.length], Rnd.get(1, 40), location, activeChar, false))
+					{
+						spawned++;
+					}
+				}
+				
+				activeChar.sendMessage("Spawned " + spawned + " load test autobots in " + (System.currentTimeMillis() - startTime) + " ms, use //perf to watch the AI shards.");
+				break;
+			}
 			// Fake player spawn commands
 			case "admin_spawn_fake":
 			{
@@ -142,6 +142,14 @@ public class AutobotManager
 	 * Create and spawn a new autobot
 	 */
 	public boolean createAutobot(String name, PlayerClass playerClass, int level, Location location, Player creator)
+	{
+		return createAutobot(name, playerClass, level, location, creator, true);
+	}
+	
+	/**
+	 * Create and spawn a new autobot, a non persistent autobot (used by load tests) is kept out of the database and is not logged
+	 */
+	public boolean createAutobot(String name, PlayerClass playerClass, int level, Location location, Player creator, boolean persist)
 	{
 		if (_autobots.containsKey(name))
 		{
@@ -151,7 +159,7 @@ public class AutobotManager
 		try
 		{
 			// Create the autobot using the new factory method
-			final Autobot autobot = Autobot.createAutobot(name, playerClass, level, location);
+			final Autobot autobot = Autobot.createAutobot(name, playerClass, level, location, persist);
 			if (autobot == null)
 			{
 				LOGGER.warning("Failed to create autobot: " + name);
@@ -164,11 +172,14 @@ public class AutobotManager
 			// Spawn the autobot in the world to make it visible
 			autobot.spawnInWorld();
 			
-			FAKE_PLAYER_LOGGER.info("Created and spawned autobot: " + name + " with class " + playerClass + " at level " + level + " at location " + location);
-			LOGGER.info("Created and spawned autobot: " + name + " with class " + playerClass + " at level " + level);
-			
-			// Save to database
-			saveAutobotToDatabase(name, "AutobotAccount", playerClass.getId(), level, location);
+			if (persist)
+			{
+				FAKE_PLAYER_LOGGER.info("Created and spawned autobot: " + name + " with class " + playerClass + " at level " + level + " at location " + location);
+				LOGGER.info("Created and spawned autobot: " + name + " with class " + playerClass + " at level " + level);
+				
+				// Save to database
+				saveAutobotToDatabase(name, "AutobotAccount", playerClass.getId(), level, location);
+			}
 			
 			_autobotCount.incrementAndGet();
 			return true;
@@ -202,14 +213,17 @@ public class AutobotManager
 		final Autobot autobot = _autobots.remove(name);
 		if (autobot != null)
 		{
-			// Despawn from world
+			// Despawn from world, non persistent autobots also remove what was stored for their character
 			autobot.despawnFromWorld();
 			
-			// Remove from database
-			deleteAutobotFromDatabase(name);
-			
 			_autobotCount.decrementAndGet();
-			FAKE_PLAYER_LOGGER.info("Despawned autobot: " + name);
+			if (autobot.isPersistent())
+			{
+				// Remove from database
+				deleteAutobotFromDatabase(name);
+				
+				FAKE_PLAYER_LOGGER.info("Despawned autobot: " + name);
+			}
 			return true;
 		}
 		return false;
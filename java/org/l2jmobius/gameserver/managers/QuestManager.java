@@ -217,18 +217,8 @@ public class QuestManager
 	 */
 	public boolean removeScript(Quest script)
 	{
-		if (_quests.containsKey(script.getName()))
-		{
-			_quests.remove(script.getName());
-			return true;
-		}
-		else if (_scripts.containsKey(script.getName()))
-		{
-			_scripts.remove(script.getName());
-			return true;
-		}
-		
-		return false;
+		// Only the given instance is removed, a newer version registered under the same name stays.
+		return _quests.remove(script.getName(), script) || _scripts.remove(script.getName(), script);
 	}
 	
 	public Map<String, Quest> getQuests()
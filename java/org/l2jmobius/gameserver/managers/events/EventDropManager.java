@@ -62,9 +62,9 @@ public class EventDropManager
 			return;
 		}
 		
-		// Event items drop only within a default 9 level difference.
+		// Event items drop only within a default 9 level difference, and not for players that only exist in memory.
 		final Player player = attacker.asPlayer();
-		if ((player.getLevel() - attackable.getLevel()) > Config.EVENT_ITEM_MAX_LEVEL_DIFFERENCE)
+		if (!player.isStoredInDb() || ((player.getLevel() - attackable.getLevel()) > Config.EVENT_ITEM_MAX_LEVEL_DIFFERENCE))
 		{
 			return;
 		}
@@ -20,17 +20,18 @@
  */
 package org.l2jmobius.gameserver.model;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,14 +73,29 @@ import org.l2jmobius.gameserver.network.serverpackets.ShortBuffStatusUpdate;
 public class EffectList
 {
 	private static final Logger LOGGER = Logger.getLogger(EffectList.class.getName());
-	/** Queue containing all effects from buffs for this effect list. */
-	private final Queue<BuffInfo> _actives = new ConcurrentLinkedQueue<>();
+	private static final BuffInfo[] EMPTY_INFOS = new BuffInfo[0];
+	/** Copy-on-write list containing all effects from buffs for this effect list, readers iterate it without locking or copying. */
+	private final List<BuffInfo> _actives = new CopyOnWriteArrayList<>();
 	/** List containing all passives for this effect list. They bypass most of the actions and they are not included in most operations. */
 	private final Set<BuffInfo> _passives = ConcurrentHashMap.newKeySet();
 	/** List containing all options for this effect list. They bypass most of the actions and they are not included in most operations. */
 	private final Set<BuffInfo> _options = ConcurrentHashMap.newKeySet();
-	/** Map containing the all stacked effect in progress for each {@code AbnormalType}. */
-	private Set<AbnormalType> _stackedEffects = EnumSet.noneOf(AbnormalType.class);
+	/** Active effects by skill ID, in the order they were added. */
+	private final Map<Integer, BuffInfo[]> _activesBySkillId = new ConcurrentHashMap<>();
+	/** Active effects by {@code AbnormalType}, in the order they were added. */
+	private final Map<AbnormalType, BuffInfo[]> _activesByAbnormalType = new ConcurrentHashMap<>();
+	/** Active effects by {@code SkillBuffType}, in the order they were added. */
+	private final Map<SkillBuffType, BuffInfo[]> _activesByBuffType = new ConcurrentHashMap<>();
+	/** Passive effects by skill ID. */
+	private final Map<Integer, BuffInfo> _passivesBySkillId = new ConcurrentHashMap<>();
+	/** Number of displayed active and passive effects holding each effect flag bit. */
+	private final int[] _effectFlagCounts = new int[Long.SIZE];
+	/** Number of displayed active effects showing each {@code AbnormalVisualEffect}. */
+	private final Map<AbnormalVisualEffect, Integer> _abnormalVisualEffectCounts = new HashMap<>();
+	/** Effect flags of the indexed effects, published to {@link #_effectFlags} on update. */
+	private long _indexedEffectFlags;
+	/** Guards the index writes. */
+	private final Object _indexLock = new Object();
 	/** Set containing all {@code AbnormalType}s that shouldn't be added to this creature effect list. */
 	private final Set<AbnormalType> _blockedAbnormalTypes = EnumSet.noneOf(AbnormalType.class);
 	/** Set containing all abnormal visual effects this creature currently displays. */
@@ -148,16 +164,7 @@ public class EffectList
 	 */
 	public List<BuffInfo> getBuffs()
 	{
-		final List<BuffInfo> result = new LinkedList<>();
-		for (BuffInfo info : _actives)
-		{
-			if (info.getSkill().getBuffType().isBuff())
-			{
-				result.add(info);
-			}
-		}
-		
-		return result;
+		return getIndexed(_activesByBuffType, SkillBuffType.BUFF);
 	}
 	
 	/**
@@ -166,16 +173,7 @@ public class EffectList
 	 */
 	public List<BuffInfo> getDances()
 	{
-		final List<BuffInfo> result = new LinkedList<>();
-		for (BuffInfo info : _actives)
-		{
-			if (info.getSkill().getBuffType().isDance())
-			{
-				result.add(info);
-			}
-		}
-		
-		return result;
+		return getIndexed(_activesByBuffType, SkillBuffType.DANCE);
 	}
 	
 	/**
@@ -184,16 +182,7 @@ public class EffectList
 	 */
 	public List<BuffInfo> getDebuffs()
 	{
-		final List<BuffInfo> result = new LinkedList<>();
-		for (BuffInfo info : _actives)
-		{
-			if (info.getSkill().getBuffType().isDebuff())
-			{
-				result.add(info);
-			}
-		}
-		
-		return result;
+		return getIndexed(_activesByBuffType, SkillBuffType.DEBUFF);
 	}
 	
 	/**
@@ -203,23 +192,7 @@ public class EffectList
 	 */
 	public boolean isAffectedBySkill(int skillId)
 	{
-		for (BuffInfo info : _actives)
-		{
-			if (info.getSkill().getId() == skillId)
-			{
-				return true;
-			}
-		}
-		
-		for (BuffInfo info : _passives)
-		{
-			if (info.getSkill().getId() == skillId)
-			{
-				return true;
-			}
-		}
-		
-		return false;
+		return _activesBySkillId.containsKey(skillId) || _passivesBySkillId.containsKey(skillId);
 	}
 	
 	/**
@@ -229,23 +202,13 @@ public class EffectList
 	 */
 	public BuffInfo getBuffInfoBySkillId(int skillId)
 	{
-		for (BuffInfo info : _actives)
+		final BuffInfo[] infos = _activesBySkillId.get(skillId);
+		if (infos != null)
 		{
-			if (info.getSkill().getId() == skillId)
-			{
-				return info;
-			}
+			return infos[0];
 		}
 		
-		for (BuffInfo info : _passives)
-		{
-			if (info.getSkill().getId() == skillId)
-			{
-				return info;
-			}
-		}
-		
-		return null;
+		return _passivesBySkillId.get(skillId);
 	}
 	
 	/**
@@ -255,7 +218,19 @@ public class EffectList
 	 */
 	public boolean hasAbnormalType(AbnormalType type)
 	{
-		return _stackedEffects.contains(type);
+		final BuffInfo[] infos = _activesByAbnormalType.get(type);
+		if (infos != null)
+		{
+			for (BuffInfo info : infos)
+			{
+				if (info.isDisplayedForEffected())
+				{
+					return true;
+				}
+			}
+		}
+		
+		return false;
 	}
 	
 	/**
@@ -265,9 +240,14 @@ public class EffectList
 	 */
 	public boolean hasAbnormalType(Collection<AbnormalType> types)
 	{
-		for (AbnormalType abnormalType : _stackedEffects)
+		if (_activesByAbnormalType.isEmpty())
+		{
+			return false;
+		}
+		
+		for (AbnormalType abnormalType : types)
 		{
-			if (types.contains(abnormalType))
+			if (hasAbnormalType(abnormalType))
 			{
 				return true;
 			}
@@ -285,9 +265,9 @@ public class EffectList
 	{
 		if (hasAbnormalType(type))
 		{
-			for (BuffInfo info : _actives)
+			for (BuffInfo info : _activesByAbnormalType.getOrDefault(type, EMPTY_INFOS))
 			{
-				if (info.isAbnormalType(type) && filter.test(info))
+				if (filter.test(info))
 				{
 					return true;
 				}
@@ -307,12 +287,10 @@ public class EffectList
 	{
 		if (hasAbnormalType(type))
 		{
-			for (BuffInfo info : _actives)
+			final BuffInfo[] infos = _activesByAbnormalType.get(type);
+			if (infos != null)
 			{
-				if (info.isAbnormalType(type))
-				{
-					return info;
-				}
+				return infos[0];
 			}
 		}
 		
@@ -853,7 +831,11 @@ public class EffectList
 		if (!_actives.isEmpty())
 		{
 			// Removes the buff from the given effect list.
-			_actives.remove(info);
+			final boolean removed = _actives.remove(info);
+			if (removed)
+			{
+				unindexActive(info);
+			}
 			
 			// Remove short buff.
 			if (info == _shortBuff)
@@ -865,7 +847,10 @@ public class EffectList
 			info.stopAllEffects(type);
 			
 			// Decrease specific buff count
-			increaseDecreaseCount(info, false);
+			if (removed)
+			{
+				increaseDecreaseCount(info, false);
+			}
 			info.getSkill().applyEffectScope(EffectScope.END, info, true, false);
 		}
 	}
@@ -874,7 +859,10 @@ public class EffectList
 	{
 		if (!_passives.isEmpty())
 		{
-			_passives.remove(info);
+			if (_passives.remove(info))
+			{
+				unindexPassive(info);
+			}
 			info.stopAllEffects(type);
 		}
 	}
@@ -979,7 +967,9 @@ public class EffectList
 		// Manage effect stacking.
 		if (hasAbnormalType(skill.getAbnormalType()))
 		{
-			for (BuffInfo existingInfo : _actives)
+			// Only effects of the same skill ID (no abnormal) or of the same abnormal type can be affected.
+			final BuffInfo[] candidates = skill.getAbnormalType().isNone() ? _activesBySkillId.get(skill.getId()) : _activesByAbnormalType.get(skill.getAbnormalType());
+			for (BuffInfo existingInfo : candidates != null ? candidates : EMPTY_INFOS)
 			{
 				final Skill existingSkill = existingInfo.getSkill();
 				
@@ -1056,6 +1046,7 @@ public class EffectList
 		// After removing old buff (same ID) or stacked buff (same abnormal type),
 		// Add the buff to the end of the effect list.
 		_actives.add(info);
+		indexActive(info);
 		
 		// Initialize effects.
 		info.initializeEffects();
@@ -1071,17 +1062,19 @@ public class EffectList
 			LOGGER.warning("Passive " + skill + " with abnormal type: " + skill.getAbnormalType() + "!");
 		}
 		
-		// Remove previous passives of this id.
-		for (BuffInfo b : _passives)
+		// Remove previous passive of this id.
+		final BuffInfo previous = _passivesBySkillId.get(skill.getId());
+		if (previous != null)
 		{
-			if ((b != null) && (b.getSkill().getId() == skill.getId()))
+			previous.setInUse(false);
+			if (_passives.remove(previous))
 			{
-				b.setInUse(false);
-				_passives.remove(b);
+				unindexPassive(previous);
 			}
 		}
 		
 		_passives.add(info);
+		indexPassive(info);
 		
 		// Initialize effects.
 		info.initializeEffects();
@@ -1261,22 +1254,17 @@ public class EffectList
 	 */
 	private void updateEffectList(boolean broadcast)
 	{
-		// Create new empty flags.
-		long flags = 0;
-		final Set<AbnormalType> abnormalTypeFlags = EnumSet.noneOf(AbnormalType.class);
-		final Set<AbnormalVisualEffect> abnormalVisualEffectFlags = EnumSet.noneOf(AbnormalVisualEffect.class);
-		final Set<BuffInfo> unhideBuffs = new HashSet<>();
-		
-		// Recalculate new flags
-		for (BuffInfo info : _actives)
+		// Unhide hidden buffs that are no longer overridden.
+		if (_hiddenBuffs.get() > 0)
 		{
-			if ((info != null) && info.isDisplayedForEffected())
+			final Set<AbnormalType> abnormalTypeFlags = EnumSet.noneOf(AbnormalType.class);
+			final Set<BuffInfo> unhideBuffs = new HashSet<>();
+			for (BuffInfo info : _actives)
 			{
-				final Skill skill = info.getSkill();
-				
-				// Handle hidden buffs. Check if there was such abnormal before so we can continue.
-				if ((_hiddenBuffs.get() > 0) && _stackedEffects.contains(skill.getAbnormalType()))
+				if ((info != null) && info.isDisplayedForEffected())
 				{
+					final Skill skill = info.getSkill();
+					
 					// If incoming buff is not hidden, remove any hidden buffs with its abnormal type.
 					if (info.isInUse())
 					{
@@ -1287,60 +1275,38 @@ public class EffectList
 					{
 						unhideBuffs.add(info);
 					}
-				}
-				
-				// Add the EffectType flag.
-				for (AbstractEffect e : info.getEffects())
-				{
-					flags |= e.getEffectFlags();
-				}
-				
-				// Add the AbnormalType flag.
-				abnormalTypeFlags.add(skill.getAbnormalType());
-				
-				// Add AbnormalVisualEffect flag.
-				if (skill.hasAbnormalVisualEffects())
-				{
-					for (AbnormalVisualEffect ave : skill.getAbnormalVisualEffects())
-					{
-						abnormalVisualEffectFlags.add(ave);
-						_abnormalVisualEffects.add(ave);
-					}
 					
-					if (broadcast)
-					{
-						_owner.updateAbnormalVisualEffects();
-					}
+					abnormalTypeFlags.add(skill.getAbnormalType());
 				}
 			}
+			
+			// Unhide the selected buffs.
+			unhideBuffs.forEach(b ->
+			{
+				b.setInUse(true);
+				_hiddenBuffs.decrementAndGet();
+			});
 		}
 		
-		// Add passive effect flags.
-		for (BuffInfo info : _passives)
+		// Flags and abnormal visual effects are maintained on add and remove, publish them.
+		final Set<AbnormalVisualEffect> abnormalVisualEffectFlags = EnumSet.noneOf(AbnormalVisualEffect.class);
+		synchronized (_indexLock)
 		{
-			if (info != null)
-			{
-				// Add the EffectType flag.
-				for (AbstractEffect e : info.getEffects())
-				{
-					flags |= e.getEffectFlags();
-				}
-			}
+			_effectFlags = _indexedEffectFlags;
+			abnormalVisualEffectFlags.addAll(_abnormalVisualEffectCounts.keySet());
 		}
 		
-		// Replace the old flags with the new flags.
-		_effectFlags = flags;
-		_stackedEffects = abnormalTypeFlags;
-		
-		// Unhide the selected buffs.
-		unhideBuffs.forEach(b ->
+		if (!abnormalVisualEffectFlags.isEmpty())
 		{
-			b.setInUse(true);
-			_hiddenBuffs.decrementAndGet();
-		});
+			_abnormalVisualEffects.addAll(abnormalVisualEffectFlags);
+			if (broadcast)
+			{
+				_owner.updateAbnormalVisualEffects();
+			}
+		}
 		
-		// Recalculate all stats
-		_owner.getStat().recalculateStats(broadcast);
+		// Recalculate the stats touched by the changed effects.
+		_owner.getStat().recalculateEffectStats(broadcast);
 		
 		if (broadcast)
 		{
@@ -1365,4 +1331,167 @@ public class EffectList
 	{
 		return (_effectFlags & flag.getMask()) != 0;
 	}
+	
+	/**
+	 * @param index the index
+	 * @param key the key
+	 * @return an unmodifiable list of the indexed effects, backed by the current index array
+	 */
+	private static <K> List<BuffInfo> getIndexed(Map<K, BuffInfo[]> index, K key)
+	{
+		final BuffInfo[] infos = index.get(key);
+		return infos == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(infos));
+	}
+	
+	/**
+	 * Appends a buff info to the index array of the key, replacing the array.<br>
+	 * Must be called while holding the index lock.
+	 * @param index the index
+	 * @param key the key
+	 * @param info the buff info
+	 */
+	private static <K> void addIndex(Map<K, BuffInfo[]> index, K key, BuffInfo info)
+	{
+		final BuffInfo[] infos = index.get(key);
+		if (infos == null)
+		{
+			index.put(key, new BuffInfo[]
+			{
+				info
+			});
+		}
+		else
+		{
+			final BuffInfo[] result = Arrays.copyOf(infos, infos.length + 1);
+			result[infos.length] = info;
+			index.put(key, result);
+		}
+	}
+	
+	/**
+	 * Removes a buff info from the index array of the key, replacing the array.<br>
+	 * Must be called while holding the index lock.
+	 * @param index the index
+	 * @param key the key
+	 * @param info the buff info
+	 */
+	private static <K> void removeIndex(Map<K, BuffInfo[]> index, K key, BuffInfo info)
+	{
+		final BuffInfo[] infos = index.get(key);
+		if (infos == null)
+		{
+			return;
+		}
+		
+		for (int i = 0; i < infos.length; i++)
+		{
+			if (infos[i] == info)
+			{
+				if (infos.length == 1)
+				{
+					index.remove(key);
+				}
+				else
+				{
+					final BuffInfo[] result = new BuffInfo[infos.length - 1];
+					System.arraycopy(infos, 0, result, 0, i);
+					System.arraycopy(infos, i + 1, result, i, infos.length - i - 1);
+					index.put(key, result);
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Adds or removes the effect flags of a buff info to the flag counts.<br>
+	 * Must be called while holding the index lock.
+	 * @param info the buff info
+	 * @param delta {@code 1} to add, {@code -1} to remove
+	 */
+	private void countEffectFlags(BuffInfo info, int delta)
+	{
+		for (AbstractEffect effect : info.getEffects())
+		{
+			long flags = effect.getEffectFlags();
+			while (flags != 0)
+			{
+				final int bit = Long.numberOfTrailingZeros(flags);
+				flags &= flags - 1;
+				
+				final int count = _effectFlagCounts[bit] + delta;
+				_effectFlagCounts[bit] = count;
+				if (count > 0)
+				{
+					_indexedEffectFlags |= 1L << bit;
+				}
+				else
+				{
+					_indexedEffectFlags &= ~(1L << bit);
+				}
+			}
+		}
+	}
+	
+	private void indexActive(BuffInfo info)
+	{
+		final Skill skill = info.getSkill();
+		synchronized (_indexLock)
+		{
+			addIndex(_activesBySkillId, skill.getId(), info);
+			addIndex(_activesByAbnormalType, skill.getAbnormalType(), info);
+			addIndex(_activesByBuffType, skill.getBuffType(), info);
+			if (info.isDisplayedForEffected())
+			{
+				countEffectFlags(info, 1);
+				if (skill.hasAbnormalVisualEffects())
+				{
+					for (AbnormalVisualEffect ave : skill.getAbnormalVisualEffects())
+					{
+						_abnormalVisualEffectCounts.merge(ave, 1, Integer::sum);
+					}
+				}
+			}
+		}
+	}
+	
+	private void unindexActive(BuffInfo info)
+	{
+		final Skill skill = info.getSkill();
+		synchronized (_indexLock)
+		{
+			removeIndex(_activesBySkillId, skill.getId(), info);
+			removeIndex(_activesByAbnormalType, skill.getAbnormalType(), info);
+			removeIndex(_activesByBuffType, skill.getBuffType(), info);
+			if (info.isDisplayedForEffected())
+			{
+				countEffectFlags(info, -1);
+				if (skill.hasAbnormalVisualEffects())
+				{
+					for (AbnormalVisualEffect ave : skill.getAbnormalVisualEffects())
+					{
+						_abnormalVisualEffectCounts.computeIfPresent(ave, (_, count) -> count > 1 ? count - 1 : null);
+					}
+				}
+			}
+		}
+	}
+	
+	private void indexPassive(BuffInfo info)
+	{
+		synchronized (_indexLock)
+		{
+			_passivesBySkillId.put(info.getSkill().getId(), info);
+			countEffectFlags(info, 1);
+		}
+	}
+	
+	private void unindexPassive(BuffInfo info)
+	{
+		synchronized (_indexLock)
+		{
+			_passivesBySkillId.remove(info.getSkill().getId(), info);
+			countEffectFlags(info, -1);
+		}
+	}
 }
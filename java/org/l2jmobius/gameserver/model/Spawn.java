@@ -28,6 +28,7 @@ import org.l2jmobius.commons.time.SchedulingPattern;
 import org.l2jmobius.commons.util.Rnd;
 import org.l2jmobius.gameserver.data.xml.NpcData;
 import org.l2jmobius.gameserver.geoengine.GeoEngine;
+import org.l2jmobius.gameserver.managers.IdManager;
 import org.l2jmobius.gameserver.managers.WalkingManager;
 import org.l2jmobius.gameserver.managers.ZoneManager;
 import org.l2jmobius.gameserver.model.actor.Npc;
@@ -76,6 +77,9 @@ public class Spawn extends Location
 	private final Deque<Npc> _spawnedNpcs = new ConcurrentLinkedDeque<>();
 	private boolean _randomWalk = false; // Is no random walk
 	private NpcSpawnTemplate _spawnTemplate;
+	/** The location and Npc of the next spawn, when prepared ahead of it */
+	private Location _preparedLocation;
+	private Npc _preparedNpc;
 	
 	/**
 	 * Constructor of Spawn.<br>
@@ -315,6 +319,52 @@ public class Spawn extends Location
 		return _doRespawn ? doSpawn(false) : null;
 	}
 	
+	/**
+	 * Picks the location of the next spawn from the spawn template ahead of {@link #doSpawn(boolean)}.
+	 * @return {@code true} if a location was found
+	 */
+	public boolean prepareLocation()
+	{
+		final Location loc = _spawnTemplate.getSpawnLocation();
+		if (loc == null)
+		{
+			return false;
+		}
+		
+		setLocation(loc);
+		_preparedLocation = loc;
+		return true;
+	}
+	
+	/**
+	 * Creates the Npc of the next spawn ahead of {@link #doSpawn(boolean)}.<br>
+	 * The Npc is neither added to the world nor to an instance, so several spawns can be prepared in parallel and spawned in order afterwards.
+	 * @throws ReflectiveOperationException if the Npc could not be created
+	 */
+	public void prepareNpc() throws ReflectiveOperationException
+	{
+		if (!_template.isType("Pet") && !_template.isType("Decoy") && !_template.isType("Trap"))
+		{
+			_preparedNpc = _constructor.newInstance(_template);
+		}
+	}
+	
+	/**
+	 * Drops the Npc and location prepared for a spawn that will not happen, releasing the object id of the Npc.<br>
+	 * The Npc was never added to the world, so nothing else refers to it.
+	 */
+	public void releasePreparedNpc()
+	{
+		final Npc npc = _preparedNpc;
+		if (npc != null)
+		{
+			_preparedNpc = null;
+			IdManager.getInstance().releaseId(npc.getObjectId());
+		}
+		
+		_preparedLocation = null;
+	}
+	
 	/**
 	 * Create the Npc, add it to the world and lauch its OnSpawn action.<br>
 	 * <br>
@@ -350,8 +400,9 @@ public class Spawn extends Location
 				return null;
 			}
 			
-			// Call the constructor of the Npc
-			final Npc npc = _constructor.newInstance(_template);
+			// Call the constructor of the Npc, unless it was created ahead of this spawn
+			final Npc npc = _preparedNpc != null ? _preparedNpc : _constructor.newInstance(_template);
+			_preparedNpc = null;
 			npc.setInstanceById(_instanceId); // Must be done before object is spawned into visible world
 			if (isSummonSpawn)
 			{
@@ -384,7 +435,8 @@ public class Spawn extends Location
 		// If Locx and Locy are not defined, the Npc must be spawned in an area defined by location or spawn territory.
 		if (_spawnTemplate != null)
 		{
-			final Location loc = _spawnTemplate.getSpawnLocation();
+			final Location loc = _preparedLocation != null ? _preparedLocation : _spawnTemplate.getSpawnLocation();
+			_preparedLocation = null;
 			newlocx = loc.getX();
 			newlocy = loc.getY();
 			newlocz = loc.getZ();
@@ -26,7 +26,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 import org.l2jmobius.Config;
 import org.l2jmobius.commons.threads.ThreadPool;
@@ -39,6 +42,16 @@ import org.l2jmobius.gameserver.taskmanagers.RandomAnimationTaskManager;
 
 public class WorldRegion
 {
+	private static final Logger LOGGER = Logger.getLogger(WorldRegion.class.getName());
+	
+	/** Npcs handled by each task when the AI of a dense region is switched. */
+	private static final int SWITCH_AI_CHUNK_SIZE = 64;
+	/** Region AI switches slower than this are logged. */
+	private static final long SWITCH_WARNING_TIME = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final AtomicLong SWITCH_COUNT = new AtomicLong();
+	private static final AtomicLong SWITCH_TIME = new AtomicLong();
+	private static final AtomicLong SWITCH_MAX_TIME = new AtomicLong();
+	
 	/** Set containing visible objects in this world region. */
 	private final Set<WorldObject> _visibleObjects = ConcurrentHashMap.newKeySet();
 	/** List containing doors in this world region. */
@@ -49,7 +62,7 @@ public class WorldRegion
 	private WorldRegion[] _surroundingRegions;
 	private final int _regionX;
 	private final int _regionY;
-	private boolean _active = Config.GRIDS_ALWAYS_ON;
+	private volatile boolean _active = Config.GRIDS_ALWAYS_ON;
 	private ScheduledFuture<?> _neighborsTask = null;
 	private final AtomicInteger _activeNeighbors = new AtomicInteger();
 	
@@ -66,13 +79,72 @@ public class WorldRegion
 			return;
 		}
 		
-		if (!isOn)
+		// Snapshot the npcs, other objects are not affected by the region AI.
+		final List<Npc> npcs = new ArrayList<>(_visibleObjects.size());
+		for (WorldObject wo : _visibleObjects)
+		{
+			if (wo.isNpc())
+			{
+				npcs.add(wo.asNpc());
+			}
+		}
+		
+		final int size = npcs.size();
+		if (size == 0)
+		{
+			return;
+		}
+		
+		// Small regions are switched by the calling thread.
+		final long startTime = System.nanoTime();
+		if (size <= SWITCH_AI_CHUNK_SIZE)
+		{
+			switchAI(npcs, 0, size, isOn);
+			onSwitchComplete(startTime, size);
+			return;
+		}
+		
+		// Dense regions are split in chunks processed on the instant pool.
+		// The calling thread handles the first chunk and the last finished chunk reports the latency.
+		final int chunks = (size + SWITCH_AI_CHUNK_SIZE - 1) / SWITCH_AI_CHUNK_SIZE;
+		final AtomicInteger remaining = new AtomicInteger(chunks);
+		for (int chunk = 1; chunk < chunks; chunk++)
 		{
-			for (WorldObject wo : _visibleObjects)
+			final int from = chunk * SWITCH_AI_CHUNK_SIZE;
+			final int to = Math.min(from + SWITCH_AI_CHUNK_SIZE, size);
+			ThreadPool.execute(() ->
 			{
-				if (wo.isAttackable())
+				switchAI(npcs, from, to, isOn);
+				if (remaining.decrementAndGet() == 0)
 				{
-					final Attackable mob = wo.asAttackable();
+					onSwitchComplete(startTime, size);
+				}
+			});
+		}
+		
+		switchAI(npcs, 0, SWITCH_AI_CHUNK_SIZE, isOn);
+		if (remaining.decrementAndGet() == 0)
+		{
+			onSwitchComplete(startTime, size);
+		}
+	}
+	
+	private void switchAI(List<Npc> npcs, int from, int to, boolean isOn)
+	{
+		for (int i = from; i < to; i++)
+		{
+			// The region was switched again while this chunk was waiting, the newer switch takes care of it.
+			if (_active != isOn)
+			{
+				return;
+			}
+			
+			final Npc npc = npcs.get(i);
+			if (!isOn)
+			{
+				if (npc.isAttackable())
+				{
+					final Attackable mob = npc.asAttackable();
 					
 					// Set target to null and cancel attack or cast.
 					mob.setTarget(null);
@@ -102,33 +174,60 @@ public class WorldRegion
 					
 					// Stop attack task.
 					mob.abortAttack();
-					
-					RandomAnimationTaskManager.getInstance().remove(mob);
-				}
-				else if (wo instanceof Npc)
-				{
-					RandomAnimationTaskManager.getInstance().remove(wo.asNpc());
 				}
+				
+				RandomAnimationTaskManager.getInstance().remove(npc);
 			}
-		}
-		else
-		{
-			for (WorldObject wo : _visibleObjects)
+			else
 			{
-				if (wo.isAttackable())
+				if (npc.isAttackable())
 				{
 					// Start HP/MP/CP regeneration task.
-					wo.asAttackable().getStatus().startHpMpRegeneration();
-					RandomAnimationTaskManager.getInstance().add(wo.asNpc());
-				}
-				else if (wo.isNpc())
-				{
-					RandomAnimationTaskManager.getInstance().add(wo.asNpc());
+					npc.getStatus().startHpMpRegeneration();
 				}
+				
+				RandomAnimationTaskManager.getInstance().add(npc);
 			}
 		}
 	}
 	
+	private void onSwitchComplete(long startTime, int npcCount)
+	{
+		final long time = System.nanoTime() - startTime;
+		SWITCH_COUNT.incrementAndGet();
+		SWITCH_TIME.addAndGet(time);
+		SWITCH_MAX_TIME.accumulateAndGet(time, Math::max);
+		if (time > SWITCH_WARNING_TIME)
+		{
+			LOGGER.info("WorldRegion: Switching AI of " + npcCount + " npcs in region " + this + " took " + TimeUnit.NANOSECONDS.toMillis(time) + " ms.");
+		}
+	}
+	
+	/**
+	 * @return the number of region AI switches since startup
+	 */
+	public static long getSwitchCount()
+	{
+		return SWITCH_COUNT.get();
+	}
+	
+	/**
+	 * @return the average time in nanoseconds from the start of a region AI switch until its last npc was processed
+	 */
+	public static long getSwitchAverageTime()
+	{
+		final long count = SWITCH_COUNT.get();
+		return count == 0 ? 0 : SWITCH_TIME.get() / count;
+	}
+	
+	/**
+	 * @return the longest time in nanoseconds a region AI switch took since startup
+	 */
+	public static long getSwitchMaxTime()
+	{
+		return SWITCH_MAX_TIME.get();
+	}
+	
 	public boolean isActive()
 	{
 		return _active;
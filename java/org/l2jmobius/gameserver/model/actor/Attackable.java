@@ -1182,6 +1182,12 @@ public class Attackable extends Npc
 			return;
 		}
 		
+		// Players created only in memory, such as load test autobots, get no drops so no item is stored for them.
+		if (!player.isStoredInDb())
+		{
+			return;
+		}
+		
 		CursedWeaponsManager.getInstance().checkDrop(this, player);
 		if (isSpoiled() && !_plundered)
 		{
@@ -24,7 +24,9 @@ package org.l2jmobius.gameserver.model.actor;
 import java.util.logging.Logger;
 
 import org.l2jmobius.gameserver.data.xml.PlayerTemplateData;
+import org.l2jmobius.gameserver.managers.IdManager;
 import org.l2jmobius.gameserver.model.Location;
+import org.l2jmobius.gameserver.model.World;
 import org.l2jmobius.gameserver.model.actor.appearance.PlayerAppearance;
 import org.l2jmobius.gameserver.model.actor.enums.creature.Race;
 import org.l2jmobius.gameserver.model.actor.enums.player.PlayerClass;
@@ -47,6 +49,7 @@ public class Autobot
 	private boolean _isOnline = false;
 	private final PlayerClass _playerClass;
 	private final int _level;
+	private final boolean _persistent;
 	private AutobotAI _autobotAI;
 	private long _lastChatTime = 0;
 	private int _chatCooldown = 5000; // 5 seconds between chats
@@ -55,6 +58,14 @@ public class Autobot
 	 * Create an autobot using the Player.create factory method
 	 */
 	public static Autobot createAutobot(String name, PlayerClass playerClass, int level, Location spawnLocation)
+	{
+		return createAutobot(name, playerClass, level, spawnLocation, true);
+	}
+	
+	/**
+	 * Create an autobot, a non persistent autobot (used by load tests) is kept out of the characters table and logs nothing per bot
+	 */
+	public static Autobot createAutobot(String name, PlayerClass playerClass, int level, Location spawnLocation, boolean persistent)
 	{
 		try
 		{
@@ -70,7 +81,7 @@ public class Autobot
 			final PlayerAppearance appearance = createRandomAppearance(playerClass.getRace());
 			
 			// Create the player using the static factory method
-			final Player player = Player.create(template, "AutobotAccount", name, appearance);
+			final Player player = Player.create(template, "AutobotAccount", name, appearance, persistent);
 			if (player == null)
 			{
 				LOGGER.warning("Failed to create player for autobot: " + name);
@@ -78,9 +89,11 @@ public class Autobot
 			}
 			
 			// Create autobot wrapper
-			final Autobot autobot = new Autobot(player, playerClass, level, spawnLocation);
-			
-			LOGGER.info("Created autobot: " + name + " (" + playerClass + ", Level " + level + ")");
+			final Autobot autobot = new Autobot(player, playerClass, level, spawnLocation, persistent);
+			if (persistent)
+			{
+				LOGGER.info("Created autobot: " + name + " (" + playerClass + ", Level " + level + ")");
+			}
 			return autobot;
 		}
 		catch (Exception e)
@@ -93,11 +106,12 @@ public class Autobot
 	/**
 	 * Private constructor that wraps an existing player
 	 */
-	private Autobot(Player player, PlayerClass playerClass, int level, Location spawnLocation)
+	private Autobot(Player player, PlayerClass playerClass, int level, Location spawnLocation, boolean persistent)
 	{
 		_player = player;
 		_playerClass = playerClass;
 		_level = level;
+		_persistent = persistent;
 		_homeLocation = spawnLocation;
 		_isOnline = true;
 		_autoFarmEnabled = true;
@@ -113,7 +127,10 @@ public class Autobot
 		_autobotAI = new AutobotAI(this);
 		_player.setAI(_autobotAI);
 		
-		LOGGER.info("Autobot AI initialized for: " + player.getName() + ", AI class: " + _autobotAI.getClass().getSimpleName());
+		if (_persistent)
+		{
+			LOGGER.info("Autobot AI initialized for: " + player.getName() + ", AI class: " + _autobotAI.getClass().getSimpleName());
+		}
 	}
 	
 	/**
@@ -142,7 +159,10 @@ public class Autobot
 				// Add a permanent stat modifier for infinite mana
 				_player.getStat().addFixedValue(org.l2jmobius.gameserver.model.stats.Stat.MAX_MP, 999999.0);
 				_player.setCurrentMp(999999);
-				LOGGER.info("Given infinite mana to non-Orc mage autobot: " + _player.getName());
+				if (_persistent)
+				{
+					LOGGER.info("Given infinite mana to non-Orc mage autobot: " + _player.getName());
+				}
 			}
 			
 			// Add Wind Strike skill for non-Orc mages only
@@ -173,8 +193,11 @@ public class Autobot
 			
 			if (windStrike != null)
 			{
-				_player.addSkill(windStrike, true);
-				LOGGER.info("Added Wind Strike skill to mage autobot: " + _player.getName());
+				_player.addSkill(windStrike, _persistent);
+				if (_persistent)
+				{
+					LOGGER.info("Added Wind Strike skill to mage autobot: " + _player.getName());
+				}
 			}
 			else
 			{
@@ -261,8 +284,11 @@ public class Autobot
 			equipItem(chestId, "chest");
 			equipItem(legsId, "legs");
 			
-			LOGGER.info("Equipped starting items for " + _player.getName() + " (" + race + ", " + 
-				(isMage ? "Mage" : "Fighter") + "): Weapon " + weaponId + ", Chest " + chestId + ", Legs " + legsId);
+			if (_persistent)
+			{
+				LOGGER.info("Equipped starting items for " + _player.getName() + " (" + race + ", " + 
+					(isMage ? "Mage" : "Fighter") + "): Weapon " + weaponId + ", Chest " + chestId + ", Legs " + legsId);
+			}
 		}
 		catch (Exception e)
 		{
@@ -290,10 +316,13 @@ public class Autobot
 				
 				if (item != null)
 				{
-					// Add to inventory using correct process type
-					_player.getInventory().addItem(
-						org.l2jmobius.gameserver.model.item.enums.ItemProcessType.QUEST, 
-						itemId, 1, _player, null);
+					// Add to inventory using correct process type, non persistent autobots only wear the unowned item so nothing is stored.
+					if (_persistent)
+					{
+						_player.getInventory().addItem(
+							org.l2jmobius.gameserver.model.item.enums.ItemProcessType.QUEST, 
+							itemId, 1, _player, null);
+					}
 					
 					// Equip the item
 					_player.getInventory().equipItem(item);
@@ -482,6 +511,14 @@ public class Autobot
 		return _isOnline && (_player != null);
 	}
 	
+	/**
+	 * Check if autobot is stored in the database
+	 */
+	public boolean isPersistent()
+	{
+		return _persistent;
+	}
+	
 	/**
 	 * Get current AI state for debugging
 	 */
@@ -526,10 +563,16 @@ public class Autobot
 				// Prevent party formation - ensure no party
 				_player.setParty(null);
 				
-				LOGGER.info("AutobotAI initialized and activated for: " + getName());
+				if (_persistent)
+				{
+					LOGGER.info("AutobotAI initialized and activated for: " + getName());
+				}
 			}
 			
-			LOGGER.info("Autobot " + getName() + " spawned at " + _homeLocation);
+			if (_persistent)
+			{
+				LOGGER.info("Autobot " + getName() + " spawned at " + _homeLocation);
+			}
 		}
 	}
 	
@@ -544,7 +587,20 @@ public class Autobot
 			_player.decayMe();
 			_isOnline = false;
 			
-			LOGGER.info("Autobot " + getName() + " despawned from world");
+			if (_persistent)
+			{
+				LOGGER.info("Autobot " + getName() + " despawned from world");
+			}
+			else
+			{
+				// Nothing was stored for this bot, only free the ids of its worn items and its own.
+				for (org.l2jmobius.gameserver.model.item.instance.Item item : _player.getInventory().getPaperdollItems())
+				{
+					World.getInstance().removeObject(item);
+					IdManager.getInstance().releaseId(item.getObjectId());
+				}
+				IdManager.getInstance().releaseId(_player.getObjectId());
+			}
 		}
 	}
 	
@@ -441,11 +441,17 @@ public abstract class Creature extends WorldObject
 		{
 			if (state)
 			{
-				_zones[zone.ordinal()]++;
+				if (_zones[zone.ordinal()]++ == 0)
+				{
+					getStat().invalidateFinalizedValues();
+				}
 			}
 			else if (_zones[zone.ordinal()] > 0)
 			{
-				_zones[zone.ordinal()]--;
+				if (--_zones[zone.ordinal()] == 0)
+				{
+					getStat().invalidateFinalizedValues();
+				}
 			}
 		}
 	}
@@ -484,6 +490,7 @@ public abstract class Creature extends WorldObject
 		}
 		
 		_transform = transformation;
+		getStat().invalidateFinalizedValues();
 		transformation.onTransform(this, addSkills);
 	}
 	
@@ -493,6 +500,7 @@ public abstract class Creature extends WorldObject
 		{
 			_transform.onUntransform(this);
 			_transform = null;
+			getStat().invalidateFinalizedValues();
 		}
 		
 		// Mobius: Tempfix for untransform not showing stats.
@@ -2547,6 +2555,10 @@ public abstract class Creature extends WorldObject
 	protected void setTemplate(CreatureTemplate template)
 	{
 		_template = template;
+		if (getStat() != null)
+		{
+			getStat().invalidateFinalizedValues();
+		}
 	}
 	
 	/**
@@ -436,6 +436,7 @@ public class Player extends Playable
 	private final String _accountName;
 	private long _deleteTimer;
 	private Calendar _createDate = Calendar.getInstance();
+	private boolean _storedInDb = true;
 	
 	private String _lang = null;
 	private String _htmlPrefix = "";
@@ -923,6 +924,20 @@ public class Player extends Playable
 	 * @return The Player added to the database or null
 	 */
 	public static Player create(PlayerTemplate template, String accountName, String name, PlayerAppearance app)
+	{
+		return create(template, accountName, name, app, true);
+	}
+	
+	/**
+	 * Create a new Player, optionally without adding it in the characters table of the database.
+	 * @param template The PlayerTemplate to apply to the Player
+	 * @param accountName The name of the Player
+	 * @param name The name of the Player
+	 * @param app the player's appearance
+	 * @param storeInDb if false the Player only exists in memory and is not registered in CharInfoTable
+	 * @return The created Player or null
+	 */
+	public static Player create(PlayerTemplate template, String accountName, String name, PlayerAppearance app, boolean storeInDb)
 	{
 		// Create a new Player with an account name
 		final Player player = new Player(template, accountName, app);
@@ -942,6 +957,12 @@ public class Player extends Playable
 		// Give 20 recommendations
 		player.setRecomLeft(20);
 		
+		if (!storeInDb)
+		{
+			player._storedInDb = false;
+			return player;
+		}
+		
 		// Add the player in the characters table of the database
 		if (player.createDb())
 		{
@@ -9773,6 +9794,7 @@ public class Player extends Playable
 	public void setInOlympiadMode(boolean value)
 	{
 		_inOlympiadMode = value;
+		getStat().invalidateFinalizedValues();
 	}
 	
 	public void setOlympiadStart(boolean value)
@@ -13052,6 +13074,14 @@ public class Player extends Playable
 		return _createDate;
 	}
 	
+	/**
+	 * @return {@code false} if the Player was created only in memory, nothing it gains or loots should be stored.
+	 */
+	public boolean isStoredInDb()
+	{
+		return _storedInDb;
+	}
+	
 	/**
 	 * @return number of days to char birthday.
 	 */
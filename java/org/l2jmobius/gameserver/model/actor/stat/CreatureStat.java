@@ -20,21 +20,24 @@
  */
 package org.l2jmobius.gameserver.model.actor.stat;
 
-import java.util.Collections;
-import java.util.EnumMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.List;
 import java.util.OptionalDouble;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
+import java.util.logging.Logger;
 
 import org.l2jmobius.Config;
 import org.l2jmobius.commons.threads.ThreadPool;
+import org.l2jmobius.commons.util.AllocationUtil;
 import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.actor.Player;
 import org.l2jmobius.gameserver.model.actor.enums.creature.AttributeType;
@@ -54,6 +57,43 @@ import org.l2jmobius.gameserver.util.MathUtil;
 
 public class CreatureStat
 {
+	private static final Logger LOGGER = Logger.getLogger(CreatureStat.class.getName());
+	
+	private static final Stat[] STATS = Stat.values();
+	private static final int MOVE_TYPE_COUNT = MoveType.values().length;
+	private static final int POSITION_COUNT = Position.values().length;
+	
+	// Initial add and mul values, NaN marks a stat without value.
+	private static final double[] RESET_ADD_VALUES = new double[Stat.NUM_STATS];
+	private static final double[] RESET_MUL_VALUES = new double[Stat.NUM_STATS];
+	static
+	{
+		for (Stat stat : Stat.values())
+		{
+			RESET_ADD_VALUES[stat.ordinal()] = stat.getResetAddValue() != 0 ? stat.getResetAddValue() : Double.NaN;
+			RESET_MUL_VALUES[stat.ordinal()] = stat.getResetMulValue() != 0 ? stat.getResetMulValue() : Double.NaN;
+		}
+	}
+	
+	// Recalculation statistics.
+	private static final AtomicLong RECALCULATION_COUNT = new AtomicLong();
+	private static final AtomicLong RECALCULATION_TIME = new AtomicLong();
+	private static final AtomicLong RECALCULATION_MAX_TIME = new AtomicLong();
+	private static final AtomicLong RECALCULATION_ALLOCATED = new AtomicLong();
+	private static final AtomicLong INCREMENTAL_RECALCULATION_COUNT = new AtomicLong();
+	
+	// Finalizers depending on movement, position or residence functions are never memoised.
+	private static final boolean[] MEMOISED_STATS = new boolean[Stat.NUM_STATS];
+	static
+	{
+		Arrays.fill(MEMOISED_STATS, true);
+		MEMOISED_STATS[Stat.REGENERATE_HP_RATE.ordinal()] = false;
+		MEMOISED_STATS[Stat.REGENERATE_MP_RATE.ordinal()] = false;
+		MEMOISED_STATS[Stat.REGENERATE_CP_RATE.ordinal()] = false;
+	}
+	private static final AtomicLong FINALIZED_HITS = new AtomicLong();
+	private static final AtomicLong FINALIZED_MISMATCHES = new AtomicLong();
+	
 	private final Creature _creature;
 	private long _exp = 0;
 	private long _sp = 0;
@@ -63,14 +103,19 @@ public class CreatureStat
 	private double _vampiricSum = 0;
 	private double _mpVampiricSum = 0;
 	
-	private final Map<Stat, Double> _statsAdd = new EnumMap<>(Stat.class);
-	private final Map<Stat, Double> _statsMul = new EnumMap<>(Stat.class);
-	private final Map<Stat, Map<MoveType, Double>> _moveTypeStats = new ConcurrentHashMap<>();
-	private final Map<Integer, Double> _reuseStat = new ConcurrentHashMap<>();
-	private final Map<Integer, Double> _mpConsumeStat = new ConcurrentHashMap<>();
-	private final Map<Integer, LinkedList<Double>> _skillEvasionStat = new ConcurrentHashMap<>();
-	private final Map<Stat, Map<Position, Double>> _positionStats = new ConcurrentHashMap<>();
-	private final Map<Stat, Double> _fixedValue = new ConcurrentHashMap<>();
+	// Stat values indexed by stat ordinal, NaN marks a stat without value.
+	private final double[] _statsAdd = RESET_ADD_VALUES.clone();
+	private final double[] _statsMul = RESET_MUL_VALUES.clone();
+	private final IntDoubleMap _moveTypeStats = new IntDoubleMap();
+	private final IntDoubleMap _reuseStat = new IntDoubleMap();
+	private final IntDoubleMap _mpConsumeStat = new IntDoubleMap();
+	private final IntDoubleMap _skillEvasionStat = new IntDoubleMap();
+	private final IntDoubleMap _positionStats = new IntDoubleMap();
+	private volatile double[] _fixedValues = null;
+	
+	// Finalized values, valid while their epoch matches the current stat epoch.
+	private final AtomicReferenceArray<FinalizedValue> _finalizedValues = new AtomicReferenceArray<>(Stat.NUM_STATS);
+	private final AtomicInteger _epoch = new AtomicInteger(1);
 	
 	private final float[] _attackTraitValues = new float[TraitType.values().length];
 	private final float[] _defenceTraitValues = new float[TraitType.values().length];
@@ -84,6 +129,23 @@ public class CreatureStat
 	
 	private ScheduledFuture<?> _recalculateStatsTask = null;
 	private final AtomicBoolean _broadcast = new AtomicBoolean();
+	private final AtomicBoolean _fullRecalculation = new AtomicBoolean(true);
+	private final double[] _previousAdd = new double[Stat.NUM_STATS];
+	private final double[] _previousMul = new double[Stat.NUM_STATS];
+	
+	// Incremental recalculation state, only used while holding the write lock.
+	private final double[] _baseAdd = new double[Stat.NUM_STATS];
+	private final double[] _baseMul = new double[Stat.NUM_STATS];
+	private double _baseVampiricSum = 0;
+	private double _baseMpVampiricSum = 0;
+	private boolean _hasBase = false;
+	private final List<BuffInfo> _appliedPassives = new ArrayList<>();
+	private boolean[] _appliedPassiveStates = new boolean[8];
+	private final List<BuffInfo> _appliedOptions = new ArrayList<>();
+	private final List<BuffInfo> _appliedEffects = new ArrayList<>();
+	private final List<BuffInfo> _currentEffects = new ArrayList<>();
+	private final boolean[] _touchedStats = new boolean[Stat.NUM_STATS];
+	private StatDelta _recording = null;
 	private final ReentrantReadWriteLock _lock = new ReentrantReadWriteLock();
 	
 	public CreatureStat(Creature creature)
@@ -228,6 +290,7 @@ public class CreatureStat
 	public void setLevel(byte value)
 	{
 		_level = value;
+		invalidateFinalizedValues();
 	}
 	
 	/**
@@ -778,9 +841,21 @@ public class CreatureStat
 	 * @param stat
 	 * @param value
 	 */
-	public void mergeAdd(Stat stat, Double value)
+	public void mergeAdd(Stat stat, double value)
 	{
-		_statsAdd.merge(stat, value, stat::functionAdd);
+		if (_recording != null)
+		{
+			_recording.record(StatDelta.ADD, stat, value);
+		}
+		
+		applyAdd(stat, value);
+	}
+	
+	private void applyAdd(Stat stat, double value)
+	{
+		final int index = stat.ordinal();
+		final double oldValue = _statsAdd[index];
+		_statsAdd[index] = Double.isNaN(oldValue) ? value : stat.functionAdd(oldValue, value);
 	}
 	
 	/**
@@ -788,9 +863,21 @@ public class CreatureStat
 	 * @param stat
 	 * @param value
 	 */
-	public void mergeMul(Stat stat, Double value)
+	public void mergeMul(Stat stat, double value)
 	{
-		_statsMul.merge(stat, value, stat::functionMul);
+		if (_recording != null)
+		{
+			_recording.record(StatDelta.MUL, stat, value);
+		}
+		
+		applyMul(stat, value);
+	}
+	
+	private void applyMul(Stat stat, double value)
+	{
+		final int index = stat.ordinal();
+		final double oldValue = _statsMul[index];
+		_statsMul[index] = Double.isNaN(oldValue) ? value : stat.functionMul(oldValue, value);
 	}
 	
 	/**
@@ -812,8 +899,8 @@ public class CreatureStat
 		_lock.readLock().lock();
 		try
 		{
-			final Double val = _statsAdd.get(stat);
-			return val != null ? val.doubleValue() : defaultValue;
+			final double val = _statsAdd[stat.ordinal()];
+			return Double.isNaN(val) ? defaultValue : val;
 		}
 		finally
 		{
@@ -841,8 +928,8 @@ public class CreatureStat
 	 */
 	public double getAddValue(Stat stat, double defaultValue)
 	{
-		final Double val = _statsAdd.get(stat);
-		return val != null ? val.doubleValue() : defaultValue;
+		final double val = _statsAdd[stat.ordinal()];
+		return Double.isNaN(val) ? defaultValue : val;
 	}
 	
 	/**
@@ -864,8 +951,8 @@ public class CreatureStat
 		_lock.readLock().lock();
 		try
 		{
-			final Double val = _statsMul.get(stat);
-			return val != null ? val.doubleValue() : defaultValue;
+			final double val = _statsMul[stat.ordinal()];
+			return Double.isNaN(val) ? defaultValue : val;
 		}
 		finally
 		{
@@ -893,8 +980,8 @@ public class CreatureStat
 	 */
 	public double getMulValue(Stat stat, double defaultValue)
 	{
-		final Double val = _statsMul.get(stat);
-		return val != null ? val.doubleValue() : defaultValue;
+		final double val = _statsMul[stat.ordinal()];
+		return Double.isNaN(val) ? defaultValue : val;
 	}
 	
 	/**
@@ -904,8 +991,13 @@ public class CreatureStat
 	 */
 	public double getValue(Stat stat, double baseValue)
 	{
-		final Double val = _fixedValue.get(stat);
-		return val != null ? val.doubleValue() : stat.finalize(_creature, OptionalDouble.of(baseValue));
+		final double[] fixedValues = _fixedValues;
+		if ((fixedValues != null) && !Double.isNaN(fixedValues[stat.ordinal()]))
+		{
+			return fixedValues[stat.ordinal()];
+		}
+		
+		return stat.finalize(_creature, OptionalDouble.of(baseValue));
 	}
 	
 	/**
@@ -914,30 +1006,85 @@ public class CreatureStat
 	 */
 	public double getValue(Stat stat)
 	{
-		final Double val = _fixedValue.get(stat);
-		return val != null ? val.doubleValue() : stat.finalize(_creature, OptionalDouble.empty());
-	}
-	
-	protected void resetStats()
-	{
-		_statsAdd.clear();
-		_statsMul.clear();
-		_vampiricSum = 0;
-		_mpVampiricSum = 0;
+		final int index = stat.ordinal();
+		final double[] fixedValues = _fixedValues;
+		if ((fixedValues != null) && !Double.isNaN(fixedValues[index]))
+		{
+			return fixedValues[index];
+		}
 		
-		// Initialize default values
-		for (Stat stat : Stat.values())
+		if (!MEMOISED_STATS[index] || !_moveTypeStats.isEmpty() || !canMemoiseFinalizedValues())
 		{
-			if (stat.getResetAddValue() != 0)
+			return stat.finalize(_creature, OptionalDouble.empty());
+		}
+		
+		final int epoch = _epoch.get();
+		final FinalizedValue finalized = _finalizedValues.getAcquire(index);
+		if ((finalized != null) && (finalized._epoch == epoch))
+		{
+			final double value = finalized._value;
+			if (Config.STAT_CACHE_DEBUG)
 			{
-				_statsAdd.put(stat, stat.getResetAddValue());
+				return checkFinalizedValue(stat, value);
 			}
 			
-			if (stat.getResetMulValue() != 0)
-			{
-				_statsMul.put(stat, stat.getResetMulValue());
-			}
+			FINALIZED_HITS.incrementAndGet();
+			return value;
 		}
+		
+		final double value = stat.finalize(_creature, OptionalDouble.empty());
+		
+		// Do not store values calculated while an input changed, the epoch is published together with its value.
+		if (_epoch.get() == epoch)
+		{
+			_finalizedValues.setRelease(index, new FinalizedValue(epoch, value));
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Debug cross-check of a memoised value against a freshly finalized one.
+	 * @param stat
+	 * @param cachedValue
+	 * @return the freshly finalized value
+	 */
+	private double checkFinalizedValue(Stat stat, double cachedValue)
+	{
+		final double value = stat.finalize(_creature, OptionalDouble.empty());
+		if (Double.compare(value, cachedValue) != 0)
+		{
+			FINALIZED_MISMATCHES.incrementAndGet();
+			LOGGER.warning(getClass().getSimpleName() + ": Memoised " + stat + " of " + _creature + " is " + cachedValue + " but should be " + value + ".");
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * @return {@code true} if finalized values of this creature can currently be memoised
+	 */
+	protected boolean canMemoiseFinalizedValues()
+	{
+		return true;
+	}
+	
+	/**
+	 * Starts a new stat epoch, dropping all memoised finalized values.<br>
+	 * Must be called whenever an input of the stat finalizers changes outside of {@link #recalculateStats(boolean)}.
+	 */
+	public void invalidateFinalizedValues()
+	{
+		_epoch.incrementAndGet();
+	}
+	
+	protected void resetStats()
+	{
+		// Initialize default values
+		System.arraycopy(RESET_ADD_VALUES, 0, _statsAdd, 0, Stat.NUM_STATS);
+		System.arraycopy(RESET_MUL_VALUES, 0, _statsMul, 0, Stat.NUM_STATS);
+		_vampiricSum = 0;
+		_mpVampiricSum = 0;
 	}
 	
 	/**
@@ -946,6 +1093,25 @@ public class CreatureStat
 	 */
 	public void recalculateStats(boolean broadcast)
 	{
+		_fullRecalculation.set(true);
+		scheduleRecalculation(broadcast);
+	}
+	
+	/**
+	 * Recalculates stats after active effects were added or removed.<br>
+	 * Only the stat deltas of the changed effects are applied or reverted, unless something else requested a full recalculation.
+	 * @param broadcast
+	 */
+	public void recalculateEffectStats(boolean broadcast)
+	{
+		scheduleRecalculation(broadcast);
+	}
+	
+	private void scheduleRecalculation(boolean broadcast)
+	{
+		// Inputs already changed, do not serve memoised values until the recalculation is done.
+		invalidateFinalizedValues();
+		
 		if (broadcast)
 		{
 			synchronized (_broadcast)
@@ -967,82 +1133,30 @@ public class CreatureStat
 				{
 					final boolean broadcastChanges = _broadcast.get();
 					_broadcast.compareAndSet(true, false);
+					final boolean fullRecalculation = _fullRecalculation.getAndSet(false);
+					
+					final long startTime = System.nanoTime();
+					final long allocatedBefore = AllocationUtil.getCurrentThreadAllocatedBytes();
 					
 					_lock.writeLock().lock();
 					
 					// Copy old data before wiping it out.
-					final Map<Stat, Double> adds = !broadcastChanges ? Collections.emptyMap() : new EnumMap<>(_statsAdd);
-					final Map<Stat, Double> muls = !broadcastChanges ? Collections.emptyMap() : new EnumMap<>(_statsMul);
+					if (broadcastChanges)
+					{
+						System.arraycopy(_statsAdd, 0, _previousAdd, 0, Stat.NUM_STATS);
+						System.arraycopy(_statsMul, 0, _previousMul, 0, Stat.NUM_STATS);
+					}
 					
+					final boolean incremental;
 					try
 					{
-						// Wipe all the data.
-						resetStats();
-						
-						// Call pump to each effect.
-						for (BuffInfo info : _creature.getEffectList().getPassives())
+						incremental = !fullRecalculation && recalculateIncrementally();
+						if (!incremental)
 						{
-							if (info.isInUse() && info.getSkill().checkConditions(SkillConditionScope.PASSIVE, _creature, _creature.getTarget()))
-							{
-								for (AbstractEffect effect : info.getEffects())
-								{
-									if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
-									{
-										effect.pump(info.getEffected(), info.getSkill());
-									}
-								}
-							}
-						}
-						
-						for (BuffInfo info : _creature.getEffectList().getOptions())
-						{
-							if (info.isInUse())
-							{
-								for (AbstractEffect effect : info.getEffects())
-								{
-									if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
-									{
-										effect.pump(info.getEffected(), info.getSkill());
-									}
-								}
-							}
+							recalculateAll();
 						}
 						
-						for (BuffInfo info : _creature.getEffectList().getEffects())
-						{
-							if (info.isInUse())
-							{
-								for (AbstractEffect effect : info.getEffects())
-								{
-									if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
-									{
-										effect.pump(info.getEffected(), info.getSkill());
-									}
-								}
-							}
-						}
-						
-						// Pump for summon ABILITY_CHANGE abnormal type.
-						if (_creature.isSummon())
-						{
-							final Player player = _creature.asPlayer();
-							if ((player != null) && player.hasAbnormalType(AbnormalType.ABILITY_CHANGE))
-							{
-								for (BuffInfo info : player.getEffectList().getEffects())
-								{
-									if (info.isInUse() && info.isAbnormalType(AbnormalType.ABILITY_CHANGE))
-									{
-										for (AbstractEffect effect : info.getEffects())
-										{
-											if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(_creature, _creature, info.getSkill()))
-											{
-												effect.pump(_creature, info.getSkill());
-											}
-										}
-									}
-								}
-							}
-						}
+						invalidateFinalizedValues();
 						
 						_attackSpeedMultiplier = Formulas.calcAtkSpdMultiplier(_creature);
 						_mAttackSpeedMultiplier = Formulas.calcMAtkSpdMultiplier(_creature);
@@ -1059,21 +1173,24 @@ public class CreatureStat
 					{
 						// Calculate the difference between old and new stats.
 						final Set<Stat> changed = EnumSet.noneOf(Stat.class);
-						Double statAddResetValue;
-						Double statMulResetValue;
-						Double statAddValue;
-						Double statMulValue;
-						Double addsValue;
-						Double mulsValue;
-						for (Stat stat : Stat.values())
+						for (Stat stat : STATS)
 						{
-							statAddResetValue = stat.getResetAddValue();
-							statMulResetValue = stat.getResetMulValue();
-							addsValue = adds.getOrDefault(stat, statAddResetValue);
-							mulsValue = muls.getOrDefault(stat, statMulResetValue);
-							statAddValue = _statsAdd.getOrDefault(stat, statAddResetValue);
-							statMulValue = _statsMul.getOrDefault(stat, statMulResetValue);
-							if (addsValue.equals(statAddResetValue) || mulsValue.equals(statMulResetValue) || !addsValue.equals(statAddValue) || !mulsValue.equals(statMulValue))
+							final int index = stat.ordinal();
+							final double statAddResetValue = stat.getResetAddValue();
+							final double statMulResetValue = stat.getResetMulValue();
+							final double addsValue = valueOrDefault(_previousAdd[index], statAddResetValue);
+							final double mulsValue = valueOrDefault(_previousMul[index], statMulResetValue);
+							final double statAddValue = valueOrDefault(_statsAdd[index], statAddResetValue);
+							final double statMulValue = valueOrDefault(_statsMul[index], statMulResetValue);
+							if (incremental)
+							{
+								// Only the stats touched by the applied or reverted deltas can differ.
+								if (_touchedStats[index] && ((Double.compare(addsValue, statAddValue) != 0) || (Double.compare(mulsValue, statMulValue) != 0)))
+								{
+									changed.add(stat);
+								}
+							}
+							else if ((Double.compare(addsValue, statAddResetValue) == 0) || (Double.compare(mulsValue, statMulResetValue) == 0) || (Double.compare(addsValue, statAddValue) != 0) || (Double.compare(mulsValue, statMulValue) != 0))
 							{
 								changed.add(stat);
 							}
@@ -1081,6 +1198,16 @@ public class CreatureStat
 						
 						_creature.broadcastModifiedStats(changed);
 					}
+					
+					final long time = System.nanoTime() - startTime;
+					RECALCULATION_COUNT.incrementAndGet();
+					if (incremental)
+					{
+						INCREMENTAL_RECALCULATION_COUNT.incrementAndGet();
+					}
+					RECALCULATION_TIME.addAndGet(time);
+					RECALCULATION_MAX_TIME.accumulateAndGet(time, Math::max);
+					RECALCULATION_ALLOCATED.addAndGet(AllocationUtil.getCurrentThreadAllocatedBytes() - allocatedBefore);
 				}
 				
 				_recalculateStatsTask = null;
@@ -1088,114 +1215,402 @@ public class CreatureStat
 		}
 	}
 	
-	protected void onRecalculateStats(boolean broadcast)
+	/**
+	 * Wipes all stats and pumps every effect again, recording the stat delta of each active effect.<br>
+	 * Must be called while holding the write lock.
+	 */
+	private void recalculateAll()
 	{
-		// Check if Max HP/MP/CP is lower than current due to new stats.
-		if (_creature.getCurrentCp() > getMaxCp())
+		// Wipe all the data.
+		resetStats();
+		
+		// Call pump to each effect.
+		_appliedPassives.clear();
+		for (BuffInfo info : _creature.getEffectList().getPassives())
 		{
-			_creature.setCurrentCp(getMaxCp());
+			final boolean active = info.isInUse() && info.getSkill().checkConditions(SkillConditionScope.PASSIVE, _creature, _creature.getTarget());
+			if (_appliedPassiveStates.length == _appliedPassives.size())
+			{
+				_appliedPassiveStates = Arrays.copyOf(_appliedPassiveStates, _appliedPassiveStates.length * 2);
+			}
+			_appliedPassiveStates[_appliedPassives.size()] = active;
+			_appliedPassives.add(info);
+			
+			if (active)
+			{
+				for (AbstractEffect effect : info.getEffects())
+				{
+					if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
+					{
+						effect.pump(info.getEffected(), info.getSkill());
+					}
+				}
+			}
 		}
 		
-		if (_creature.getCurrentHp() > getMaxHp())
+		_appliedOptions.clear();
+		for (BuffInfo info : _creature.getEffectList().getOptions())
 		{
-			_creature.setCurrentHp(getMaxHp());
+			if (info.isInUse())
+			{
+				_appliedOptions.add(info);
+				for (AbstractEffect effect : info.getEffects())
+				{
+					if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
+					{
+						effect.pump(info.getEffected(), info.getSkill());
+					}
+				}
+			}
 		}
 		
-		if (_creature.getCurrentMp() > getMaxMp())
+		// Keep the passive and option layer as the base of incremental recalculations.
+		System.arraycopy(_statsAdd, 0, _baseAdd, 0, Stat.NUM_STATS);
+		System.arraycopy(_statsMul, 0, _baseMul, 0, Stat.NUM_STATS);
+		_baseVampiricSum = _vampiricSum;
+		_baseMpVampiricSum = _mpVampiricSum;
+		
+		_appliedEffects.clear();
+		for (BuffInfo info : _creature.getEffectList().getEffects())
 		{
-			_creature.setCurrentMp(getMaxMp());
+			if (info.isInUse())
+			{
+				pumpRecorded(info);
+				_appliedEffects.add(info);
+			}
+		}
+		
+		// Pump for summon ABILITY_CHANGE abnormal type.
+		// Summons depend on the effects of their owner, so they never recalculate incrementally.
+		_hasBase = !_creature.isSummon();
+		if (_creature.isSummon())
+		{
+			final Player player = _creature.asPlayer();
+			if ((player != null) && player.hasAbnormalType(AbnormalType.ABILITY_CHANGE))
+			{
+				for (BuffInfo info : player.getEffectList().getEffects())
+				{
+					if (info.isInUse() && info.isAbnormalType(AbnormalType.ABILITY_CHANGE))
+					{
+						for (AbstractEffect effect : info.getEffects())
+						{
+							if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(_creature, _creature, info.getSkill()))
+							{
+								effect.pump(_creature, info.getSkill());
+							}
+						}
+					}
+				}
+			}
 		}
 	}
 	
-	public double getPositionTypeValue(Stat stat, Position position)
+	/**
+	 * Applies the deltas of added active effects and reverts the deltas of removed ones.<br>
+	 * Stats touched by a removed effect are restored from the base layer and replayed from the remaining deltas, instead of inverting the removed values, so repeated changes cannot drift.<br>
+	 * Must be called while holding the write lock.
+	 * @return {@code false} if the change cannot be applied incrementally and a full recalculation is required, in which case nothing was modified
+	 */
+	private boolean recalculateIncrementally()
 	{
-		final Map<Position, Double> map = _positionStats.get(stat);
-		if (map != null)
+		if (!_hasBase)
+		{
+			return false;
+		}
+		
+		// The passive and option layer must be unchanged.
+		int index = 0;
+		for (BuffInfo info : _creature.getEffectList().getPassives())
 		{
-			final Double val = map.get(position);
-			if (val != null)
+			if ((index >= _appliedPassives.size()) || (_appliedPassives.get(index) != info) || (_appliedPassiveStates[index] != (info.isInUse() && info.getSkill().checkConditions(SkillConditionScope.PASSIVE, _creature, _creature.getTarget()))))
 			{
-				return val.doubleValue();
+				return false;
 			}
+			index++;
+		}
+		if (index != _appliedPassives.size())
+		{
+			return false;
 		}
 		
-		return 1d;
+		index = 0;
+		for (BuffInfo info : _creature.getEffectList().getOptions())
+		{
+			if (info.isInUse())
+			{
+				if ((index >= _appliedOptions.size()) || (_appliedOptions.get(index) != info))
+				{
+					return false;
+				}
+				index++;
+			}
+		}
+		if (index != _appliedOptions.size())
+		{
+			return false;
+		}
+		
+		// Collect the active effects, all of them must be replayable.
+		final List<BuffInfo> current = _currentEffects;
+		current.clear();
+		for (BuffInfo info : _creature.getEffectList().getEffects())
+		{
+			if (info.isInUse())
+			{
+				if (_appliedEffects.contains(info))
+				{
+					if (!info.getStatDelta().isReplayable())
+					{
+						return false;
+					}
+				}
+				else
+				{
+					for (AbstractEffect effect : info.getEffects())
+					{
+						if (!effect.canReplayPump())
+						{
+							return false;
+						}
+					}
+				}
+				current.add(info);
+			}
+		}
+		
+		// Revert removed effects.
+		final boolean[] touched = _touchedStats;
+		Arrays.fill(touched, false);
+		boolean vampiric = false;
+		boolean removed = false;
+		for (BuffInfo info : _appliedEffects)
+		{
+			if (!current.contains(info))
+			{
+				vampiric |= info.getStatDelta().markTouched(touched);
+				removed = true;
+			}
+		}
+		
+		if (removed)
+		{
+			for (int i = 0; i < Stat.NUM_STATS; i++)
+			{
+				if (touched[i])
+				{
+					_statsAdd[i] = _baseAdd[i];
+					_statsMul[i] = _baseMul[i];
+				}
+			}
+			
+			for (int i = _appliedEffects.size() - 1; i >= 0; i--)
+			{
+				if (!current.contains(_appliedEffects.get(i)))
+				{
+					_appliedEffects.remove(i);
+				}
+			}
+			
+			for (BuffInfo info : _appliedEffects)
+			{
+				replay(info.getStatDelta(), touched);
+			}
+		}
+		
+		// Apply added effects.
+		for (BuffInfo info : current)
+		{
+			if (!_appliedEffects.contains(info))
+			{
+				pumpRecorded(info);
+				vampiric |= info.getStatDelta().markTouched(touched);
+				_appliedEffects.add(info);
+			}
+		}
+		
+		if (vampiric)
+		{
+			_vampiricSum = _baseVampiricSum;
+			_mpVampiricSum = _baseMpVampiricSum;
+			for (BuffInfo info : _appliedEffects)
+			{
+				final StatDelta delta = info.getStatDelta();
+				for (int i = 0; i < delta.size(); i++)
+				{
+					if (delta.getKind(i) == StatDelta.VAMPIRIC)
+					{
+						_vampiricSum += delta.getValue(i);
+					}
+					else if (delta.getKind(i) == StatDelta.MP_VAMPIRIC)
+					{
+						_mpVampiricSum += delta.getValue(i);
+					}
+				}
+			}
+		}
+		
+		return true;
 	}
 	
-	public void mergePositionTypeValue(Stat stat, Position position, double value, BiFunction<? super Double, ? super Double, ? extends Double> func)
+	/**
+	 * Pumps the effects of an active buff while recording their stat delta.
+	 * @param info the buff info
+	 */
+	private void pumpRecorded(BuffInfo info)
 	{
-		_positionStats.computeIfAbsent(stat, _ -> new ConcurrentHashMap<>()).merge(position, value, func);
+		StatDelta delta = info.getStatDelta();
+		if (delta == null)
+		{
+			delta = new StatDelta();
+			info.setStatDelta(delta);
+		}
+		else
+		{
+			delta.clear();
+		}
+		
+		_recording = delta;
+		try
+		{
+			for (AbstractEffect effect : info.getEffects())
+			{
+				if (!effect.canReplayPump())
+				{
+					delta.setReplayable(false);
+				}
+				
+				if (effect.canStart(info.getEffector(), info.getEffected(), info.getSkill()) && effect.canPump(info.getEffector(), info.getEffected(), info.getSkill()))
+				{
+					effect.pump(info.getEffected(), info.getSkill());
+				}
+			}
+		}
+		finally
+		{
+			_recording = null;
+		}
 	}
 	
-	public double getMoveTypeValue(Stat stat, MoveType type)
+	/**
+	 * Applies the add and mul operations of a recorded delta to the given stats.
+	 * @param delta the recorded delta
+	 * @param mask the stats to apply, indexed by ordinal
+	 */
+	private void replay(StatDelta delta, boolean[] mask)
 	{
-		final Map<MoveType, Double> map = _moveTypeStats.get(stat);
-		if (map != null)
+		for (int i = 0; i < delta.size(); i++)
 		{
-			final Double val = map.get(type);
-			if (val != null)
+			final int index = delta.getStatIndex(i);
+			if (mask[index])
 			{
-				return val.doubleValue();
+				switch (delta.getKind(i))
+				{
+					case StatDelta.ADD:
+					{
+						applyAdd(STATS[index], delta.getValue(i));
+						break;
+					}
+					case StatDelta.MUL:
+					{
+						applyMul(STATS[index], delta.getValue(i));
+						break;
+					}
+				}
 			}
 		}
+	}
+	
+	private static double valueOrDefault(double value, double defaultValue)
+	{
+		return Double.isNaN(value) ? defaultValue : value;
+	}
+	
+	protected void onRecalculateStats(boolean broadcast)
+	{
+		// Check if Max HP/MP/CP is lower than current due to new stats.
+		if (_creature.getCurrentCp() > getMaxCp())
+		{
+			_creature.setCurrentCp(getMaxCp());
+		}
+		
+		if (_creature.getCurrentHp() > getMaxHp())
+		{
+			_creature.setCurrentHp(getMaxHp());
+		}
 		
-		return 0d;
+		if (_creature.getCurrentMp() > getMaxMp())
+		{
+			_creature.setCurrentMp(getMaxMp());
+		}
+	}
+	
+	public double getPositionTypeValue(Stat stat, Position position)
+	{
+		return _positionStats.get((stat.ordinal() * POSITION_COUNT) + position.ordinal(), 1d);
+	}
+	
+	public void mergePositionTypeValue(Stat stat, Position position, double value, DoubleBinaryOperator func)
+	{
+		_positionStats.merge((stat.ordinal() * POSITION_COUNT) + position.ordinal(), value, func);
+	}
+	
+	public double getMoveTypeValue(Stat stat, MoveType type)
+	{
+		return _moveTypeStats.get((stat.ordinal() * MOVE_TYPE_COUNT) + type.ordinal(), 0d);
 	}
 	
 	public void mergeMoveTypeValue(Stat stat, MoveType type, double value)
 	{
-		_moveTypeStats.computeIfAbsent(stat, _ -> new ConcurrentHashMap<>()).merge(type, value, MathUtil::add);
+		_moveTypeStats.merge((stat.ordinal() * MOVE_TYPE_COUNT) + type.ordinal(), value, MathUtil::add);
+		invalidateFinalizedValues();
 	}
 	
 	public double getReuseTypeValue(int magicType)
 	{
-		final Double val = _reuseStat.get(magicType);
-		return val != null ? val.doubleValue() : 1d;
+		return _reuseStat.get(magicType, 1d);
 	}
 	
-	public void mergeReuseTypeValue(int magicType, double value, BiFunction<? super Double, ? super Double, ? extends Double> func)
+	public void mergeReuseTypeValue(int magicType, double value, DoubleBinaryOperator func)
 	{
 		_reuseStat.merge(magicType, value, func);
 	}
 	
 	public double getMpConsumeTypeValue(int magicType)
 	{
-		final Double val = _mpConsumeStat.get(magicType);
-		return val != null ? val.doubleValue() : 1d;
+		return _mpConsumeStat.get(magicType, 1d);
 	}
 	
-	public void mergeMpConsumeTypeValue(int magicType, double value, BiFunction<? super Double, ? super Double, ? extends Double> func)
+	public void mergeMpConsumeTypeValue(int magicType, double value, DoubleBinaryOperator func)
 	{
 		_mpConsumeStat.merge(magicType, value, func);
 	}
 	
+	/**
+	 * @param magicType
+	 * @return the most recently added skill evasion of the magic type
+	 */
 	public double getSkillEvasionTypeValue(int magicType)
 	{
-		final LinkedList<Double> skillEvasions = _skillEvasionStat.get(magicType);
-		if ((skillEvasions != null) && !skillEvasions.isEmpty())
-		{
-			return skillEvasions.peekLast().doubleValue();
-		}
-		
-		return 0d;
+		return _skillEvasionStat.getLast(magicType, 0d);
 	}
 	
 	public void addSkillEvasionTypeValue(int magicType, double value)
 	{
-		_skillEvasionStat.computeIfAbsent(magicType, _ -> new LinkedList<>()).add(value);
+		_skillEvasionStat.add(magicType, value);
 	}
 	
 	public void removeSkillEvasionTypeValue(int magicType, double value)
 	{
-		_skillEvasionStat.computeIfPresent(magicType, (_, v) ->
-		{
-			v.remove(value);
-			return !v.isEmpty() ? v : null;
-		});
+		_skillEvasionStat.remove(magicType, value);
 	}
 	
 	public void addToVampiricSum(double sum)
 	{
+		if (_recording != null)
+		{
+			_recording.record(StatDelta.VAMPIRIC, null, sum);
+		}
+		
 		_vampiricSum += sum;
 	}
 	
@@ -1214,6 +1629,11 @@ public class CreatureStat
 	
 	public void addToMpVampiricSum(double sum)
 	{
+		if (_recording != null)
+		{
+			_recording.record(StatDelta.MP_VAMPIRIC, null, sum);
+		}
+		
 		_mpVampiricSum += sum;
 	}
 	
@@ -1245,17 +1665,110 @@ public class CreatureStat
 	 * @param value
 	 * @return true if the there wasn't previously set fixed value, {@code false} otherwise
 	 */
-	public boolean addFixedValue(Stat stat, Double value)
+	public synchronized boolean addFixedValue(Stat stat, double value)
 	{
-		return _fixedValue.put(stat, value) == null;
+		// Copy on write, fixed values are rarely changed and read without locking.
+		final double[] fixedValues = _fixedValues != null ? _fixedValues.clone() : newFixedValues();
+		final boolean added = Double.isNaN(fixedValues[stat.ordinal()]);
+		fixedValues[stat.ordinal()] = value;
+		_fixedValues = fixedValues;
+		return added;
 	}
 	
 	/**
 	 * @param stat
 	 * @return {@code true} if fixed value is removed, {@code false} otherwise
 	 */
-	public boolean removeFixedValue(Stat stat)
+	public synchronized boolean removeFixedValue(Stat stat)
+	{
+		if ((_fixedValues == null) || Double.isNaN(_fixedValues[stat.ordinal()]))
+		{
+			return false;
+		}
+		
+		final double[] fixedValues = _fixedValues.clone();
+		fixedValues[stat.ordinal()] = Double.NaN;
+		_fixedValues = fixedValues;
+		return true;
+	}
+	
+	private static double[] newFixedValues()
+	{
+		final double[] fixedValues = new double[Stat.NUM_STATS];
+		Arrays.fill(fixedValues, Double.NaN);
+		return fixedValues;
+	}
+	
+	/**
+	 * @return the number of stat recalculations since server start
+	 */
+	public static long getRecalculationCount()
+	{
+		return RECALCULATION_COUNT.get();
+	}
+	
+	/**
+	 * @return the average stat recalculation time in nanoseconds
+	 */
+	public static long getRecalculationAverageTime()
+	{
+		final long count = RECALCULATION_COUNT.get();
+		return count > 0 ? RECALCULATION_TIME.get() / count : 0;
+	}
+	
+	/**
+	 * @return the longest stat recalculation time in nanoseconds
+	 */
+	public static long getRecalculationMaxTime()
+	{
+		return RECALCULATION_MAX_TIME.get();
+	}
+	
+	/**
+	 * @return the average bytes allocated by a stat recalculation, including the broadcast of changed stats
+	 */
+	public static long getRecalculationAverageAllocation()
+	{
+		final long count = RECALCULATION_COUNT.get();
+		return count > 0 ? RECALCULATION_ALLOCATED.get() / count : 0;
+	}
+	
+	/**
+	 * @return the number of stat recalculations that only applied or reverted effect deltas
+	 */
+	public static long getIncrementalRecalculationCount()
+	{
+		return INCREMENTAL_RECALCULATION_COUNT.get();
+	}
+	
+	/**
+	 * @return the number of stat reads served from memoised finalized values
+	 */
+	public static long getFinalizedHitCount()
+	{
+		return FINALIZED_HITS.get();
+	}
+	
+	/**
+	 * @return the number of memoised finalized values that differed from a fresh calculation, only counted in debug mode
+	 */
+	public static long getFinalizedMismatchCount()
 	{
-		return _fixedValue.remove(stat) != null;
+		return FINALIZED_MISMATCHES.get();
+	}
+	
+	/**
+	 * A memoised finalized value and the stat epoch it was calculated in, replaced as a whole so both are always read together.
+	 */
+	private static final class FinalizedValue
+	{
+		private final int _epoch;
+		private final double _value;
+		
+		private FinalizedValue(int epoch, double value)
+		{
+			_epoch = epoch;
+			_value = value;
+		}
 	}
 }
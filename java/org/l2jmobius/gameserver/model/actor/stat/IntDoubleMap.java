@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.model.actor.stat;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Small map of primitive int keys to double values, for stat tables keyed by magic type or by packed enum ordinals.<br>
+ * Entries are stored as key/value pairs in a single array, so readers never lock or unbox.<br>
+ * Adding or removing a key replaces the array, merging into an existing key updates its value in place.<br>
+ * Writes are rare (effect start and exit) and synchronized, reads happen on every skill use.
+ * @author Mobius
+ */
+final class IntDoubleMap
+{
+	private static final long[] EMPTY = new long[0];
+	
+	// Values merged in place are read without locking, element access keeps them from tearing.
+	private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+	
+	/** Pairs of key and raw double bits. */
+	private volatile long[] _entries = EMPTY;
+	
+	/**
+	 * @param key the key
+	 * @param defaultValue the value returned when the key is not present
+	 * @return the value of the first entry of the key
+	 */
+	public double get(int key, double defaultValue)
+	{
+		final long[] entries = _entries;
+		for (int i = 0; i < entries.length; i += 2)
+		{
+			if (entries[i] == key)
+			{
+				return Double.longBitsToDouble((long) ENTRIES.getOpaque(entries, i + 1));
+			}
+		}
+		
+		return defaultValue;
+	}
+	
+	/**
+	 * @param key the key
+	 * @param defaultValue the value returned when the key is not present
+	 * @return the value of the last added entry of the key
+	 */
+	public double getLast(int key, double defaultValue)
+	{
+		final long[] entries = _entries;
+		for (int i = entries.length - 2; i >= 0; i -= 2)
+		{
+			if (entries[i] == key)
+			{
+				return Double.longBitsToDouble((long) ENTRIES.getOpaque(entries, i + 1));
+			}
+		}
+		
+		return defaultValue;
+	}
+	
+	/**
+	 * Merges the value with the existing value of the key, same as {@link java.util.Map#merge}: an absent key takes the value as is.
+	 * @param key the key
+	 * @param value the value
+	 * @param function the function combining the existing value with the given value
+	 */
+	public synchronized void merge(int key, double value, DoubleBinaryOperator function)
+	{
+		final long[] entries = _entries;
+		for (int i = 0; i < entries.length; i += 2)
+		{
+			if (entries[i] == key)
+			{
+				ENTRIES.setRelease(entries, i + 1, Double.doubleToRawLongBits(function.applyAsDouble(Double.longBitsToDouble(entries[i + 1]), value)));
+				return;
+			}
+		}
+		
+		add(key, value);
+	}
+	
+	/**
+	 * Adds a new entry, even if the key is already present.
+	 * @param key the key
+	 * @param value the value
+	 */
+	public synchronized void add(int key, double value)
+	{
+		final long[] entries = _entries;
+		final long[] updated = Arrays.copyOf(entries, entries.length + 2);
+		updated[entries.length] = key;
+		updated[entries.length + 1] = Double.doubleToRawLongBits(value);
+		_entries = updated;
+	}
+	
+	/**
+	 * Removes the first entry matching both key and value.
+	 * @param key the key
+	 * @param value the value
+	 * @return {@code true} if an entry was removed
+	 */
+	public synchronized boolean remove(int key, double value)
+	{
+		final long[] entries = _entries;
+		for (int i = 0; i < entries.length; i += 2)
+		{
+			if ((entries[i] == key) && (Double.compare(Double.longBitsToDouble(entries[i + 1]), value) == 0))
+			{
+				final long[] updated = new long[entries.length - 2];
+				System.arraycopy(entries, 0, updated, 0, i);
+				System.arraycopy(entries, i + 2, updated, i, entries.length - i - 2);
+				_entries = updated;
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	public synchronized void clear()
+	{
+		_entries = EMPTY;
+	}
+	
+	public boolean isEmpty()
+	{
+		return _entries.length == 0;
+	}
+}
@@ -439,6 +439,13 @@ public class PlayerStat extends PlayableStat
 		return super.getLevel();
 	}
 	
+	@Override
+	protected boolean canMemoiseFinalizedValues()
+	{
+		// Mounted speed depends on the hunger of the mount.
+		return !getActiveChar().isMounted();
+	}
+	
 	@Override
 	public void setLevel(byte value)
 	{
@@ -454,6 +461,7 @@ public class PlayerStat extends PlayableStat
 		if (player.isSubClassActive())
 		{
 			player.getSubClasses().get(player.getClassIndex()).setLevel(level);
+			invalidateFinalizedValues();
 		}
 		else
 		{
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.model.actor.stat;
+
+import java.util.Arrays;
+
+import org.l2jmobius.gameserver.model.stats.Stat;
+
+/**
+ * Stat contributions recorded while the effects of a single buff were pumped.<br>
+ * Lets {@link CreatureStat} apply or revert one buff without pumping every other effect again.
+ * @author Mobius
+ */
+public class StatDelta
+{
+	static final int ADD = 0;
+	static final int MUL = 1;
+	static final int VAMPIRIC = 2;
+	static final int MP_VAMPIRIC = 3;
+	
+	/** Operations as stat ordinal shifted left by two, or'ed with the operation kind. */
+	private int[] _operations = new int[4];
+	private double[] _values = new double[4];
+	private int _size = 0;
+	private boolean _replayable = true;
+	
+	void record(int kind, Stat stat, double value)
+	{
+		if (_size == _operations.length)
+		{
+			_operations = Arrays.copyOf(_operations, _size * 2);
+			_values = Arrays.copyOf(_values, _size * 2);
+		}
+		
+		_operations[_size] = (stat == null ? 0 : (stat.ordinal() << 2)) | kind;
+		_values[_size] = value;
+		_size++;
+	}
+	
+	void clear()
+	{
+		_size = 0;
+		_replayable = true;
+	}
+	
+	int size()
+	{
+		return _size;
+	}
+	
+	int getKind(int index)
+	{
+		return _operations[index] & 3;
+	}
+	
+	int getStatIndex(int index)
+	{
+		return _operations[index] >>> 2;
+	}
+	
+	double getValue(int index)
+	{
+		return _values[index];
+	}
+	
+	/**
+	 * @return {@code false} if one of the recorded effects reads state that can change without a stat recalculation
+	 */
+	public boolean isReplayable()
+	{
+		return _replayable;
+	}
+	
+	void setReplayable(boolean replayable)
+	{
+		_replayable = replayable;
+	}
+	
+	/**
+	 * Marks the stats touched by this delta.
+	 * @param touched the stat mask indexed by ordinal
+	 * @return {@code true} if the delta contains vampiric sums
+	 */
+	boolean markTouched(boolean[] touched)
+	{
+		boolean vampiric = false;
+		for (int i = 0; i < _size; i++)
+		{
+			if (getKind(i) < VAMPIRIC)
+			{
+				touched[getStatIndex(i)] = true;
+			}
+			else
+			{
+				vampiric = true;
+			}
+		}
+		
+		return vampiric;
+	}
+}
@@ -22,10 +22,8 @@ package org.l2jmobius.gameserver.model.actor.status;
 
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
-import org.l2jmobius.commons.threads.ThreadPool;
 import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.actor.Player;
 import org.l2jmobius.gameserver.model.events.EventDispatcher;
@@ -34,6 +32,8 @@ import org.l2jmobius.gameserver.model.events.holders.actor.creature.OnCreatureHp
 import org.l2jmobius.gameserver.model.skill.AbnormalType;
 import org.l2jmobius.gameserver.model.stats.Formulas;
 import org.l2jmobius.gameserver.model.stats.Stat;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager.TickTask;
 
 public class CreatureStatus
 {
@@ -47,7 +47,7 @@ public class CreatureStatus
 	/** Array containing all clients that need to be notified about hp/mp updates of the Creature */
 	private Set<Creature> _StatusListener;
 	
-	private Future<?> _regTask;
+	private TickTask _regTask;
 	
 	protected byte _flagsRegenActive = 0;
 	
@@ -219,7 +219,7 @@ public class CreatureStatus
 			final int period = Formulas.getRegeneratePeriod(_creature);
 			
 			// Create the HP/MP/CP Regeneration task
-			_regTask = ThreadPool.scheduleAtFixedRate(this::doRegeneration, period, period);
+			_regTask = TickTaskManager.getInstance().scheduleAtFixedRate(_creature.getObjectId(), this::doRegeneration, period, period);
 		}
 	}
 	
@@ -237,7 +237,7 @@ public class CreatureStatus
 		if (_regTask != null)
 		{
 			// Stop the HP/MP/CP Regeneration task
-			_regTask.cancel(false);
+			_regTask.cancel();
 			_regTask = null;
 			
 			// Set the RegenActive flag to false
@@ -163,6 +163,16 @@ public abstract class AbstractEffect
 	{
 	}
 	
+	/**
+	 * Stat deltas recorded from {@link #pump(Creature, Skill)} are replayed when other effects change, instead of pumping again.<br>
+	 * Effects whose pump reads state that can change without a stat recalculation must return {@code false}.
+	 * @return {@code true} if the recorded pump of this effect can be replayed, {@code false} otherwise
+	 */
+	public boolean canReplayPump()
+	{
+		return true;
+	}
+	
 	/**
 	 * Get this effect's type.<br>
 	 * TODO: Remove.
@@ -16,7 +16,7 @@
  */
 package org.l2jmobius.gameserver.model.effects;
 
-import java.util.concurrent.ScheduledFuture;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager.TickTask;
 
 /**
  * Effect Task Info DTO.
@@ -25,12 +25,12 @@ import java.util.concurrent.ScheduledFuture;
 public class EffectTaskInfo
 {
 	private final EffectTickTask _effectTask;
-	private final ScheduledFuture<?> _scheduledFuture;
+	private final TickTask _tickTask;
 	
-	public EffectTaskInfo(EffectTickTask effectTask, ScheduledFuture<?> scheduledFuture)
+	public EffectTaskInfo(EffectTickTask effectTask, TickTask tickTask)
 	{
 		_effectTask = effectTask;
-		_scheduledFuture = scheduledFuture;
+		_tickTask = tickTask;
 	}
 	
 	public EffectTickTask getEffectTask()
@@ -38,8 +38,8 @@ public class EffectTaskInfo
 		return _effectTask;
 	}
 	
-	public ScheduledFuture<?> getScheduledFuture()
+	public TickTask getTickTask()
 	{
-		return _scheduledFuture;
+		return _tickTask;
 	}
 }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.model.events;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.l2jmobius.gameserver.model.events.holders.IBaseEvent;
+
+/**
+ * Bounded multi-producer queue of asynchronous event notifications, delivered in batches by one dedicated thread.<br>
+ * Slots are preallocated, so queueing a notification does not allocate. When all slots are taken, notifications go to an overflow queue until the<br>
+ * thread catches up, so a thread queueing several notifications always has them delivered in the order they were queued.
+ * @author Mobius
+ */
+final class AsyncEventQueue implements Runnable
+{
+	private static final Logger LOGGER = Logger.getLogger(AsyncEventQueue.class.getName());
+	
+	private static final int CAPACITY = 1 << 14;
+	private static final int MASK = CAPACITY - 1;
+	private static final int BATCH_SIZE = 256;
+	private static final long PARK_TIME = 100_000_000L;
+	
+	private final EventDispatcher _dispatcher;
+	private final IBaseEvent[] _events = new IBaseEvent[CAPACITY];
+	/** Either a {@link ListenersContainer}, a {@link ListenersContainer} array or {@code null}. */
+	private final Object[] _targets = new Object[CAPACITY];
+	private final long[] _queueTimes = new long[CAPACITY];
+	/** Slot sequences, a slot can be written when its sequence equals the tail and read when it equals the head plus one. */
+	private final AtomicLongArray _sequences = new AtomicLongArray(CAPACITY);
+	private final AtomicLong _tail = new AtomicLong();
+	private volatile long _head = 0;
+	private volatile boolean _waiting = false;
+	private volatile Thread _thread;
+	private final Queue<Object[]> _overflow = new ConcurrentLinkedQueue<>();
+	private final AtomicLong _overflowSize = new AtomicLong();
+	private final AtomicLong _overflowCount = new AtomicLong();
+	private volatile long _maxDepth = 0;
+	
+	AsyncEventQueue(EventDispatcher dispatcher)
+	{
+		_dispatcher = dispatcher;
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			_sequences.set(i, i);
+		}
+	}
+	
+	void setThread(Thread thread)
+	{
+		_thread = thread;
+	}
+	
+	/**
+	 * @param event the event
+	 * @param target the listener container, container array or {@code null}
+	 */
+	void add(IBaseEvent event, Object target)
+	{
+		// Once a notification overflowed, later ones follow it until the overflow is drained.
+		if ((_overflowSize.get() > 0) || !offer(event, target))
+		{
+			_overflowSize.incrementAndGet();
+			_overflowCount.incrementAndGet();
+			_overflow.add(new Object[]
+			{
+				event,
+				target,
+				System.nanoTime()
+			});
+		}
+		
+		final long depth = getDepth();
+		if (depth > _maxDepth)
+		{
+			_maxDepth = depth;
+		}
+		
+		if (_waiting)
+		{
+			LockSupport.unpark(_thread);
+		}
+	}
+	
+	/**
+	 * @param event the event
+	 * @param target the listener container, container array or {@code null}
+	 * @return {@code false} if all slots are taken
+	 */
+	private boolean offer(IBaseEvent event, Object target)
+	{
+		long position = _tail.get();
+		int index;
+		while (true)
+		{
+			index = (int) (position & MASK);
+			final long difference = _sequences.get(index) - position;
+			if (difference == 0)
+			{
+				if (_tail.compareAndSet(position, position + 1))
+				{
+					break;
+				}
+				position = _tail.get();
+			}
+			else if (difference < 0)
+			{
+				return false;
+			}
+			else
+			{
+				position = _tail.get();
+			}
+		}
+		
+		_events[index] = event;
+		_targets[index] = target;
+		_queueTimes[index] = System.nanoTime();
+		_sequences.set(index, position + 1);
+		return true;
+	}
+	
+	@Override
+	public void run()
+	{
+		while (true)
+		{
+			try
+			{
+				if (deliverBatch() == 0)
+				{
+					_waiting = true;
+					
+					// Check again, a notification may have been queued before the flag was visible.
+					if (!hasNext())
+					{
+						LockSupport.parkNanos(this, PARK_TIME);
+					}
+					_waiting = false;
+				}
+			}
+			catch (Throwable t)
+			{
+				LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Unexpected error.", t);
+			}
+		}
+	}
+	
+	private boolean hasNext()
+	{
+		final long head = _head;
+		return (_sequences.get((int) (head & MASK)) == (head + 1)) || (_overflowSize.get() > 0);
+	}
+	
+	/**
+	 * @return the number of delivered notifications
+	 */
+	private int deliverBatch()
+	{
+		int delivered = 0;
+		long head = _head;
+		while (delivered < BATCH_SIZE)
+		{
+			final int index = (int) (head & MASK);
+			if (_sequences.get(index) != (head + 1))
+			{
+				break;
+			}
+			
+			final IBaseEvent event = _events[index];
+			final Object target = _targets[index];
+			final long queueTime = _queueTimes[index];
+			_events[index] = null;
+			_targets[index] = null;
+			_sequences.set(index, head + CAPACITY);
+			_head = ++head;
+			
+			_dispatcher.deliverAsync(event, target, queueTime);
+			delivered++;
+		}
+		
+		// Overflowed notifications are newer than the slots, which are empty at this point unless the batch was full.
+		while ((delivered < BATCH_SIZE) && (_overflowSize.get() > 0))
+		{
+			final Object[] notification = _overflow.poll();
+			if (notification == null)
+			{
+				break;
+			}
+			
+			_dispatcher.deliverAsync((IBaseEvent) notification[0], notification[1], (long) notification[2]);
+			_overflowSize.decrementAndGet();
+			delivered++;
+		}
+		
+		return delivered;
+	}
+	
+	/**
+	 * @return the number of queued notifications
+	 */
+	long getDepth()
+	{
+		return Math.max(0, _tail.get() - _head) + _overflowSize.get();
+	}
+	
+	/**
+	 * @return the number of notifications that did not fit the slots
+	 */
+	long getOverflowCount()
+	{
+		return _overflowCount.get();
+	}
+	
+	/**
+	 * @return the highest number of queued notifications seen
+	 */
+	long getMaxDepth()
+	{
+		return _maxDepth;
+	}
+}
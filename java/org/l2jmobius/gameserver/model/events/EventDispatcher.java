@@ -20,11 +20,15 @@
  */
 package org.l2jmobius.gameserver.model.events;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.l2jmobius.commons.threads.ThreadPool;
+import org.l2jmobius.commons.threads.ThreadProvider;
+import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.events.holders.IBaseEvent;
 import org.l2jmobius.gameserver.model.events.listeners.AbstractEventListener;
 import org.l2jmobius.gameserver.model.events.returns.AbstractEventReturn;
@@ -32,12 +36,39 @@ import org.l2jmobius.gameserver.model.events.returns.AbstractEventReturn;
 /**
  * @author UnAfraid, Mobius
  */
-public class EventDispatcher
+public final class EventDispatcher
 {
 	private static final Logger LOGGER = Logger.getLogger(EventDispatcher.class.getName());
 	
-	protected EventDispatcher()
+	private static final EventType[] EVENT_TYPES = EventType.values();
+	private static final int ASYNC_WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+	
+	private final AsyncEventQueue[] _asyncQueues = new AsyncEventQueue[ASYNC_WORKER_COUNT];
+	private final AtomicLongArray _asyncCounts = new AtomicLongArray(EVENT_TYPES.length);
+	private final AtomicLongArray _asyncLatencies = new AtomicLongArray(EVENT_TYPES.length);
+	private final AtomicLongArray _asyncMaxLatencies = new AtomicLongArray(EVENT_TYPES.length);
+	private final AtomicLong _asyncDropped = new AtomicLong();
+	
+	private EventDispatcher()
 	{
+		for (int i = 0; i < ASYNC_WORKER_COUNT; i++)
+		{
+			_asyncQueues[i] = new AsyncEventQueue(this);
+		}
+	}
+	
+	/**
+	 * Starts the threads of the asynchronous queues, called once the dispatcher is fully constructed.
+	 */
+	private void startAsyncQueues()
+	{
+		final ThreadProvider threadProvider = new ThreadProvider("L2jMobius EventDispatcher", true);
+		for (AsyncEventQueue queue : _asyncQueues)
+		{
+			final Thread thread = threadProvider.newThread(queue);
+			queue.setThread(thread);
+			thread.start();
+		}
 	}
 	
 	/**
@@ -71,7 +102,7 @@ public class EventDispatcher
 		{
 			for (ListenersContainer container : containers)
 			{
-				if (container.hasListener(type))
+				if ((container != null) && container.hasListener(type))
 				{
 					hasListeners = true;
 					break;
@@ -136,7 +167,8 @@ public class EventDispatcher
 	}
 	
 	/**
-	 * Executing current listener notification asynchronously
+	 * Executing current listener notification asynchronously.<br>
+	 * The notification is dropped when nothing listens to it, otherwise it is delivered by the dispatcher thread of the container.
 	 * @param event
 	 * @param container
 	 */
@@ -147,11 +179,19 @@ public class EventDispatcher
 			throw new NullPointerException("Event cannot be null!");
 		}
 		
-		ThreadPool.execute(() -> notifyEventToSingleContainer(event, container, null));
+		// Drop the notification before anything is allocated for it.
+		if (!hasListener(event.getType(), container))
+		{
+			_asyncDropped.incrementAndGet();
+			return;
+		}
+		
+		getAsyncQueue(container).add(event, container);
 	}
 	
 	/**
-	 * Executing current listener notification asynchronously
+	 * Executing current listener notification asynchronously.<br>
+	 * The notification is dropped when nothing listens to it, otherwise it is delivered by the dispatcher thread of the container.
 	 * @param event
 	 * @param containers
 	 */
@@ -162,7 +202,100 @@ public class EventDispatcher
 			throw new NullPointerException("Event cannot be null!");
 		}
 		
-		ThreadPool.execute(() -> notifyEventToMultipleContainers(event, containers, null));
+		// Drop the notification before anything is allocated for it.
+		if (!hasListener(event.getType(), containers))
+		{
+			_asyncDropped.incrementAndGet();
+			return;
+		}
+		
+		ListenersContainer first = null;
+		for (ListenersContainer container : containers)
+		{
+			if (container != null)
+			{
+				first = container;
+				break;
+			}
+		}
+		
+		getAsyncQueue(first).add(event, containers);
+	}
+	
+	/**
+	 * Notifications of the same container always go to the same queue, so they are delivered in the order they were made.
+	 * @param container the first container of the notification, can be {@code null}
+	 * @return the asynchronous queue of the container
+	 */
+	private AsyncEventQueue getAsyncQueue(ListenersContainer container)
+	{
+		return container == null ? _asyncQueues[0] : _asyncQueues[(System.identityHashCode(container) & Integer.MAX_VALUE) % ASYNC_WORKER_COUNT];
+	}
+	
+	/**
+	 * Delivers a queued asynchronous notification, called by the thread of its queue.
+	 * @param event the event
+	 * @param target a {@link ListenersContainer}, a {@link ListenersContainer} array or {@code null}
+	 * @param queueTime the {@link System#nanoTime()} of the notification
+	 */
+	void deliverAsync(IBaseEvent event, Object target, long queueTime)
+	{
+		final int ordinal = event.getType().ordinal();
+		final long latency = System.nanoTime() - queueTime;
+		_asyncCounts.incrementAndGet(ordinal);
+		_asyncLatencies.addAndGet(ordinal, latency);
+		long max = _asyncMaxLatencies.get(ordinal);
+		while ((latency > max) && !_asyncMaxLatencies.compareAndSet(ordinal, max, latency))
+		{
+			max = _asyncMaxLatencies.get(ordinal);
+		}
+		
+		if (target instanceof ListenersContainer[])
+		{
+			notifyEventToMultipleContainers(event, (ListenersContainer[]) target, null);
+		}
+		else
+		{
+			notifyEventToSingleContainer(event, (ListenersContainer) target, null);
+		}
+	}
+	
+	/**
+	 * @return the number of queued asynchronous notifications
+	 */
+	public long getAsyncQueueDepth()
+	{
+		long depth = 0;
+		for (AsyncEventQueue queue : _asyncQueues)
+		{
+			depth += queue.getDepth();
+		}
+		
+		return depth;
+	}
+	
+	/**
+	 * @return a description of each asynchronous queue followed by the delivery latency of each notified event type
+	 */
+	public String[] getAsyncStatistics()
+	{
+		final List<String> result = new ArrayList<>();
+		for (int i = 0; i < ASYNC_WORKER_COUNT; i++)
+		{
+			result.add("Event queue " + i + ": " + _asyncQueues[i].getDepth() + " queued, " + _asyncQueues[i].getMaxDepth() + " max, " + _asyncQueues[i].getOverflowCount() + " overflowed.");
+		}
+		
+		result.add("Async events dropped without listeners: " + _asyncDropped.get() + ".");
+		for (int i = 0; i < EVENT_TYPES.length; i++)
+		{
+			final long count = _asyncCounts.get(i);
+			if (count > 0)
+			{
+				result.add(EVENT_TYPES[i] + ": " + count + " delivered, " + ((_asyncLatencies.get(i) / count) / 1000) + " us avg, " + (_asyncMaxLatencies.get(i) / 1000) + " us max.");
+			}
+		}
+		
+		return result.toArray(new String[result.size()]);
 	}
 	
 	/**
@@ -185,13 +318,13 @@ public class EventDispatcher
 			T callback = null;
 			if (container != null)
 			{
-				callback = notifyToListeners(container.getListeners(event.getType()), event, callbackClass, callback);
+				callback = notifyToContainer(container, event, callbackClass, callback);
 			}
 			
 			// Global listener container.
 			if ((callback == null) || !callback.abort())
 			{
-				callback = notifyToListeners(Containers.Global().getListeners(event.getType()), event, callbackClass, callback);
+				callback = notifyToListeners(Containers.Global().getListenerArray(event.getType()), ListenersContainer.EMPTY_LISTENERS, ListenersContainer.EMPTY_LISTENERS, event, callbackClass, callback);
 			}
 			
 			return callback;
@@ -228,7 +361,7 @@ public class EventDispatcher
 				{
 					if ((callback == null) || !callback.abort())
 					{
-						callback = notifyToListeners(container.getListeners(event.getType()), event, callbackClass, callback);
+						callback = notifyToContainer(container, event, callbackClass, callback);
 					}
 				}
 			}
@@ -236,7 +369,7 @@ public class EventDispatcher
 			// Global listener container.
 			if ((callback == null) || !callback.abort())
 			{
-				callback = notifyToListeners(Containers.Global().getListeners(event.getType()), event, callbackClass, callback);
+				callback = notifyToListeners(Containers.Global().getListenerArray(event.getType()), ListenersContainer.EMPTY_LISTENERS, ListenersContainer.EMPTY_LISTENERS, event, callbackClass, callback);
 			}
 			
 			return callback;
@@ -267,52 +400,82 @@ public class EventDispatcher
 		T callback = null;
 		if (container != null)
 		{
-			callback = notifyToListeners(container.getListeners(event.getType()), event, callbackClass, callback);
+			callback = notifyToContainer(container, event, callbackClass, callback);
 		}
 		
 		// Global listener container.
 		if ((callback == null) || !callback.abort())
 		{
-			callback = notifyToListeners(Containers.Global().getListeners(event.getType()), event, callbackClass, callback);
+			callback = notifyToListeners(Containers.Global().getListenerArray(event.getType()), ListenersContainer.EMPTY_LISTENERS, ListenersContainer.EMPTY_LISTENERS, event, callbackClass, callback);
 		}
 		
 		return callback;
 	}
 	
 	/**
+	 * Notifies the listeners of a container.<br>
+	 * Creatures also notify the listeners of their template and of the container shared by their kind, in that order.
+	 * @param <T>
+	 * @param container
+	 * @param event
+	 * @param returnBackClass
+	 * @param callbackValue
+	 * @return
+	 */
+	private <T extends AbstractEventReturn> T notifyToContainer(ListenersContainer container, IBaseEvent event, Class<T> returnBackClass, T callbackValue)
+	{
+		final EventType type = event.getType();
+		if (container instanceof Creature)
+		{
+			final Creature creature = (Creature) container;
+			final ListenersContainer kindContainer = creature.isMonster() ? Containers.Monsters() : creature.isNpc() ? Containers.Npcs() : creature.isPlayer() ? Containers.Players() : null;
+			return notifyToListeners(container.getListenerArray(type), creature.getTemplate().getListenerArray(type), kindContainer == null ? ListenersContainer.EMPTY_LISTENERS : kindContainer.getListenerArray(type), event, returnBackClass, callbackValue);
+		}
+		
+		return notifyToListeners(container.getListenerArray(type), ListenersContainer.EMPTY_LISTENERS, ListenersContainer.EMPTY_LISTENERS, event, returnBackClass, callbackValue);
+	}
+	
+	/**
+	 * Notifies up to three listener arrays as one sequence, an aborting listener stops the remaining arrays as well.
 	 * @param <T>
-	 * @param listeners
+	 * @param first
+	 * @param second
+	 * @param third
 	 * @param event
 	 * @param returnBackClass
 	 * @param callbackValue
 	 * @return
 	 */
-	private <T extends AbstractEventReturn> T notifyToListeners(Collection<AbstractEventListener> listeners, IBaseEvent event, Class<T> returnBackClass, T callbackValue)
+	private <T extends AbstractEventReturn> T notifyToListeners(AbstractEventListener[] first, AbstractEventListener[] second, AbstractEventListener[] third, IBaseEvent event, Class<T> returnBackClass, T callbackValue)
 	{
 		T callback = callbackValue;
-		for (AbstractEventListener listener : listeners)
+		for (int group = 0; group < 3; group++)
 		{
-			try
+			final AbstractEventListener[] listeners = group == 0 ? first : group == 1 ? second : third;
+			for (AbstractEventListener listener : listeners)
 			{
-				final T rb = listener.executeEvent(event, returnBackClass);
-				if (rb == null)
-				{
-					continue;
-				}
-				
-				if ((callback == null) || rb.override()) // Let's check if this listener wants to override previous return object or we simply don't have one
+				try
 				{
-					callback = rb;
+					final T rb = listener.executeEvent(event, returnBackClass);
+					if (rb == null)
+					{
+						continue;
+					}
+					
+					if ((callback == null) || rb.override()) // Let's check if this listener wants to override previous return object or we simply don't have one
+					{
+						callback = rb;
+					}
+					else if (rb.abort()) // This listener wants to abort the notification to others.
+					{
+						return callback;
+					}
 				}
-				else if (rb.abort()) // This listener wants to abort the notification to others.
+				catch (Exception e)
 				{
-					break;
+					LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Exception during notification of event: " + event.getClass().getSimpleName() + " listener: " + listener.getClass().getSimpleName(), e);
 				}
 			}
-			catch (Exception e)
-			{
-				LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Exception during notification of event: " + event.getClass().getSimpleName() + " listener: " + listener.getClass().getSimpleName(), e);
-			}
 		}
 		
 		return callback;
@@ -326,5 +489,9 @@ public class EventDispatcher
 	private static class SingletonHolder
 	{
 		protected static final EventDispatcher INSTANCE = new EventDispatcher();
+		static
+		{
+			INSTANCE.startAsyncQueues();
+		}
 	}
 }
@@ -20,23 +20,29 @@
  */
 package org.l2jmobius.gameserver.model.events;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.function.Predicate;
 
 import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.events.listeners.AbstractEventListener;
 
 /**
+ * Listeners are kept in immutable arrays per {@link EventType}, sorted by priority and replaced on every registration.<br>
+ * A bitmask of the event types with listeners lets dispatchers skip a container with a single bit test.
  * @author UnAfraid, Mobius
  */
 public class ListenersContainer
 {
-	private Map<EventType, Queue<AbstractEventListener>> _listeners = null;
+	public static final AbstractEventListener[] EMPTY_LISTENERS = new AbstractEventListener[0];
+	
+	private static final int EVENT_TYPE_COUNT = EventType.values().length;
+	
+	/** Listeners indexed by event type ordinal, {@code null} until the first registration. */
+	private volatile AbstractEventListener[][] _listeners = null;
+	/** Bits of the event type ordinals that have listeners. */
+	private volatile long[] _eventMask = null;
 	
 	/**
 	 * Registers listener for a callback when specified event is executed.
@@ -50,7 +56,30 @@ public class ListenersContainer
 			throw new NullPointerException("Listener cannot be null!");
 		}
 		
-		getListeners().computeIfAbsent(listener.getType(), _ -> new PriorityBlockingQueue<>()).add(listener);
+		synchronized (this)
+		{
+			if (_listeners == null)
+			{
+				_listeners = new AbstractEventListener[EVENT_TYPE_COUNT][];
+				_eventMask = new long[(EVENT_TYPE_COUNT + 63) >>> 6];
+			}
+			
+			// Insert after the listeners of the same or higher priority.
+			final int ordinal = listener.getType().ordinal();
+			final AbstractEventListener[] listeners = _listeners[ordinal] == null ? EMPTY_LISTENERS : _listeners[ordinal];
+			int index = 0;
+			while ((index < listeners.length) && (listeners[index].getPriority() >= listener.getPriority()))
+			{
+				index++;
+			}
+			
+			final AbstractEventListener[] result = new AbstractEventListener[listeners.length + 1];
+			System.arraycopy(listeners, 0, result, 0, index);
+			result[index] = listener;
+			System.arraycopy(listeners, index, result, index + 1, listeners.length - index);
+			setListeners(ordinal, result);
+		}
+		
 		return listener;
 	}
 	
@@ -66,35 +95,65 @@ public class ListenersContainer
 			throw new NullPointerException("Listener cannot be null!");
 		}
 		
-		if (_listeners == null)
+		synchronized (this)
 		{
-			throw new NullPointerException("Listeners container is not initialized!");
+			if (_listeners == null)
+			{
+				throw new NullPointerException("Listeners container is not initialized!");
+			}
+			
+			final EventType type = listener.getType();
+			final AbstractEventListener[] listeners = _listeners[type.ordinal()];
+			if (listeners == null)
+			{
+				throw new IllegalAccessError("Listeners container doesn't had " + type + " event type added!");
+			}
+			
+			for (int i = 0; i < listeners.length; i++)
+			{
+				if (listeners[i].equals(listener))
+				{
+					final AbstractEventListener[] result = new AbstractEventListener[listeners.length - 1];
+					System.arraycopy(listeners, 0, result, 0, i);
+					System.arraycopy(listeners, i + 1, result, i, listeners.length - i - 1);
+					setListeners(type.ordinal(), result);
+					break;
+				}
+			}
 		}
 		
-		final EventType type = listener.getType();
-		final Queue<AbstractEventListener> eventListenerQueue = _listeners.get(type);
-		if (eventListenerQueue == null)
+		return listener;
+	}
+	
+	/**
+	 * Publishes a copy of the listener arrays with the new array of an event type, and its mask bit.<br>
+	 * Must be called while holding the container lock.
+	 * @param ordinal the event type ordinal
+	 * @param listeners the new listener array
+	 */
+	private void setListeners(int ordinal, AbstractEventListener[] listeners)
+	{
+		final AbstractEventListener[][] allListeners = _listeners.clone();
+		allListeners[ordinal] = listeners.length == 0 ? null : listeners;
+		
+		final long[] mask = _eventMask.clone();
+		if (listeners.length == 0)
 		{
-			throw new IllegalAccessError("Listeners container doesn't had " + type + " event type added!");
+			mask[ordinal >>> 6] &= ~(1L << ordinal);
 		}
-		
-		eventListenerQueue.remove(listener);
-		if (eventListenerQueue.isEmpty())
+		else
 		{
-			_listeners.remove(type);
+			mask[ordinal >>> 6] |= 1L << ordinal;
 		}
 		
-		return listener;
+		// Readers holding the previous arrays keep a consistent view, the volatile writes publish the copies.
+		_eventMask = mask;
+		_listeners = allListeners;
 	}
 	
 	public void removeListenerIf(EventType type, Predicate<? super AbstractEventListener> filter)
 	{
-		if (_listeners == null)
-		{
-			return;
-		}
-		
-		for (AbstractEventListener listener : getListeners(type))
+		for (AbstractEventListener listener : getListenerArray(type))
 		{
 			if (filter.test(listener))
 			{
@@ -105,26 +164,46 @@ public class ListenersContainer
 	
 	public void removeListenerIf(Predicate<? super AbstractEventListener> filter)
 	{
-		if (_listeners == null)
+		final AbstractEventListener[][] allListeners = _listeners;
+		if (allListeners == null)
 		{
 			return;
 		}
 		
-		for (Queue<AbstractEventListener> queue : getListeners().values())
+		for (AbstractEventListener[] listeners : allListeners)
 		{
-			for (AbstractEventListener listener : queue)
+			if (listeners != null)
 			{
-				if (filter.test(listener))
+				for (AbstractEventListener listener : listeners)
 				{
-					listener.unregisterMe();
+					if (filter.test(listener))
+					{
+						listener.unregisterMe();
+					}
 				}
 			}
 		}
 	}
 	
+	/**
+	 * @param type
+	 * @return {@code true} if this container itself has a listener of the given type
+	 */
+	public boolean hasOwnListener(EventType type)
+	{
+		final long[] mask = _eventMask;
+		if (mask == null)
+		{
+			return false;
+		}
+		
+		final int ordinal = type.ordinal();
+		return (mask[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+	
 	public boolean hasListener(EventType type)
 	{
-		if ((_listeners != null) && _listeners.containsKey(type))
+		if (hasOwnListener(type))
 		{
 			return true;
 		}
@@ -132,22 +211,22 @@ public class ListenersContainer
 		if (this instanceof Creature)
 		{
 			final Creature creature = (Creature) this;
-			if (creature.getTemplate().hasListener(type))
+			if (creature.getTemplate().hasOwnListener(type))
 			{
 				return true;
 			}
 			
 			if (creature.isMonster())
 			{
-				return Containers.Monsters().hasListener(type);
+				return Containers.Monsters().hasOwnListener(type);
 			}
 			else if (creature.isNpc())
 			{
-				return Containers.Npcs().hasListener(type);
+				return Containers.Npcs().hasOwnListener(type);
 			}
 			else if (creature.isPlayer())
 			{
-				return Containers.Players().hasListener(type);
+				return Containers.Players().hasOwnListener(type);
 			}
 		}
 		
@@ -156,39 +235,30 @@ public class ListenersContainer
 	
 	/**
 	 * @param type
-	 * @return {@code List} of {@link AbstractEventListener} by the specified type
+	 * @return the listeners of the given type registered to this container, sorted by priority, must not be modified
 	 */
-	public Collection<AbstractEventListener> getListeners(EventType type)
+	public AbstractEventListener[] getListenerArray(EventType type)
 	{
-		if (_listeners != null)
+		final AbstractEventListener[][] allListeners = _listeners;
+		if (allListeners != null)
 		{
-			final Collection<AbstractEventListener> eventListenerQueue = _listeners.get(type);
-			if (eventListenerQueue != null)
+			final AbstractEventListener[] listeners = allListeners[type.ordinal()];
+			if (listeners != null)
 			{
-				return eventListenerQueue;
+				return listeners;
 			}
 		}
 		
-		return Collections.emptyList();
+		return EMPTY_LISTENERS;
 	}
 	
 	/**
-	 * Creates the listeners container map if doesn't exist.
-	 * @return the listeners container map.
+	 * @param type
+	 * @return {@code List} of {@link AbstractEventListener} by the specified type
 	 */
-	private Map<EventType, Queue<AbstractEventListener>> getListeners()
+	public Collection<AbstractEventListener> getListeners(EventType type)
 	{
-		if (_listeners == null)
-		{
-			synchronized (this)
-			{
-				if (_listeners == null)
-				{
-					_listeners = new ConcurrentHashMap<>();
-				}
-			}
-		}
-		
-		return _listeners;
+		final AbstractEventListener[] listeners = getListenerArray(type);
+		return listeners.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(listeners));
 	}
 }
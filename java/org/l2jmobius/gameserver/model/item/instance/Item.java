@@ -986,6 +986,7 @@ public class Item extends WorldObject
 		if (player != null)
 		{
 			player.getInventory().getPaperdollCache().clearArmorSetEnchant();
+			player.getStat().invalidateFinalizedValues();
 		}
 	}
 	
@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -213,10 +214,13 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	private final Queue<AbstractEventListener> _listeners = new PriorityBlockingQueue<>();
 	private final Set<QuestCondition> _startCondition = ConcurrentHashMap.newKeySet(1);
 	private final Map<String, List<QuestTimer>> _questTimers = new HashMap<>();
+	/** NPCs spawned by this script, despawned when it is unloaded. */
+	private final Set<Npc> _spawns = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 	private TimerExecutor<String> _timerExecutor;
 	
 	private final int _questId;
 	private final Path _scriptFile;
+	private volatile boolean _unloaded = false;
 	private boolean _isCustom = false;
 	private NpcStringId _questNameNpcStringId;
 	private int[] _questItemIds = null;
@@ -362,11 +366,9 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	
 	public void reload()
 	{
-		unload();
-		
 		try
 		{
-			ScriptManager.getInstance().executeScript(_scriptFile);
+			LOGGER.info(ScriptManager.getInstance().reloadScript(this));
 		}
 		catch (Exception e)
 		{
@@ -374,13 +376,61 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 		}
 	}
 	
+	/**
+	 * @return a description of the listeners, timers and spawns that {@link #unload()} tears down
+	 */
+	public String getOwnedResources()
+	{
+		int questTimerCount = 0;
+		synchronized (_questTimers)
+		{
+			for (List<QuestTimer> timers : _questTimers.values())
+			{
+				questTimerCount += timers.size();
+			}
+		}
+		
+		final int timerCount = _timerExecutor == null ? 0 : _timerExecutor.getTimerCount();
+		return _listeners.size() + " listeners, " + questTimerCount + " quest timers, " + timerCount + " timers, " + getSpawns().size() + " spawns";
+	}
+	
+	/**
+	 * @return the NPCs spawned by this script that are still in the world
+	 */
+	public List<Npc> getSpawns()
+	{
+		final List<Npc> result = new ArrayList<>();
+		synchronized (_spawns)
+		{
+			for (Npc npc : _spawns)
+			{
+				if (!npc.isDecayed())
+				{
+					result.add(npc);
+				}
+			}
+		}
+		
+		return result;
+	}
+	
 	public void unload()
 	{
 		unload(true);
 	}
 	
+	/**
+	 * Saves the script and tears down its timers, listeners and spawns. An unloaded script is never unloaded again, so replacing it does not save it twice.
+	 * @param removeFromList if {@code true} the script is also removed from the quest manager
+	 */
 	public void unload(boolean removeFromList)
 	{
+		if (_unloaded)
+		{
+			return;
+		}
+		
+		_unloaded = true;
 		onSave();
 		
 		// Cancel all pending timers before reloading.
@@ -408,6 +458,13 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 		{
 			_timerExecutor.cancelAllTimers();
 		}
+		
+		for (Npc npc : getSpawns())
+		{
+			npc.deleteMe();
+		}
+		
+		_spawns.clear();
 	}
 	
 	/**
@@ -4763,7 +4820,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, IPositionable pos)
+	public Npc addSpawn(int npcId, IPositionable pos)
 	{
 		return addSpawn(npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), false, 0, false, 0);
 	}
@@ -4777,7 +4834,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @param despawnDelay time in milliseconds till the NPC is despawned (0 - only despawned on server shutdown)
 	 * @return the {@link Npc} object of the newly spawned NPC, {@code null} if the NPC doesn't exist
 	 */
-	public static Npc addSpawn(Npc summoner, int npcId, IPositionable pos, boolean randomOffset, long despawnDelay)
+	public Npc addSpawn(Npc summoner, int npcId, IPositionable pos, boolean randomOffset, long despawnDelay)
 	{
 		return addSpawn(summoner, npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), randomOffset, despawnDelay, false, 0);
 	}
@@ -4791,7 +4848,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, IPositionable pos, boolean isSummonSpawn)
+	public Npc addSpawn(int npcId, IPositionable pos, boolean isSummonSpawn)
 	{
 		return addSpawn(npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), false, 0, isSummonSpawn, 0);
 	}
@@ -4806,7 +4863,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay)
+	public Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay)
 	{
 		return addSpawn(npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), randomOffset, despawnDelay, false, 0);
 	}
@@ -4822,7 +4879,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay, boolean isSummonSpawn)
+	public Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay, boolean isSummonSpawn)
 	{
 		return addSpawn(npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), randomOffset, despawnDelay, isSummonSpawn, 0);
 	}
@@ -4841,7 +4898,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(Npc summoner, int npcId, IPositionable pos, boolean randomOffset, int instanceId)
+	public Npc addSpawn(Npc summoner, int npcId, IPositionable pos, boolean randomOffset, int instanceId)
 	{
 		return addSpawn(summoner, npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), randomOffset, 0, false, instanceId);
 	}
@@ -4861,7 +4918,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instanceId)
+	public Npc addSpawn(int npcId, IPositionable pos, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instanceId)
 	{
 		return addSpawn(npcId, pos.getX(), pos.getY(), pos.getZ(), pos.getHeading(), randomOffset, despawnDelay, isSummonSpawn, instanceId);
 	}
@@ -4879,7 +4936,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay)
+	public Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay)
 	{
 		return addSpawn(npcId, x, y, z, heading, randomOffset, despawnDelay, false, 0);
 	}
@@ -4898,7 +4955,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, IPositionable, boolean, long, boolean, int)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean, int)
 	 */
-	public static Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn)
+	public Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn)
 	{
 		return addSpawn(npcId, x, y, z, heading, randomOffset, despawnDelay, isSummonSpawn, 0);
 	}
@@ -4919,7 +4976,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, int, int, int, int, boolean, long)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean)
 	 */
-	public static Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instanceId)
+	public Npc addSpawn(int npcId, int x, int y, int z, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instanceId)
 	{
 		return addSpawn(null, npcId, x, y, z, heading, randomOffset, despawnDelay, isSummonSpawn, instanceId);
 	}
@@ -4941,7 +4998,7 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 	 * @see #addSpawn(int, int, int, int, int, boolean, long)
 	 * @see #addSpawn(int, int, int, int, int, boolean, long, boolean)
 	 */
-	public static Npc addSpawn(Npc summoner, int npcId, int xValue, int yValue, int zValue, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instance)
+	public Npc addSpawn(Npc summoner, int npcId, int xValue, int yValue, int zValue, int heading, boolean randomOffset, long despawnDelay, boolean isSummonSpawn, int instance)
 	{
 		try
 		{
@@ -4983,6 +5040,8 @@ public class Quest implements IEventTimerEvent<String>, IEventTimerCancel<String
 				npc.scheduleDespawn(despawnDelay);
 			}
 			
+			_spawns.add(npc);
+			
 			if (summoner != null)
 			{
 				summoner.addSummonedNpc(npc);
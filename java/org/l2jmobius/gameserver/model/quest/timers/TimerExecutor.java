@@ -168,6 +168,20 @@ public class TimerExecutor<T>
 		}
 	}
 	
+	/**
+	 * @return the number of active timers
+	 */
+	public int getTimerCount()
+	{
+		int count = 0;
+		for (Set<TimerHolder<T>> set : _timers.values())
+		{
+			count += set.size();
+		}
+		
+		return count;
+	}
+	
 	/**
 	 * Cancels and removes all timers from the _timers map
 	 */
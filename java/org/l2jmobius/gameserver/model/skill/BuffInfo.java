@@ -24,13 +24,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 
 import org.l2jmobius.Config;
-import org.l2jmobius.commons.threads.ThreadPool;
 import org.l2jmobius.gameserver.model.EffectList;
 import org.l2jmobius.gameserver.model.actor.Creature;
 import org.l2jmobius.gameserver.model.actor.Player;
+import org.l2jmobius.gameserver.model.actor.stat.StatDelta;
 import org.l2jmobius.gameserver.model.effects.AbstractEffect;
 import org.l2jmobius.gameserver.model.effects.EffectTaskInfo;
 import org.l2jmobius.gameserver.model.effects.EffectTickTask;
@@ -41,6 +40,8 @@ import org.l2jmobius.gameserver.model.stats.Formulas;
 import org.l2jmobius.gameserver.network.SystemMessageId;
 import org.l2jmobius.gameserver.network.serverpackets.SystemMessage;
 import org.l2jmobius.gameserver.taskmanagers.GameTimeTaskManager;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager;
+import org.l2jmobius.gameserver.taskmanagers.TickTaskManager.TickTask;
 
 /**
  * Buff Info.<br>
@@ -76,6 +77,8 @@ public class BuffInfo
 	private final boolean _hideStartMessage;
 	private final Item _item;
 	private final Options _option;
+	/** Stat contributions recorded during the last pump of the effects. */
+	private StatDelta _statDelta;
 	
 	/**
 	 * Buff Info constructor.
@@ -201,6 +204,24 @@ public class BuffInfo
 		return _option;
 	}
 	
+	/**
+	 * Gets the stat delta recorded during the last pump of this buff's effects.
+	 * @return the stat delta, {@code null} if the effects were never pumped
+	 */
+	public StatDelta getStatDelta()
+	{
+		return _statDelta;
+	}
+	
+	/**
+	 * Sets the stat delta of this buff's effects.
+	 * @param statDelta the stat delta
+	 */
+	public void setStatDelta(StatDelta statDelta)
+	{
+		_statDelta = statDelta;
+	}
+	
 	/**
 	 * Get the remaining time in seconds for this buff info.
 	 * @return the elapsed time
@@ -351,10 +372,10 @@ public class BuffInfo
 			{
 				// The task for the effect ticks.
 				final EffectTickTask effectTask = new EffectTickTask(this, effect);
-				final ScheduledFuture<?> scheduledFuture = ThreadPool.scheduleAtFixedRate(effectTask, effect.getTicks() * Config.EFFECT_TICK_RATIO, effect.getTicks() * Config.EFFECT_TICK_RATIO);
+				final TickTask tickTask = TickTaskManager.getInstance().scheduleAtFixedRate(_effected.getObjectId(), effectTask, effect.getTicks() * Config.EFFECT_TICK_RATIO, effect.getTicks() * Config.EFFECT_TICK_RATIO);
 				
 				// Adds the task for ticking.
-				addTask(effect, new EffectTaskInfo(effectTask, scheduledFuture));
+				addTask(effect, new EffectTaskInfo(effectTask, tickTask));
 			}
 		}
 	}
@@ -380,11 +401,7 @@ public class BuffInfo
 			final EffectTaskInfo task = getEffectTask(effect);
 			if (task != null)
 			{
-				final ScheduledFuture<?> schedule = task.getScheduledFuture();
-				if ((schedule != null) && !schedule.isCancelled() && !schedule.isDone())
-				{
-					schedule.cancel(true); // Don't allow to finish current run.
-				}
+				task.getTickTask().cancel();
 				
 				_effected.getEffectList().stopSkillEffects(SkillFinishType.REMOVED, _skill); // Remove the buff from the effect list.
 			}
@@ -398,11 +415,7 @@ public class BuffInfo
 		{
 			for (EffectTaskInfo effectTask : _tasks.values())
 			{
-				final ScheduledFuture<?> schedule = effectTask.getScheduledFuture();
-				if ((schedule != null) && !schedule.isCancelled() && !schedule.isDone())
-				{
-					schedule.cancel(true); // Don't allow to finish current run.
-				}
+				effectTask.getTickTask().cancel();
 			}
 		}
 		
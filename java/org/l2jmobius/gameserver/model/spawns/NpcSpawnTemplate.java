@@ -18,12 +18,15 @@ package org.l2jmobius.gameserver.model.spawns;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+import org.l2jmobius.commons.threads.ThreadPool;
 import org.l2jmobius.commons.time.SchedulingPattern;
 import org.l2jmobius.commons.util.Rnd;
 import org.l2jmobius.gameserver.data.SpawnTable;
@@ -51,6 +54,9 @@ public class NpcSpawnTemplate implements Cloneable, IParameterized<StatSet>
 {
 	private static final Logger LOGGER = Logger.getLogger(NpcSpawnTemplate.class.getName());
 	
+	/** Runtime spawns of fewer npcs are not worth handing over to the bulk pool. */
+	private static final int MIN_BULK_SPAWNS = 20;
+	
 	private final int _id;
 	private final int _count;
 	private final Duration _respawnTime;
@@ -533,6 +539,61 @@ public class NpcSpawnTemplate implements Cloneable, IParameterized<StatSet>
 	}
 	
 	public void spawn(Instance instance)
+	{
+		spawnNpcs(prepareSpawns(instance));
+	}
+	
+	/**
+	 * Spawns the npcs of several templates while the server is loading.<br>
+	 * Spawns, their locations and npcs are prepared on the loading pool, then the calling thread adds them to the world in template order.<br>
+	 * Spawns made once the server runs go through {@link #spawnAllBulk(Collection, Instance)}, the loading pool is only meant for startup work.
+	 * @param templates the npc spawn templates
+	 * @param instance the instance to spawn in, {@code null} for the world
+	 */
+	public static void spawnAll(Collection<NpcSpawnTemplate> templates, Instance instance)
+	{
+		final Map<NpcSpawnTemplate, List<Spawn>> prepared = new ConcurrentHashMap<>(templates.size());
+		ThreadPool.executeAll(templates, template -> prepared.put(template, template.prepareSpawns(instance)));
+		for (NpcSpawnTemplate template : templates)
+		{
+			template.spawnNpcs(prepared.getOrDefault(template, Collections.emptyList()));
+		}
+	}
+	
+	/**
+	 * Spawns the npcs of several templates once the server runs, such as the spawn groups of an instance or an event.<br>
+	 * Spawns of at least {@link #MIN_BULK_SPAWNS} npcs are prepared on the bulk pool, then the calling thread adds them to the world in template order. Fewer npcs are spawned on the calling thread.
+	 * @param templates the npc spawn templates
+	 * @param instance the instance to spawn in, {@code null} for the world
+	 */
+	public static void spawnAllBulk(Collection<NpcSpawnTemplate> templates, Instance instance)
+	{
+		int count = 0;
+		for (NpcSpawnTemplate template : templates)
+		{
+			count += template.getCount();
+		}
+		
+		if ((count < MIN_BULK_SPAWNS) || (templates.size() < 2))
+		{
+			templates.forEach(template -> template.spawn(instance));
+			return;
+		}
+		
+		final Map<NpcSpawnTemplate, List<Spawn>> prepared = new ConcurrentHashMap<>(templates.size());
+		ThreadPool.executeAllBulk(templates, template -> prepared.put(template, template.prepareSpawns(instance)));
+		for (NpcSpawnTemplate template : templates)
+		{
+			template.spawnNpcs(prepared.getOrDefault(template, Collections.emptyList()));
+		}
+	}
+	
+	/**
+	 * Creates the spawns of this template with their locations and npcs, without adding anything to the world.
+	 * @param instance the instance to spawn in, {@code null} for the world
+	 * @return the prepared spawns
+	 */
+	private List<Spawn> prepareSpawns(Instance instance)
 	{
 		try
 		{
@@ -540,48 +601,79 @@ public class NpcSpawnTemplate implements Cloneable, IParameterized<StatSet>
 			if (npcTemplate == null)
 			{
 				LOGGER.warning("Attempting to spawn unexisting npc id: " + _id + " file: " + _spawnTemplate.getFile().getName() + " spawn: " + _spawnTemplate.getName() + " group: " + _group.getName());
-				return;
+				return Collections.emptyList();
 			}
 			
 			if (npcTemplate.isType("Defender"))
 			{
 				LOGGER.warning("Attempting to spawn npc id: " + _id + " type: " + npcTemplate.getType() + " file: " + _spawnTemplate.getFile().getName() + " spawn: " + _spawnTemplate.getName() + " group: " + _group.getName());
-				return;
+				return Collections.emptyList();
 			}
 			
-			for (int i = 0; i < _count; i++)
+			// Spawns prepared before a failure are still spawned, as they would have been without preparing ahead.
+			final List<Spawn> spawns = new ArrayList<>(_count);
+			try
 			{
-				spawnNpc(npcTemplate, instance);
+				for (int i = 0; i < _count; i++)
+				{
+					final Spawn spawn = prepareSpawn(npcTemplate, instance);
+					if (spawn != null)
+					{
+						spawns.add(spawn);
+					}
+				}
 			}
+			catch (Exception e)
+			{
+				LOGGER.warning("Couldn't spawn npc " + _id + e);
+			}
+			
+			return spawns;
 		}
 		catch (Exception e)
 		{
 			LOGGER.warning("Couldn't spawn npc " + _id + e);
 		}
+		
+		return Collections.emptyList();
+	}
+	
+	private void spawnNpcs(List<Spawn> spawns)
+	{
+		for (Spawn spawn : spawns)
+		{
+			try
+			{
+				spawnNpc(spawn);
+			}
+			catch (Exception e)
+			{
+				// The npc created ahead for this spawn will not be used, its object id is given back.
+				spawn.releasePreparedNpc();
+				LOGGER.warning("Couldn't spawn npc " + _id + e);
+			}
+		}
 	}
 	
 	/**
 	 * @param npcTemplate
 	 * @param instance
+	 * @return the spawn, {@code null} if no location was found
+	 * @throws ReflectiveOperationException
 	 * @throws ClassCastException
-	 * @throws NoSuchMethodException
-	 * @throws ClassNotFoundException
 	 */
-	private void spawnNpc(NpcTemplate npcTemplate, Instance instance) throws ClassNotFoundException, NoSuchMethodException, ClassCastException
+	private Spawn prepareSpawn(NpcTemplate npcTemplate, Instance instance) throws ReflectiveOperationException, ClassCastException
 	{
 		final Spawn spawn = new Spawn(npcTemplate);
-		final Location loc = getSpawnLocation();
-		if (loc == null)
+		spawn.setSpawnTemplate(this);
+		if (!spawn.prepareLocation())
 		{
 			LOGGER.warning("Couldn't initialize new spawn, no location found!");
-			return;
+			return null;
 		}
 		
 		spawn.setInstanceId(instance != null ? instance.getId() : 0);
 		spawn.setAmount(1);
-		spawn.setXYZ(loc);
-		spawn.setHeading(loc.getHeading());
-		spawn.setLocation(loc);
 		int respawn = 0;
 		int respawnRandom = 0;
 		SchedulingPattern respawnPattern = null;
@@ -611,8 +703,17 @@ public class NpcSpawnTemplate implements Cloneable, IParameterized<StatSet>
 			spawn.stopRespawn();
 		}
 		
-		spawn.setSpawnTemplate(this);
+		// Npcs saved in the database may not spawn now, so only regular npcs are created ahead.
+		if (!_saveInDB)
+		{
+			spawn.prepareNpc();
+		}
 		
+		return spawn;
+	}
+	
+	private void spawnNpc(Spawn spawn)
+	{
 		if (_saveInDB)
 		{
 			if (!DBSpawnManager.getInstance().isDefined(_id))
@@ -137,7 +137,7 @@ public class SpawnGroup implements Cloneable, ITerritorized, IParameterized<Stat
 	
 	public void spawnAll(Instance instance)
 	{
-		_spawns.forEach(template -> template.spawn(instance));
+		NpcSpawnTemplate.spawnAllBulk(_spawns, instance);
 	}
 	
 	public void despawnAll()
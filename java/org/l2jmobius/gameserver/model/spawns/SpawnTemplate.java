@@ -161,15 +161,27 @@ public class SpawnTemplate implements Cloneable, ITerritorized, IParameterized<S
 		}
 	}
 	
-	public void spawn(Predicate<SpawnGroup> groupFilter, Instance instance)
+	/**
+	 * @param groupFilter the group filter
+	 * @return the npc spawns of all groups accepted by the filter
+	 */
+	public List<NpcSpawnTemplate> getSpawns(Predicate<SpawnGroup> groupFilter)
 	{
+		final List<NpcSpawnTemplate> spawns = new ArrayList<>();
 		for (SpawnGroup group : _groups)
 		{
 			if (groupFilter.test(group))
 			{
-				group.spawnAll(instance);
+				spawns.addAll(group.getSpawns());
 			}
 		}
+		
+		return spawns;
+	}
+	
+	public void spawn(Predicate<SpawnGroup> groupFilter, Instance instance)
+	{
+		NpcSpawnTemplate.spawnAllBulk(getSpawns(groupFilter), instance);
 	}
 	
 	public void spawnAll()
@@ -189,7 +201,7 @@ public class SpawnTemplate implements Cloneable, ITerritorized, IParameterized<S
 	
 	public void spawnAllIncludingNotDefault(Instance instance)
 	{
-		_groups.forEach(group -> group.spawnAll(instance));
+		spawn(_ -> true, instance);
 	}
 	
 	public void despawn(Predicate<SpawnGroup> groupFilter)
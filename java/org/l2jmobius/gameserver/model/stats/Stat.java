@@ -307,8 +307,8 @@ public enum Stat
 	private final IStatFunction _valueFinalizer;
 	private final DoubleBinaryOperator _addFunction;
 	private final DoubleBinaryOperator _mulFunction;
-	private final Double _resetAddValue;
-	private final Double _resetMulValue;
+	private final double _resetAddValue;
+	private final double _resetMulValue;
 	
 	public String getValue()
 	{
@@ -377,12 +377,12 @@ public enum Stat
 		return _mulFunction.applyAsDouble(oldValue, value);
 	}
 	
-	public Double getResetAddValue()
+	public double getResetAddValue()
 	{
 		return _resetAddValue;
 	}
 	
-	public Double getResetMulValue()
+	public double getResetMulValue()
 	{
 		return _resetMulValue;
 	}
@@ -16,7 +16,10 @@
  */
 package org.l2jmobius.gameserver.network.serverpackets;
 
+import java.nio.charset.StandardCharsets;
+
 import org.l2jmobius.gameserver.cache.HtmCache;
+import org.l2jmobius.gameserver.cache.HtmlTemplate;
 import org.l2jmobius.gameserver.model.actor.Player;
 import org.l2jmobius.gameserver.network.PacketLogger;
 import org.l2jmobius.gameserver.network.enums.HtmlActionScope;
@@ -31,6 +34,10 @@ public abstract class AbstractHtmlPacket extends ServerPacket
 	
 	private final int _npcObjId;
 	private String _html = null;
+	private HtmlTemplate _template = null;
+	private String[] _values = null;
+	private boolean _rendered = false;
+	private byte[] _encodedHtml = null;
 	private boolean _disabledValidation = false;
 	
 	protected AbstractHtmlPacket()
@@ -72,6 +79,10 @@ public abstract class AbstractHtmlPacket extends ServerPacket
 	
 	public void setHtml(String html)
 	{
+		_template = null;
+		_values = null;
+		_rendered = false;
+		_encodedHtml = null;
 		if (html.length() > 17200)
 		{
 			PacketLogger.warning(getClass().getSimpleName() + ": Html is too long! this will crash the client!");
@@ -92,23 +103,71 @@ public abstract class AbstractHtmlPacket extends ServerPacket
 	
 	public boolean setFile(Player player, String path)
 	{
-		final String content = HtmCache.getInstance().getHtm(player, path);
-		if (content == null)
+		final HtmlTemplate template = HtmCache.getInstance().getTemplate(player, path);
+		if (template == null)
 		{
 			setHtml("<html><body>My Text is missing:<br>" + path + "</body></html>");
 			PacketLogger.warning(getClass().getSimpleName() + ": Missing html page " + path);
 			return false;
 		}
 		
+		final String content = template.getSource();
 		setHtml(content);
+		
+		// Pages used as they are keep their template, so replacements fill its slots instead of copying the page each time.
+		if (_html == content)
+		{
+			_template = template;
+		}
+		
 		return true;
 	}
 	
 	public void replace(String pattern, String value)
 	{
+		_encodedHtml = null;
+		if ((_template != null) && !_rendered)
+		{
+			// A value with a percent sign or a backslash could be affected by the replacements that follow it, so it is applied to the text.
+			final int slotId = _template.getSlotId(pattern);
+			if ((slotId >= 0) && (value.indexOf('%') < 0) && (value.indexOf('\\') < 0))
+			{
+				if (_values == null)
+				{
+					_values = new String[_template.getSlotCount()];
+				}
+				
+				// Like with the text, only the first replacement of a placeholder has an effect.
+				if (_values[slotId] == null)
+				{
+					_values[slotId] = value;
+				}
+				
+				return;
+			}
+			
+			applyTemplate();
+		}
+		
+		// The text no longer matches the template, so the action cache is built by scanning it.
+		_template = null;
+		_values = null;
 		_html = _html.replaceAll(pattern, value.replaceAll("\\$", "\\\\\\$"));
 	}
 	
+	/**
+	 * Writes the filled slots of the template into the html text. The template and its values are kept for building the action cache.<br>
+	 * Synchronized since a packet can be written to several clients at once.
+	 */
+	private synchronized void applyTemplate()
+	{
+		if ((_template != null) && !_rendered)
+		{
+			_html = _template.render(_values);
+			_rendered = true;
+		}
+	}
+	
 	public void replace(String pattern, CharSequence value)
 	{
 		replace(pattern, String.valueOf(value));
@@ -149,7 +208,8 @@ public abstract class AbstractHtmlPacket extends ServerPacket
 		
 		if (player != null)
 		{
-			HtmlUtil.buildHtmlActionCache(player, getScope(), _npcObjId, _html);
+			final String html = getHtml();
+			HtmlUtil.buildHtmlActionCache(player, getScope(), _npcObjId, _template, _values, html);
 		}
 	}
 	
@@ -160,8 +220,29 @@ public abstract class AbstractHtmlPacket extends ServerPacket
 	
 	public String getHtml()
 	{
+		applyTemplate();
 		return _html;
 	}
 	
+	/**
+	 * @return the html encoded as written to the packet, shared with the template when the page was used without replacements
+	 */
+	public synchronized byte[] getEncodedHtml()
+	{
+		if (_encodedHtml == null)
+		{
+			if (_template != null)
+			{
+				_encodedHtml = _template.renderEncoded(_values);
+			}
+			else if (_html != null)
+			{
+				_encodedHtml = _html.getBytes(StandardCharsets.UTF_16LE);
+			}
+		}
+		
+		return _encodedHtml;
+	}
+	
 	public abstract HtmlActionScope getScope();
 }
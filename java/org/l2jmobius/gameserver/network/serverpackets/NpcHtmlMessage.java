@@ -79,7 +79,7 @@ public class NpcHtmlMessage extends AbstractHtmlPacket
 	{
 		ServerPackets.NPC_HTML_MESSAGE.writeId(this, buffer);
 		buffer.writeInt(getNpcObjId());
-		buffer.writeString(getHtml());
+		buffer.writeEncodedString(getEncodedHtml());
 		buffer.writeInt(_itemId);
 		buffer.writeInt(0); // TODO: Find me!
 	}
@@ -40,7 +40,7 @@ public class NpcQuestHtmlMessage extends AbstractHtmlPacket
 	{
 		ServerPackets.EX_NPC_QUEST_HTML_MESSAGE.writeId(this, buffer);
 		buffer.writeInt(getNpcObjId());
-		buffer.writeString(getHtml());
+		buffer.writeEncodedString(getEncodedHtml());
 		buffer.writeInt(_questId);
 	}
 	
@@ -54,7 +54,7 @@ public class TutorialShowHtml extends AbstractHtmlPacket
 	{
 		ServerPackets.TUTORIAL_SHOW_HTML.writeId(this, buffer);
 		buffer.writeInt(_type);
-		buffer.writeString(getHtml());
+		buffer.writeEncodedString(getEncodedHtml());
 	}
 	
 	@Override
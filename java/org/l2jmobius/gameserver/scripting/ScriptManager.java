@@ -29,12 +29,14 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import org.w3c.dom.Document;
@@ -42,6 +44,8 @@ import org.w3c.dom.Document;
 import org.l2jmobius.Config;
 import org.l2jmobius.commons.util.IXmlReader;
 import org.l2jmobius.commons.util.TraceUtil;
+import org.l2jmobius.gameserver.managers.QuestManager;
+import org.l2jmobius.gameserver.model.quest.Quest;
 import org.l2jmobius.gameserver.scripting.engine.ScriptExecutor;
 
 /**
@@ -139,7 +143,10 @@ public class ScriptManager implements IXmlReader
 	
 	private void processDirectory(File dir, List<Path> files)
 	{
-		for (File file : dir.listFiles())
+		// Sorted, so scripts load in the same order on every file system.
+		final File[] dirFiles = dir.listFiles();
+		Arrays.sort(dirFiles);
+		for (File file : dirFiles)
 		{
 			if (file.isFile())
 			{
@@ -187,6 +194,53 @@ public class ScriptManager implements IXmlReader
 		}
 	}
 	
+	/**
+	 * Replaces a running script with a freshly compiled version of its source, while players stay connected.<br>
+	 * The new version is compiled and loaded first, so a script that does not compile keeps running. The old instance then has its listeners,<br>
+	 * timers and spawns torn down and the new one is initialised, replacing the old one in the quest manager. If initialisation fails, the old version is started again.
+	 * @param script the running script
+	 * @return a description of the swap
+	 * @throws Exception if the new version cannot be compiled, loaded or initialised
+	 */
+	public synchronized String reloadScript(Quest script) throws Exception
+	{
+		final long startTime = System.nanoTime();
+		final Class<?> oldClass = script.getClass();
+		
+		// Scripts started by a master handler, such as quests, are reloaded from their own source when it exists.
+		Path path = SCRIPT_FOLDER.resolve(oldClass.getName().replace('.', File.separatorChar) + ".java");
+		if (!Files.isRegularFile(path))
+		{
+			path = script.getScriptFile();
+		}
+		
+		final Class<?> newClass = SCRIPT_EXECUTOR.loadScript(path);
+		final long loadTime = System.nanoTime();
+		
+		final String resources = script.getOwnedResources();
+		script.unload(false);
+		final Throwable failure = SCRIPT_EXECUTOR.initializeScript(newClass, path);
+		if (failure != null)
+		{
+			final Throwable restoreFailure = SCRIPT_EXECUTOR.initializeScript(oldClass, path);
+			if (restoreFailure != null)
+			{
+				failure.addSuppressed(restoreFailure);
+			}
+			
+			throw new Exception("ScriptEngine: " + path + " failed execution, " + (restoreFailure == null ? "previous version restored." : "previous version could not be restored."), failure);
+		}
+		
+		final Quest replacement = QuestManager.getInstance().getQuest(script.getName());
+		if ((replacement == null) || (replacement == script))
+		{
+			throw new Exception("ScriptEngine: " + path + " executed but did not register a new " + script.getName() + ".");
+		}
+		
+		final long endTime = System.nanoTime();
+		return "Reloaded " + script.getName() + ": tore down " + resources + ", compiled in " + TimeUnit.NANOSECONDS.toMillis(loadTime - startTime) + " ms, swapped in " + TimeUnit.NANOSECONDS.toMicros(endTime - loadTime) + " us.";
+	}
+	
 	public void executeScriptList() throws Exception
 	{
 		if (Config.NO_QUESTS)
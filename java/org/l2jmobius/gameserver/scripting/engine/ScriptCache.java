@@ -0,0 +1,649 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.scripting.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of compiled script classes, keyed by the content hash of each script source.<br>
+ * Every cached source also records the sources it depends on, so a changed source invalidates its dependents as well.<br>
+ * The whole cache is invalidated when the Java version, the compiler options or the server classpath change.
+ * @author Mobius
+ */
+public class ScriptCache
+{
+	private static final Logger LOGGER = Logger.getLogger(ScriptCache.class.getName());
+	
+	private static final Path CACHE_FILE = Paths.get("data", "scripts.cache");
+	private static final int VERSION = 1;
+	/** Compilations of fewer sources are dominated by compiler startup, so they do not update the compile time per source. */
+	private static final int MIN_TIMED_COMPILATION = 100;
+	
+	private final Map<Path, ScriptUnit> _units = new HashMap<>();
+	private final String _environment;
+	private long _compileTimePerUnit = 0;
+	private int _hitCount = 0;
+	private boolean _changed = false;
+	
+	/**
+	 * A compiled script source.
+	 */
+	static class ScriptUnit
+	{
+		final Path _source;
+		final byte[] _hash;
+		final Set<Path> _dependencies;
+		final List<ScriptClassData> _classes;
+		
+		ScriptUnit(Path source, byte[] hash, Set<Path> dependencies, List<ScriptClassData> classes)
+		{
+			_source = source;
+			_hash = hash;
+			_dependencies = dependencies;
+			_classes = classes;
+		}
+		
+		/**
+		 * @return the top level class named after the source file, or the first top level class
+		 */
+		ScriptClassData getMainClass()
+		{
+			final String fileName = _source.getFileName().toString();
+			final String simpleName = fileName.substring(0, fileName.length() - 5);
+			ScriptClassData result = null;
+			for (ScriptClassData compiledClass : _classes)
+			{
+				if (compiledClass.getJavaName().indexOf('$') != -1)
+				{
+					continue;
+				}
+				
+				if (compiledClass.getJavaSimpleName().equals(simpleName))
+				{
+					return compiledClass;
+				}
+				
+				if (result == null)
+				{
+					result = compiledClass;
+				}
+			}
+			
+			return result;
+		}
+	}
+	
+	/**
+	 * @param options the compiler options
+	 */
+	ScriptCache(List<String> options)
+	{
+		_environment = getEnvironment(options);
+		
+		if (!Files.isRegularFile(CACHE_FILE))
+		{
+			return;
+		}
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(CACHE_FILE))))
+		{
+			if ((in.readInt() != VERSION) || !in.readUTF().equals(_environment))
+			{
+				LOGGER.info(getClass().getSimpleName() + ": Environment changed, recompiling all scripts.");
+				return;
+			}
+			
+			_compileTimePerUnit = in.readLong();
+			final int unitCount = in.readInt();
+			for (int i = 0; i < unitCount; i++)
+			{
+				final Path source = Paths.get(in.readUTF());
+				final byte[] hash = new byte[in.readUnsignedByte()];
+				in.readFully(hash);
+				
+				final int dependencyCount = in.readInt();
+				final Set<Path> dependencies = new HashSet<>(dependencyCount);
+				for (int j = 0; j < dependencyCount; j++)
+				{
+					dependencies.add(Paths.get(in.readUTF()));
+				}
+				
+				final int classCount = in.readInt();
+				final List<ScriptClassData> classes = new ArrayList<>(classCount);
+				for (int j = 0; j < classCount; j++)
+				{
+					final String javaName = in.readUTF();
+					final byte[] data = new byte[in.readInt()];
+					in.readFully(data);
+					classes.add(new ScriptClassData(source, javaName, javaName.substring(javaName.lastIndexOf('.') + 1), data));
+				}
+				
+				_units.put(source, new ScriptUnit(source, hash, dependencies, classes));
+			}
+		}
+		catch (Exception e)
+		{
+			LOGGER.warning(getClass().getSimpleName() + ": Could not read " + CACHE_FILE + ", recompiling all scripts. " + e.getMessage());
+			_units.clear();
+		}
+	}
+	
+	/**
+	 * Validates the requested sources and the cached sources they depend on.<br>
+	 * Changed, new and removed sources are dropped from the cache together with every source depending on them.
+	 * @param sourcePaths the requested sources
+	 * @return the existing sources that have to be compiled
+	 */
+	Set<Path> getInvalidSources(Iterable<Path> sourcePaths)
+	{
+		// Requested sources and everything they depend on.
+		final Set<Path> needed = new LinkedHashSet<>();
+		final ArrayDeque<Path> queue = new ArrayDeque<>();
+		for (Path sourcePath : sourcePaths)
+		{
+			final Path source = normalize(sourcePath);
+			if (needed.add(source))
+			{
+				queue.add(source);
+			}
+		}
+		
+		while (!queue.isEmpty())
+		{
+			final ScriptUnit unit = _units.get(queue.poll());
+			if (unit != null)
+			{
+				for (Path dependency : unit._dependencies)
+				{
+					if (needed.add(dependency))
+					{
+						queue.add(dependency);
+					}
+				}
+			}
+		}
+		
+		// Sources that are new, changed or removed.
+		final Set<Path> stale = new HashSet<>();
+		for (Path source : needed)
+		{
+			final ScriptUnit unit = _units.get(source);
+			if ((unit == null) || !Files.isRegularFile(source) || !Arrays.equals(unit._hash, hash(source)))
+			{
+				stale.add(source);
+			}
+		}
+		
+		for (Path source : _units.keySet())
+		{
+			if (!needed.contains(source) && !Files.isRegularFile(source))
+			{
+				stale.add(source);
+			}
+		}
+		
+		// Every source depending on a stale source.
+		final Map<Path, List<Path>> dependents = new HashMap<>();
+		for (ScriptUnit unit : _units.values())
+		{
+			for (Path dependency : unit._dependencies)
+			{
+				dependents.computeIfAbsent(dependency, _ -> new ArrayList<>()).add(unit._source);
+			}
+		}
+		
+		final Set<Path> invalid = new HashSet<>(stale);
+		queue.addAll(stale);
+		while (!queue.isEmpty())
+		{
+			final List<Path> sources = dependents.get(queue.poll());
+			if (sources != null)
+			{
+				for (Path source : sources)
+				{
+					if (invalid.add(source))
+					{
+						queue.add(source);
+					}
+				}
+			}
+		}
+		
+		final Set<Path> result = new LinkedHashSet<>();
+		for (Path source : invalid)
+		{
+			if (_units.remove(source) != null)
+			{
+				_changed = true;
+			}
+			
+			if (Files.isRegularFile(source))
+			{
+				result.add(source);
+			}
+		}
+		
+		_hitCount = 0;
+		for (Path source : needed)
+		{
+			if (!invalid.contains(source))
+			{
+				_hitCount++;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Stores freshly compiled classes and records the dependencies of their sources.
+	 * @param compiledClasses the compiled classes
+	 * @param compileTime the compilation time in nanoseconds
+	 * @return the number of compiled sources
+	 */
+	int update(Iterable<ScriptClassData> compiledClasses, long compileTime)
+	{
+		final Map<Path, List<ScriptClassData>> classesBySource = new HashMap<>();
+		for (ScriptClassData compiledClass : compiledClasses)
+		{
+			if (compiledClass.getSourcePath() != null)
+			{
+				classesBySource.computeIfAbsent(normalize(compiledClass.getSourcePath()), _ -> new ArrayList<>()).add(compiledClass);
+			}
+		}
+		
+		final List<ScriptUnit> units = new ArrayList<>(classesBySource.size());
+		final Map<Path, Set<String>> identifiers = new HashMap<>();
+		for (Entry<Path, List<ScriptClassData>> entry : classesBySource.entrySet())
+		{
+			final Path source = entry.getKey();
+			final byte[] content = read(source);
+			final ScriptUnit unit = new ScriptUnit(source, hash(content), new HashSet<>(), entry.getValue());
+			_units.put(source, unit);
+			units.add(unit);
+			identifiers.put(source, getIdentifiers(content));
+		}
+		
+		// Owners of every class and of every top level class name.
+		final Map<String, Path> classOwners = new HashMap<>();
+		final Map<String, List<Path>> simpleNameOwners = new HashMap<>();
+		for (ScriptUnit unit : _units.values())
+		{
+			for (ScriptClassData compiledClass : unit._classes)
+			{
+				final String javaName = compiledClass.getJavaName();
+				classOwners.put(javaName, unit._source);
+				if (javaName.indexOf('$') == -1)
+				{
+					simpleNameOwners.computeIfAbsent(compiledClass.getJavaSimpleName(), _ -> new ArrayList<>()).add(unit._source);
+				}
+			}
+		}
+		
+		// Classes referenced by the bytecode, plus script class names mentioned in the source, which also covers inlined constants.
+		for (ScriptUnit unit : units)
+		{
+			for (ScriptClassData compiledClass : unit._classes)
+			{
+				addReferencedSources(compiledClass.getJavaData(), classOwners, unit._dependencies);
+			}
+			
+			for (String identifier : identifiers.get(unit._source))
+			{
+				final List<Path> owners = simpleNameOwners.get(identifier);
+				if (owners != null)
+				{
+					unit._dependencies.addAll(owners);
+				}
+			}
+			
+			unit._dependencies.remove(unit._source);
+		}
+		
+		if (units.size() >= MIN_TIMED_COMPILATION)
+		{
+			_compileTimePerUnit = compileTime / units.size();
+		}
+		
+		_changed |= !units.isEmpty();
+		return units.size();
+	}
+	
+	/**
+	 * @param source the source path
+	 * @return the cached unit of the source, {@code null} if not cached
+	 */
+	ScriptUnit getUnit(Path source)
+	{
+		return _units.get(normalize(source));
+	}
+	
+	/**
+	 * @param classes the map to fill with every cached class by name
+	 */
+	void addClasses(Map<String, ScriptClassData> classes)
+	{
+		for (ScriptUnit unit : _units.values())
+		{
+			for (ScriptClassData compiledClass : unit._classes)
+			{
+				classes.put(compiledClass.getJavaName(), compiledClass);
+			}
+		}
+	}
+	
+	/**
+	 * @return the number of sources validated from cache by the last {@link #getInvalidSources(Iterable)}
+	 */
+	int getHitCount()
+	{
+		return _hitCount;
+	}
+	
+	/**
+	 * @return the average compilation time of one source in nanoseconds, measured by the last large compilation
+	 */
+	long getCompileTimePerUnit()
+	{
+		return _compileTimePerUnit;
+	}
+	
+	/**
+	 * Writes the cache to disk if it changed.
+	 */
+	void save()
+	{
+		if (!_changed)
+		{
+			return;
+		}
+		
+		final Path temporaryFile = CACHE_FILE.resolveSibling(CACHE_FILE.getFileName() + ".tmp");
+		try
+		{
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile))))
+			{
+				out.writeInt(VERSION);
+				out.writeUTF(_environment);
+				out.writeLong(_compileTimePerUnit);
+				out.writeInt(_units.size());
+				for (ScriptUnit unit : _units.values())
+				{
+					out.writeUTF(unit._source.toString());
+					out.writeByte(unit._hash.length);
+					out.write(unit._hash);
+					out.writeInt(unit._dependencies.size());
+					for (Path dependency : unit._dependencies)
+					{
+						out.writeUTF(dependency.toString());
+					}
+					
+					out.writeInt(unit._classes.size());
+					for (ScriptClassData compiledClass : unit._classes)
+					{
+						final byte[] data = compiledClass.getJavaData();
+						out.writeUTF(compiledClass.getJavaName());
+						out.writeInt(data.length);
+						out.write(data);
+					}
+				}
+			}
+			
+			Files.move(temporaryFile, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING);
+			_changed = false;
+		}
+		catch (IOException e)
+		{
+			LOGGER.warning(getClass().getSimpleName() + ": Could not write " + CACHE_FILE + ". " + e.getMessage());
+		}
+	}
+	
+	private static Path normalize(Path path)
+	{
+		return path.toAbsolutePath().normalize();
+	}
+	
+	private static byte[] read(Path source)
+	{
+		try
+		{
+			return Files.readAllBytes(source);
+		}
+		catch (IOException e)
+		{
+			return new byte[0];
+		}
+	}
+	
+	private static byte[] hash(Path source)
+	{
+		return hash(read(source));
+	}
+	
+	private static byte[] hash(byte[] content)
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * @param content the source content
+	 * @return every Java identifier found in the source, comments and strings included
+	 */
+	private static Set<String> getIdentifiers(byte[] content)
+	{
+		final Set<String> result = new HashSet<>();
+		int start = -1;
+		for (int i = 0; i <= content.length; i++)
+		{
+			final int c = i < content.length ? content[i] : ' ';
+			final boolean identifierPart = ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_') || (c == '$');
+			if (identifierPart)
+			{
+				if (start == -1)
+				{
+					start = i;
+				}
+			}
+			else if (start != -1)
+			{
+				if ((content[start] < '0') || (content[start] > '9'))
+				{
+					result.add(new String(content, start, i - start, StandardCharsets.ISO_8859_1));
+				}
+				start = -1;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Adds the sources of the script classes named in the constant pool of a class, either as class entries or inside descriptors.
+	 * @param data the class bytes
+	 * @param classOwners the source of every script class by name
+	 * @param sources the set to add the sources to
+	 */
+	private static void addReferencedSources(byte[] data, Map<String, Path> classOwners, Set<Path> sources)
+	{
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		buffer.position(8); // Magic and version.
+		final int count = buffer.getShort() & 0xFFFF;
+		for (int i = 1; i < count; i++)
+		{
+			final int tag = buffer.get();
+			switch (tag)
+			{
+				case 1: // Utf8
+				{
+					final int length = buffer.getShort() & 0xFFFF;
+					final String value = new String(data, buffer.position(), length, StandardCharsets.UTF_8).replace('/', '.');
+					buffer.position(buffer.position() + length);
+					
+					final Path owner = classOwners.get(value);
+					if (owner != null)
+					{
+						sources.add(owner);
+					}
+					
+					int descriptorStart = value.indexOf('L');
+					while (descriptorStart != -1)
+					{
+						final int descriptorEnd = value.indexOf(';', descriptorStart);
+						if (descriptorEnd == -1)
+						{
+							break;
+						}
+						
+						final Path descriptorOwner = classOwners.get(value.substring(descriptorStart + 1, descriptorEnd));
+						if (descriptorOwner != null)
+						{
+							sources.add(descriptorOwner);
+						}
+						descriptorStart = value.indexOf('L', descriptorStart + 1);
+					}
+					break;
+				}
+				case 7: // Class
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+				{
+					buffer.position(buffer.position() + 2);
+					break;
+				}
+				case 15: // MethodHandle
+				{
+					buffer.position(buffer.position() + 3);
+					break;
+				}
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+				{
+					buffer.position(buffer.position() + 4);
+					break;
+				}
+				case 5: // Long
+				case 6: // Double
+				{
+					buffer.position(buffer.position() + 8);
+					i++;
+					break;
+				}
+				default:
+				{
+					throw new IllegalStateException("Unknown constant pool tag " + tag);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param options the compiler options
+	 * @return a fingerprint of the Java version, the compiler options and the server classpath
+	 */
+	private static String getEnvironment(List<String> options)
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append(System.getProperty("java.version"));
+		sb.append('|');
+		sb.append(String.join(" ", options));
+		for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator))
+		{
+			final Path path = Paths.get(entry);
+			sb.append('|');
+			sb.append(entry);
+			try
+			{
+				if (Files.isDirectory(path))
+				{
+					long lastModified = 0;
+					long count = 0;
+					try (Stream<Path> stream = Files.walk(path))
+					{
+						final Iterator<Path> iterator = stream.iterator();
+						while (iterator.hasNext())
+						{
+							lastModified = Math.max(lastModified, Files.getLastModifiedTime(iterator.next()).toMillis());
+							count++;
+						}
+					}
+					sb.append(':').append(count).append(':').append(lastModified);
+				}
+				else if (Files.isRegularFile(path))
+				{
+					sb.append(':').append(Files.size(path)).append(':').append(Files.getLastModifiedTime(path).toMillis());
+				}
+			}
+			catch (IOException e)
+			{
+				sb.append(":?");
+			}
+		}
+		
+		final StringBuilder result = new StringBuilder();
+		for (byte b : hash(sb.toString().getBytes(StandardCharsets.UTF_8)))
+		{
+			result.append(String.format("%02x", b));
+		}
+		
+		return result.toString();
+	}
+}
@@ -50,6 +50,12 @@ public class ScriptClassData implements JavaFileObject
 		_out = new ByteArrayOutputStream();
 	}
 	
+	public ScriptClassData(Path sourcePath, String javaName, String javaSimpleName, byte[] data)
+	{
+		this(sourcePath, javaName, javaSimpleName);
+		_out.writeBytes(data);
+	}
+	
 	public Path getSourcePath()
 	{
 		return _sourcePath;
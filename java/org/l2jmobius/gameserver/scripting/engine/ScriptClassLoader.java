@@ -20,6 +20,7 @@
  */
 package org.l2jmobius.gameserver.scripting.engine;
 
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -29,9 +30,9 @@ public class ScriptClassLoader extends ClassLoader
 {
 	public static final Logger LOGGER = Logger.getLogger(ScriptClassLoader.class.getName());
 	
-	private Iterable<ScriptClassData> _compiledClasses;
+	private Map<String, ScriptClassData> _compiledClasses;
 	
-	ScriptClassLoader(ClassLoader parent, Iterable<ScriptClassData> compiledClasses)
+	ScriptClassLoader(ClassLoader parent, Map<String, ScriptClassData> compiledClasses)
 	{
 		super(parent);
 		_compiledClasses = compiledClasses;
@@ -45,13 +46,11 @@ public class ScriptClassLoader extends ClassLoader
 	@Override
 	protected Class<?> findClass(String name) throws ClassNotFoundException
 	{
-		for (ScriptClassData compiledClass : _compiledClasses)
+		final ScriptClassData compiledClass = _compiledClasses.get(name);
+		if (compiledClass != null)
 		{
-			if (compiledClass.getJavaName().equals(name))
-			{
-				final byte[] classBytes = compiledClass.getJavaData();
-				return defineClass(name, classBytes, 0, classBytes.length);
-			}
+			final byte[] classBytes = compiledClass.getJavaData();
+			return defineClass(name, classBytes, 0, classBytes.length);
 		}
 		
 		return super.findClass(name);
@@ -22,16 +22,26 @@ package org.l2jmobius.gameserver.scripting.engine;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.tools.Diagnostic;
@@ -40,7 +50,9 @@ import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.ToolProvider;
 
+import org.l2jmobius.commons.threads.ThreadProvider;
 import org.l2jmobius.gameserver.scripting.annotations.Disabled;
+import org.l2jmobius.gameserver.scripting.engine.ScriptCache.ScriptUnit;
 
 /**
  * @author HorridoJoho, Mobius
@@ -53,7 +65,14 @@ public class ScriptExecutor
 	private static final ClassLoader CLASS_LOADER = ClassLoader.getSystemClassLoader();
 	private static final List<String> OPTIONS = new ArrayList<>();
 	
-	private static Path _currentExecutingScript;
+	private static final Path SCRIPT_ROOT = Paths.get("data", "scripts").toAbsolutePath().normalize();
+	private static final int MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	/** Compilations of fewer sources are not split, since every batch pays the compiler startup. */
+	private static final int MIN_PARALLEL_COMPILATION = 100;
+	/** The script executed by the current thread. */
+	private static final ThreadLocal<Path> CURRENT_EXECUTING_SCRIPT = new ThreadLocal<>();
+	
+	private static ScriptCache _cache;
 	
 	public ScriptExecutor()
 	{
@@ -86,7 +105,248 @@ public class ScriptExecutor
 		return true;
 	}
 	
-	public Map<Path, Throwable> executeScripts(Iterable<Path> sourcePaths) throws Exception
+	public synchronized Map<Path, Throwable> executeScripts(Iterable<Path> sourcePaths) throws Exception
+	{
+		final Map<String, ScriptClassData> compiledClasses = prepareClasses(sourcePaths);
+		
+		// Scripts run in the given order, so listeners registered on the same NPCs always keep the same order.
+		final Map<Path, Throwable> executionFailures = new LinkedHashMap<>();
+		for (Path sourcePath : sourcePaths)
+		{
+			final ScriptUnit unit = _cache.getUnit(sourcePath);
+			final ScriptClassData mainClass = unit == null ? null : unit.getMainClass();
+			if (mainClass == null)
+			{
+				LOGGER.severe("Compilation successful, but class corresponding to " + sourcePath.toString() + " not found!");
+				continue;
+			}
+			
+			final Path compiledSourcePath = unit._source;
+			try
+			{
+				final ScriptClassLoader loader = new ScriptClassLoader(CLASS_LOADER, compiledClasses);
+				final Class<?> javaClass = loader.loadClass(mainClass.getJavaName());
+				final Throwable failure = execute(javaClass, compiledSourcePath);
+				if (failure != null)
+				{
+					executionFailures.put(compiledSourcePath, failure);
+				}
+			}
+			catch (Exception e)
+			{
+				executionFailures.put(compiledSourcePath, e);
+			}
+		}
+		
+		return executionFailures;
+	}
+	
+	/**
+	 * Compiles the given sources where the cache is not valid for them.
+	 * @param sourcePaths the sources
+	 * @return every compiled script class by name
+	 * @throws Exception if compilation fails
+	 */
+	private Map<String, ScriptClassData> prepareClasses(Iterable<Path> sourcePaths) throws Exception
+	{
+		final long startTime = System.nanoTime();
+		if (_cache == null)
+		{
+			_cache = new ScriptCache(OPTIONS);
+		}
+		
+		// Only sources that changed, or depend on a changed source, are compiled.
+		final Set<Path> invalidSources = _cache.getInvalidSources(sourcePaths);
+		final Map<String, ScriptClassData> compiledClasses = new HashMap<>();
+		int compiledCount = 0;
+		if (!invalidSources.isEmpty())
+		{
+			final List<ScriptClassData> classes = compile(invalidSources);
+			
+			// Classes without a source cannot be cached, they are only kept for this execution.
+			for (ScriptClassData compiledClass : classes)
+			{
+				if (compiledClass.getSourcePath() == null)
+				{
+					compiledClasses.put(compiledClass.getJavaName(), compiledClass);
+				}
+			}
+			
+			compiledCount = _cache.update(classes, System.nanoTime() - startTime);
+		}
+		
+		_cache.save();
+		_cache.addClasses(compiledClasses);
+		
+		final int hitCount = _cache.getHitCount();
+		if ((hitCount > 0) || (compiledCount > 1))
+		{
+			LOGGER.info("ScriptExecutor: Loaded " + hitCount + " script sources from cache, recompiled " + compiledCount + ", about " + TimeUnit.NANOSECONDS.toMillis(hitCount * _cache.getCompileTimePerUnit()) + " ms saved (" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms).");
+		}
+		
+		return compiledClasses;
+	}
+	
+	/**
+	 * Compiles a script if needed and loads its main class in a new class loader, without initialising it.
+	 * @param sourcePath the script source
+	 * @return the loaded class
+	 * @throws Exception if the script cannot be compiled or loaded
+	 */
+	public synchronized Class<?> loadScript(Path sourcePath) throws Exception
+	{
+		final Map<String, ScriptClassData> compiledClasses = prepareClasses(Arrays.asList(sourcePath));
+		final ScriptUnit unit = _cache.getUnit(sourcePath);
+		final ScriptClassData mainClass = unit == null ? null : unit.getMainClass();
+		if (mainClass == null)
+		{
+			throw new ClassNotFoundException("Compilation successful, but class corresponding to " + sourcePath.toString() + " not found!");
+		}
+		
+		return new ScriptClassLoader(CLASS_LOADER, compiledClasses).loadClass(mainClass.getJavaName());
+	}
+	
+	/**
+	 * Initialises a loaded script on the current thread, through its main method or, for classes without one such as quests started by a master handler, through its no-argument constructor.
+	 * @param javaClass the script class
+	 * @param sourcePath the script source
+	 * @return the failure, {@code null} on success
+	 */
+	public Throwable initializeScript(Class<?> javaClass, Path sourcePath)
+	{
+		if (hasMainMethod(javaClass))
+		{
+			return execute(javaClass, sourcePath);
+		}
+		
+		CURRENT_EXECUTING_SCRIPT.set(sourcePath);
+		try
+		{
+			final Constructor<?> constructor = javaClass.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			constructor.newInstance();
+			return null;
+		}
+		catch (Exception e)
+		{
+			return e;
+		}
+		finally
+		{
+			CURRENT_EXECUTING_SCRIPT.remove();
+		}
+	}
+	
+	/**
+	 * Compiles the given sources, splitting large compilations by package into batches compiled in parallel.
+	 * @param sources the sources
+	 * @return the compiled classes
+	 * @throws Exception if compilation fails
+	 */
+	private List<ScriptClassData> compile(Set<Path> sources) throws Exception
+	{
+		final List<List<Path>> batches = getCompilationBatches(sources);
+		if (batches.size() == 1)
+		{
+			return compileBatch(batches.get(0));
+		}
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(batches.size(), new ThreadProvider("L2jMobius ScriptCompiler"));
+		try
+		{
+			final List<Future<List<ScriptClassData>>> futures = new ArrayList<>(batches.size());
+			for (List<Path> batch : batches)
+			{
+				futures.add(executor.submit(() -> compileBatch(batch)));
+			}
+			
+			// Sources needed by several batches are compiled by each of them, the first result is kept.
+			final Map<String, ScriptClassData> result = new LinkedHashMap<>();
+			final StringBuilder errors = new StringBuilder();
+			for (Future<List<ScriptClassData>> future : futures)
+			{
+				try
+				{
+					for (ScriptClassData compiledClass : future.get())
+					{
+						result.putIfAbsent(compiledClass.getJavaName(), compiledClass);
+					}
+				}
+				catch (ExecutionException e)
+				{
+					errors.append(e.getCause().getMessage());
+				}
+			}
+			
+			if (errors.length() > 0)
+			{
+				throw new RuntimeException(errors.toString());
+			}
+			
+			return new ArrayList<>(result.values());
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Groups the sources by their package below the top level script folder, for example ai/bosses or handlers/effecthandlers.<br>
+	 * The groups are then spread over up to {@link #MAX_THREADS} batches of similar size, largest group first, so the split does not depend on timing.
+	 * @param sources the sources
+	 * @return the compilation batches
+	 */
+	private List<List<Path>> getCompilationBatches(Set<Path> sources)
+	{
+		final List<List<Path>> batches = new ArrayList<>();
+		if ((sources.size() < MIN_PARALLEL_COMPILATION) || (MAX_THREADS == 1))
+		{
+			batches.add(new ArrayList<>(sources));
+			return batches;
+		}
+		
+		final Map<String, List<Path>> groups = new TreeMap<>();
+		for (Path source : sources)
+		{
+			String group = "";
+			if (source.startsWith(SCRIPT_ROOT))
+			{
+				final Path relativePath = SCRIPT_ROOT.relativize(source);
+				group = relativePath.getNameCount() > 2 ? relativePath.subpath(0, 2).toString() : relativePath.getName(0).toString();
+			}
+			groups.computeIfAbsent(group, _ -> new ArrayList<>()).add(source);
+		}
+		
+		final List<List<Path>> sortedGroups = new ArrayList<>(groups.values());
+		sortedGroups.sort((a, b) -> Integer.compare(b.size(), a.size()));
+		for (int i = Math.min(MAX_THREADS, sortedGroups.size()); i > 0; i--)
+		{
+			batches.add(new ArrayList<>());
+		}
+		
+		for (List<Path> group : sortedGroups)
+		{
+			List<Path> smallest = batches.get(0);
+			for (List<Path> batch : batches)
+			{
+				if (batch.size() < smallest.size())
+				{
+					smallest = batch;
+				}
+			}
+			smallest.addAll(group);
+		}
+		
+		return batches;
+	}
+	
+	/**
+	 * @param sources the sources
+	 * @return the compiled classes
+	 * @throws Exception if compilation fails
+	 */
+	private List<ScriptClassData> compileBatch(List<Path> sources) throws Exception
 	{
 		final DiagnosticCollector<JavaFileObject> fileManagerDiagnostics = new DiagnosticCollector<>();
 		final DiagnosticCollector<JavaFileObject> compilationDiagnostics = new DiagnosticCollector<>();
@@ -95,9 +355,9 @@ public class ScriptExecutor
 		{
 			// We really need an iterable of files or strings.
 			final List<String> sourcePathStrings = new ArrayList<>();
-			for (Path sourcePath : sourcePaths)
+			for (Path sourcePath : sources)
 			{
-				sourcePathStrings.add(sourcePath.toAbsolutePath().toString());
+				sourcePathStrings.add(sourcePath.toString());
 			}
 			
 			final StringWriter strOut = new StringWriter();
@@ -109,51 +369,37 @@ public class ScriptExecutor
 				throw new RuntimeException(strOut.toString());
 			}
 			
-			final Map<Path, Throwable> executionFailures = new HashMap<>();
-			final Iterable<ScriptClassData> compiledClasses = fileManager.getCompiledClasses();
-			for (Path sourcePath : sourcePaths)
+			final List<ScriptClassData> result = new ArrayList<>();
+			for (ScriptClassData compiledClass : fileManager.getCompiledClasses())
 			{
-				boolean found = false;
-				for (ScriptClassData compiledClass : compiledClasses)
-				{
-					final Path compiledSourcePath = compiledClass.getSourcePath();
-					
-					// sourcePath can be relative, so we have to use endsWith
-					if ((compiledSourcePath != null) && (compiledSourcePath.equals(sourcePath) || compiledSourcePath.endsWith(sourcePath)))
-					{
-						final String javaName = compiledClass.getJavaName();
-						if (javaName.indexOf('$') != -1)
-						{
-							continue;
-						}
-						
-						found = true;
-						_currentExecutingScript = compiledSourcePath;
-						try
-						{
-							final ScriptClassLoader loader = new ScriptClassLoader(CLASS_LOADER, compiledClasses);
-							final Class<?> javaClass = loader.loadClass(javaName);
-							executeMainMethod(javaClass, compiledSourcePath);
-						}
-						catch (Exception e)
-						{
-							executionFailures.put(compiledSourcePath, e);
-						}
-						finally
-						{
-							_currentExecutingScript = null;
-						}
-						break;
-					}
-				}
-				
-				if (!found)
-				{
-					LOGGER.severe("Compilation successful, but class corresponding to " + sourcePath.toString() + " not found!");
-				}
+				result.add(compiledClass);
 			}
 			
-			return executionFailures;
+			return result;
+		}
+	}
+	
+	/**
+	 * Runs the main method of a script on the current thread.
+	 * @param javaClass the script class
+	 * @param compiledSourcePath the script source
+	 * @return the failure, {@code null} on success
+	 */
+	private Throwable execute(Class<?> javaClass, Path compiledSourcePath)
+	{
+		CURRENT_EXECUTING_SCRIPT.set(compiledSourcePath);
+		try
+		{
+			executeMainMethod(javaClass, compiledSourcePath);
+			return null;
+		}
+		catch (Exception e)
+		{
+			return e;
+		}
+		finally
+		{
+			CURRENT_EXECUTING_SCRIPT.remove();
 		}
 	}
 	
@@ -195,7 +441,7 @@ public class ScriptExecutor
 		
 		for (Method method : javaClass.getMethods())
 		{
-			if (method.getName().equals("main") && Modifier.isStatic(method.getModifiers()) && (method.getParameterCount() == 1) && (method.getParameterTypes()[0] == String[].class))
+			if (isMainMethod(method))
 			{
 				method.invoke(null, (Object) new String[]
 				{
@@ -206,6 +452,24 @@ public class ScriptExecutor
 		}
 	}
 	
+	private boolean hasMainMethod(Class<?> javaClass)
+	{
+		for (Method method : javaClass.getMethods())
+		{
+			if (isMainMethod(method))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private boolean isMainMethod(Method method)
+	{
+		return method.getName().equals("main") && Modifier.isStatic(method.getModifiers()) && (method.getParameterCount() == 1) && (method.getParameterTypes()[0] == String[].class);
+	}
+	
 	public Entry<Path, Throwable> executeScript(Path sourcePath) throws Exception
 	{
 		final Map<Path, Throwable> executionFailures = executeScripts(Arrays.asList(sourcePath));
@@ -219,6 +483,6 @@ public class ScriptExecutor
 	
 	public Path getCurrentExecutingScript()
 	{
-		return _currentExecutingScript;
+		return CURRENT_EXECUTING_SCRIPT.get();
 	}
 }
@@ -20,106 +20,191 @@
  */
 package org.l2jmobius.gameserver.taskmanagers;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.l2jmobius.Config;
 import org.l2jmobius.commons.threads.ThreadPool;
+import org.l2jmobius.gameserver.ai.AttackableAI;
 import org.l2jmobius.gameserver.ai.CreatureAI;
+import org.l2jmobius.gameserver.ai.Intention;
+import org.l2jmobius.gameserver.model.WorldRegion;
 import org.l2jmobius.gameserver.model.actor.Attackable;
 
 /**
+ * Attackables are partitioned in shards by the world region they start thinking in, each shard ticking on its own priority task.<br>
+ * Within a shard attackables are spread over {@link #SLOTS} slots so that their think calls are distributed over the second instead of bursting together.
  * @author Mobius
  */
 public class AttackableThinkTaskManager
 {
-	private static final Set<Set<Attackable>> POOLS = ConcurrentHashMap.newKeySet();
-	private static final int POOL_SIZE = 1000;
 	private static final int TASK_DELAY = 1000;
+	private static final int SLOTS = 10;
+	private static final int SLOT_DELAY = TASK_DELAY / SLOTS;
+	
+	private static final Map<Attackable, AttackableThink> MEMBERS = new ConcurrentHashMap<>();
+	private static final AttackableThink[] SHARDS = new AttackableThink[Math.max(1, Config.HIGH_PRIORITY_SCHEDULED_THREAD_POOL_SIZE)];
 	
 	protected AttackableThinkTaskManager()
 	{
+		for (int i = 0; i < SHARDS.length; i++)
+		{
+			SHARDS[i] = new AttackableThink();
+			
+			// Offset the shards so they do not start their slots at the same moment.
+			ThreadPool.schedulePriorityTaskAtFixedRate(SHARDS[i], SLOT_DELAY + ((SLOT_DELAY * i) / SHARDS.length), SLOT_DELAY);
+		}
 	}
 	
 	private class AttackableThink implements Runnable
 	{
-		private final Set<Attackable> _attackables;
+		private final List<Set<Attackable>> _slots = new ArrayList<>(SLOTS);
+		private int _currentSlot = 0;
+		
+		private final AtomicLong _ticks = new AtomicLong();
+		private final AtomicLong _skipped = new AtomicLong();
+		private final AtomicLong _overruns = new AtomicLong();
+		private volatile long _lastTime;
+		private volatile long _maxTime;
 		
-		public AttackableThink(Set<Attackable> attackables)
+		public AttackableThink()
 		{
-			_attackables = attackables;
+			for (int i = 0; i < SLOTS; i++)
+			{
+				_slots.add(ConcurrentHashMap.newKeySet());
+			}
 		}
 		
 		@Override
 		public void run()
 		{
-			if (_attackables.isEmpty())
+			final Set<Attackable> attackables = _slots.get(_currentSlot);
+			_currentSlot = (_currentSlot + 1) % SLOTS;
+			if (attackables.isEmpty())
 			{
 				return;
 			}
 			
+			final long startTime = System.nanoTime();
+			
 			CreatureAI ai;
 			Attackable attackable;
-			final Iterator<Attackable> iterator = _attackables.iterator();
+			final Iterator<Attackable> iterator = attackables.iterator();
 			while (iterator.hasNext())
 			{
 				attackable = iterator.next();
+				
+				// Removed or re-added to another shard while this slot was ticking.
+				if (MEMBERS.get(attackable) != this)
+				{
+					iterator.remove();
+					continue;
+				}
+				
 				if (attackable.hasAI())
 				{
 					ai = attackable.getAI();
 					if (ai != null)
 					{
+						// Nothing to think about when the region has no players around or the AI is idle, unless the AI asks to think anyway.
+						final WorldRegion region = attackable.getWorldRegion();
+						if ((ai instanceof AttackableAI) && !((AttackableAI) ai).needsIdleThink() && ((region == null) || !region.areNeighborsActive() || (ai.getIntention() == Intention.IDLE)))
+						{
+							_skipped.incrementAndGet();
+							continue;
+						}
+						
 						ai.onActionThink();
 					}
 					else
 					{
 						iterator.remove();
+						MEMBERS.remove(attackable, this);
 					}
 				}
 				else
 				{
 					iterator.remove();
+					MEMBERS.remove(attackable, this);
 				}
 			}
-		}
-	}
-	
-	public synchronized void add(Attackable attackable)
-	{
-		for (Set<Attackable> pool : POOLS)
-		{
-			if (pool.contains(attackable))
+			
+			final long time = System.nanoTime() - startTime;
+			_ticks.incrementAndGet();
+			_lastTime = time;
+			if (time > _maxTime)
 			{
-				return;
+				_maxTime = time;
 			}
+			
+			if (time > TimeUnit.MILLISECONDS.toNanos(SLOT_DELAY))
+			{
+				_overruns.incrementAndGet();
+			}
+		}
+		
+		public void add(Attackable attackable)
+		{
+			_slots.get(Math.abs(attackable.getObjectId() % SLOTS)).add(attackable);
+		}
+		
+		public void remove(Attackable attackable)
+		{
+			_slots.get(Math.abs(attackable.getObjectId() % SLOTS)).remove(attackable);
 		}
 		
-		for (Set<Attackable> pool : POOLS)
+		public int size()
 		{
-			if (pool.size() < POOL_SIZE)
+			int size = 0;
+			for (Set<Attackable> slot : _slots)
 			{
-				pool.add(attackable);
-				return;
+				size += slot.size();
 			}
+			
+			return size;
+		}
+	}
+	
+	public void add(Attackable attackable)
+	{
+		final WorldRegion region = attackable.getWorldRegion();
+		final AttackableThink shard = SHARDS[region == null ? 0 : Math.abs(((region.getRegionX() * 31) + region.getRegionY()) % SHARDS.length)];
+		if (MEMBERS.putIfAbsent(attackable, shard) == null)
+		{
+			shard.add(attackable);
 		}
-		
-		final Set<Attackable> pool = ConcurrentHashMap.newKeySet(POOL_SIZE);
-		pool.add(attackable);
-		ThreadPool.schedulePriorityTaskAtFixedRate(new AttackableThink(pool), TASK_DELAY, TASK_DELAY);
-		POOLS.add(pool);
 	}
 	
 	public void remove(Attackable attackable)
 	{
-		for (Set<Attackable> pool : POOLS)
+		final AttackableThink shard = MEMBERS.remove(attackable);
+		if (shard != null)
 		{
-			if (pool.remove(attackable))
-			{
-				return;
-			}
+			shard.remove(attackable);
 		}
 	}
 	
+	/**
+	 * @return a line per shard with its size, tick duration, skipped thinks and slot overruns
+	 */
+	public String[] getShardStatistics()
+	{
+		final String[] statistics = new String[SHARDS.length];
+		for (int i = 0; i < SHARDS.length; i++)
+		{
+			final AttackableThink shard = SHARDS[i];
+			statistics[i] = "Think shard " + i + ": " + shard.size() + " attackables, " + shard._ticks.get() + " ticks, last " + TimeUnit.NANOSECONDS.toMicros(shard._lastTime) + " us, max " + TimeUnit.NANOSECONDS.toMicros(shard._maxTime) + " us, " + shard._skipped.get() + " skipped, " + shard._overruns.get() + " overruns.";
+		}
+		
+		return statistics;
+	}
+	
 	public static AttackableThinkTaskManager getInstance()
 	{
 		return SingletonHolder.INSTANCE;
@@ -13,31 +13,189 @@
  */
 package org.l2jmobius.gameserver.taskmanagers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.l2jmobius.commons.threads.ThreadPool;
+import org.l2jmobius.commons.util.AllocationUtil;
+import org.l2jmobius.gameserver.ai.AdvancedAI;
+import org.l2jmobius.gameserver.ai.AutobotAI;
+import org.l2jmobius.gameserver.ai.Intention;
 import org.l2jmobius.gameserver.managers.AutobotManager;
+import org.l2jmobius.gameserver.model.WorldRegion;
 import org.l2jmobius.gameserver.model.actor.Autobot;
+import org.l2jmobius.gameserver.model.actor.Player;
 
 /**
- * Task manager for autobot AI processing
+ * Task manager for autobot AI processing.<br>
+ * Every tick the autobots are partitioned in shards by world region and the shards think in parallel on the instant pool.
+ * Each shard has its own time budget, bots left over when the budget runs out are processed first on the next tick.
  */
 public class AutobotTaskManager
 {
+    private static final Logger LOGGER = Logger.getLogger(AutobotTaskManager.class.getName());
+    
     private static final int AI_TASK_DELAY = 500; // 0.5 seconds for more responsive AI
+    private static final int SHARD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final long SHARD_BUDGET = TimeUnit.MILLISECONDS.toNanos(AI_TASK_DELAY / 2);
+    private static final Comparator<Autobot> OBJECT_ID_ORDER = Comparator.comparingInt(Autobot::getObjectId);
+    
+    private final Shard[] _shards = new Shard[SHARD_COUNT];
+    private CountDownLatch _latch;
+    private volatile long _lateTicks;
+    private volatile long _skippedTicks;
     private ScheduledFuture<?> _aiTask;
     private boolean _isActive = false;
     
     protected AutobotTaskManager()
     {
-        // Initialize task manager
+        for (int i = 0; i < SHARD_COUNT; i++)
+        {
+            _shards[i] = new Shard(i);
+        }
+    }
+    
+    /**
+     * A group of autobots thinking on the same thread during a tick.
+     */
+    private static class Shard implements Runnable
+    {
+        private final int _id;
+        private final List<Autobot> _autobots = new ArrayList<>();
+        private int _resumeObjectId = 0;
+        private CountDownLatch _latch;
+        
+        // Statistics, written only by the thread running the shard.
+        private volatile int _size;
+        private volatile long _ticks;
+        private volatile long _thinks;
+        private volatile long _skipped;
+        private volatile long _overruns;
+        private volatile long _lastTime;
+        private volatile long _maxTime;
+        private volatile long _allocated;
+        
+        public Shard(int id)
+        {
+            _id = id;
+        }
+        
+        @Override
+        public void run()
+        {
+            try
+            {
+                final long startTime = System.nanoTime();
+                final long currentTime = System.currentTimeMillis();
+                final int size = _autobots.size();
+                
+                // The list is rebuilt every tick, ordering it by object id lets the tick resume with the bot the previous one ran out of budget on, so no bot starves.
+                _autobots.sort(OBJECT_ID_ORDER);
+                int start = 0;
+                while ((start < size) && (_autobots.get(start).getObjectId() < _resumeObjectId))
+                {
+                    start++;
+                }
+                if (start == size)
+                {
+                    start = 0;
+                }
+                _resumeObjectId = 0;
+                
+                long thinks = 0;
+                long skipped = 0;
+                for (int i = 0; i < size; i++)
+                {
+                    if ((System.nanoTime() - startTime) > SHARD_BUDGET)
+                    {
+                        _resumeObjectId = _autobots.get((start + i) % size).getObjectId();
+                        _overruns++;
+                        break;
+                    }
+                    
+                    if (think(_autobots.get((start + i) % size), currentTime))
+                    {
+                        thinks++;
+                    }
+                    else
+                    {
+                        skipped++;
+                    }
+                }
+                
+                final long time = System.nanoTime() - startTime;
+                _size = size;
+                _ticks++;
+                _thinks += thinks;
+                _skipped += skipped;
+                _lastTime = time;
+                if (time > _maxTime)
+                {
+                    _maxTime = time;
+                }
+            }
+            finally
+            {
+                _autobots.clear();
+                _latch.countDown();
+            }
+        }
+        
+        /**
+         * @param autobot the autobot
+         * @param currentTime the tick time
+         * @return {@code true} if the autobot was asked to think, {@code false} if it was skipped
+         */
+        private boolean think(Autobot autobot, long currentTime)
+        {
+            final Player player = autobot.getPlayer();
+            if (!autobot.isOnline() || (player == null) || !(player.getAI() instanceof AutobotAI))
+            {
+                return false;
+            }
+            
+            // Bots still busy with their last decision (moving, casting) would ignore the think call.
+            final AutobotAI ai = (AutobotAI) player.getAI();
+            if (!ai.isThinkDue(currentTime))
+            {
+                return false;
+            }
+            
+            final long allocatedBefore = AllocationUtil.getCurrentThreadAllocatedBytes();
+            try
+            {
+                // Force the AI to think by setting intention
+                ai.setIntention(Intention.ACTIVE);
+                ai.onEvtThink();
+            }
+            catch (Exception e)
+            {
+                LOGGER.log(Level.WARNING, "Error processing AI of autobot " + autobot.getName(), e);
+            }
+            
+            _allocated += AllocationUtil.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            
+            return true;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "Autobot shard " + _id + ": " + _size + " bots, " + _ticks + " ticks, " + _thinks + " thinks, " + _skipped + " skipped, last " + TimeUnit.NANOSECONDS.toMicros(_lastTime) + " us, max " + TimeUnit.NANOSECONDS.toMicros(_maxTime) + " us, " + _overruns + " overruns, " + (_thinks > 0 ? _allocated / _thinks : 0) + " bytes allocated per think.";
+        }
     }
     
     /**
      * Start the autobot AI processing
      */
-    public void startAIProcessing()
+    public synchronized void startAIProcessing()
     {
         if (_isActive)
         {
@@ -51,7 +209,7 @@ public class AutobotTaskManager
     /**
      * Stop the autobot AI processing
      */
-    public void stopAIProcessing()
+    public synchronized void stopAIProcessing()
     {
         if (!_isActive)
         {
@@ -73,41 +231,76 @@ public class AutobotTaskManager
     {
         try
         {
-            Collection<Autobot> autobots = AutobotManager.getInstance().getActiveAutobots();
+            // Shards of a late tick may still be thinking, their lists cannot be touched until they finish.
+            if ((_latch != null) && (_latch.getCount() > 0))
+            {
+                _skippedTicks++;
+                return;
+            }
             
+            final Collection<Autobot> autobots = AutobotManager.getInstance().getActiveAutobots();
             if (autobots.isEmpty())
             {
                 return; // No autobots to process
             }
             
             // Process advanced AI coordination
-            org.l2jmobius.gameserver.ai.AdvancedAI.processCoordination();
+            AdvancedAI.processCoordination();
             
-            // Process individual autobot AI
+            // Partition by region, bots of the same region always think on the same thread.
+            for (Shard shard : _shards)
+            {
+                shard._autobots.clear();
+            }
             for (Autobot autobot : autobots)
             {
-                if (autobot != null && autobot.isOnline() && autobot.getPlayer() != null)
+                final Player player = autobot.getPlayer();
+                final WorldRegion region = player == null ? null : player.getWorldRegion();
+                _shards[region == null ? 0 : Math.abs(((region.getRegionX() * 31) + region.getRegionY()) % SHARD_COUNT)]._autobots.add(autobot);
+            }
+            
+            // Run the shards in parallel, the scheduled thread takes the first one and waits for the rest.
+            final CountDownLatch latch = new CountDownLatch(SHARD_COUNT);
+            _latch = latch;
+            for (Shard shard : _shards)
+            {
+                shard._latch = latch;
+            }
+            
+            for (int i = 1; i < SHARD_COUNT; i++)
+            {
+                final Shard shard = _shards[i];
+                if (shard._autobots.isEmpty())
                 {
-                    // Ensure AI is active and force it to think
-                    if (autobot.getPlayer().getAI() != null)
-                    {
-                        // Force the AI to think by setting intention
-                        autobot.getPlayer().getAI().setIntention(org.l2jmobius.gameserver.ai.Intention.ACTIVE);
-                        
-                        // Directly call the AI's onEvtThink method if it's our AutobotAI
-                        if (autobot.getPlayer().getAI() instanceof org.l2jmobius.gameserver.ai.AutobotAI)
-                        {
-                            ((org.l2jmobius.gameserver.ai.AutobotAI) autobot.getPlayer().getAI()).onEvtThink();
-                        }
-                    }
+                    latch.countDown();
+                    continue;
+                }
+                
+                try
+                {
+                    ThreadPool.execute(shard);
+                }
+                catch (Exception e)
+                {
+                    // The shard will not run, release it so the next tick is not held back.
+                    shard._autobots.clear();
+                    latch.countDown();
+                    LOGGER.log(Level.WARNING, "Could not execute autobot shard " + i, e);
                 }
             }
+            
+            _shards[0].run();
+            
+            // Shards are bounded by their budget, only a stalled thread keeps the latch past the tick.
+            if (!latch.await(AI_TASK_DELAY, TimeUnit.MILLISECONDS))
+            {
+                _lateTicks++;
+            }
         }
         catch (Exception e)
         {
             // Log error but don't stop the task
-            System.err.println("Error processing autobot AI: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, "Error processing autobot AI", e);
         }
     }
     
@@ -127,6 +320,21 @@ public class AutobotTaskManager
         return AutobotManager.getInstance().getActiveAutobotsCount();
     }
     
+    /**
+     * Get a line per shard with its size, tick duration, skipped bots and budget overruns, followed by the ticks that outlived their delay
+     */
+    public String[] getShardStatistics()
+    {
+        final String[] statistics = new String[SHARD_COUNT + 1];
+        for (int i = 0; i < SHARD_COUNT; i++)
+        {
+            statistics[i] = _shards[i].toString();
+        }
+        
+        statistics[SHARD_COUNT] = "Autobot ticks: " + _lateTicks + " late, " + _skippedTicks + " skipped while shards were still running.";
+        return statistics;
+    }
+    
     /**
      * Get singleton instance
      */
@@ -139,4 +347,4 @@ public class AutobotTaskManager
     {
         protected static final AutobotTaskManager INSTANCE = new AutobotTaskManager();
     }
-}
\ No newline at end of file
+}
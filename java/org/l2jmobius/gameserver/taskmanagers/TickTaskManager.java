@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2013 L2jMobius
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.l2jmobius.gameserver.taskmanagers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.l2jmobius.Config;
+import org.l2jmobius.commons.threads.ThreadPool;
+
+/**
+ * Runs periodic effect ticks and HP/MP/CP regeneration on a few shard tasks instead of a scheduled future per effect and creature.<br>
+ * Each shard keeps a timing wheel of {@link #WHEEL_SIZE} buckets of {@link #RESOLUTION} milliseconds and runs all tasks of a due bucket in one pass.<br>
+ * Tasks keep their fixed rate, deadlines advance by the exact period and only the bucket they run in is rounded up to the resolution.<br>
+ * Deadlines and the wheel follow {@link System#nanoTime()}, so changes of the wall clock do not stall or rush the ticks.<br>
+ * Cancelling only marks the task, it is dropped the next time its bucket is reached.
+ * @author Mobius
+ */
+public class TickTaskManager
+{
+	private static final Logger LOGGER = Logger.getLogger(TickTaskManager.class.getName());
+	
+	private static final int RESOLUTION = 50;
+	private static final long RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(RESOLUTION);
+	private static final int WHEEL_SIZE = 256;
+	private static final long START_TIME = System.nanoTime();
+	
+	private static final Shard[] SHARDS = new Shard[Math.max(1, Config.HIGH_PRIORITY_SCHEDULED_THREAD_POOL_SIZE)];
+	
+	protected TickTaskManager()
+	{
+		for (int i = 0; i < SHARDS.length; i++)
+		{
+			SHARDS[i] = new Shard();
+			
+			// Offset the shards so they do not run their buckets at the same moment.
+			ThreadPool.scheduleAtFixedRate(SHARDS[i], RESOLUTION + ((RESOLUTION * i) / SHARDS.length), RESOLUTION);
+		}
+	}
+	
+	/**
+	 * A periodic task registered to the tick task manager.
+	 */
+	public static class TickTask
+	{
+		private final Runnable _runnable;
+		private final long _period;
+		private long _deadline;
+		private volatile boolean _cancelled = false;
+		
+		protected TickTask(Runnable runnable, long initialDelay, long period)
+		{
+			_runnable = runnable;
+			_period = TimeUnit.MILLISECONDS.toNanos(Math.max(1, period));
+			_deadline = currentTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, initialDelay));
+		}
+		
+		/**
+		 * Cancels this task, a tick already running is allowed to finish.
+		 */
+		public void cancel()
+		{
+			_cancelled = true;
+		}
+		
+		/**
+		 * @return {@code true} if this task was cancelled
+		 */
+		public boolean isCancelled()
+		{
+			return _cancelled;
+		}
+	}
+	
+	private static class Shard implements Runnable
+	{
+		private final List<List<TickTask>> _wheel = new ArrayList<>(WHEEL_SIZE);
+		private List<TickTask> _running = new ArrayList<>();
+		private final Queue<TickTask> _pending = new ConcurrentLinkedQueue<>();
+		private long _lastTick = currentTime() / RESOLUTION_NANOS;
+		
+		private final AtomicInteger _size = new AtomicInteger();
+		private final AtomicLong _ticks = new AtomicLong();
+		private volatile long _lastTime;
+		private volatile long _maxTime;
+		
+		public Shard()
+		{
+			for (int i = 0; i < WHEEL_SIZE; i++)
+			{
+				_wheel.add(new ArrayList<>());
+			}
+		}
+		
+		@Override
+		public void run()
+		{
+			final long currentTime = currentTime();
+			final long currentTick = currentTime / RESOLUTION_NANOS;
+			
+			// Tasks added since the last run.
+			TickTask task;
+			while ((task = _pending.poll()) != null)
+			{
+				if (task._cancelled)
+				{
+					_size.decrementAndGet();
+				}
+				else
+				{
+					insert(task, _lastTick + 1);
+				}
+			}
+			
+			// Never process the same bucket twice in one run, even if the shard fell a whole rotation behind.
+			final long firstTick = Math.max(_lastTick + 1, currentTick - WHEEL_SIZE + 1);
+			for (long tick = firstTick; tick <= currentTick; tick++)
+			{
+				final int index = (int) (tick % WHEEL_SIZE);
+				if (_wheel.get(index).isEmpty())
+				{
+					continue;
+				}
+				
+				// Swap the bucket so tasks can be inserted back into it.
+				final List<TickTask> bucket = _wheel.get(index);
+				_wheel.set(index, _running);
+				_running = bucket;
+				
+				final long startTime = System.nanoTime();
+				int next = 0;
+				boolean completed = false;
+				try
+				{
+					while (next < bucket.size())
+					{
+						task = bucket.get(next++);
+						if (task._cancelled)
+						{
+							_size.decrementAndGet();
+							continue;
+						}
+						
+						// Deadline in a later rotation of the wheel.
+						if (task._deadline > currentTime)
+						{
+							insert(task, tick + 1);
+							continue;
+						}
+						
+						try
+						{
+							task._runnable.run();
+						}
+						catch (Exception e)
+						{
+							LOGGER.log(Level.WARNING, getClass().getSimpleName() + ": Exception while running tick task " + task._runnable, e);
+						}
+						
+						if (task._cancelled)
+						{
+							_size.decrementAndGet();
+						}
+						else
+						{
+							task._deadline += task._period;
+							insert(task, tick + 1);
+						}
+					}
+					
+					completed = true;
+				}
+				finally
+				{
+					// An error thrown by a task drops that task like a scheduled future would, the tasks after it go back into the wheel.
+					if (!completed)
+					{
+						_size.decrementAndGet();
+						for (int i = next; i < bucket.size(); i++)
+						{
+							insert(bucket.get(i), tick + 1);
+						}
+					}
+					
+					bucket.clear();
+				}
+				
+				final long time = System.nanoTime() - startTime;
+				_ticks.incrementAndGet();
+				_lastTime = time;
+				if (time > _maxTime)
+				{
+					_maxTime = time;
+				}
+			}
+			
+			_lastTick = Math.max(_lastTick, currentTick);
+		}
+		
+		/**
+		 * @param task the task
+		 * @param minimumTick the earliest tick the task may run in
+		 */
+		private void insert(TickTask task, long minimumTick)
+		{
+			final long tick = Math.max(minimumTick, (task._deadline + RESOLUTION_NANOS - 1) / RESOLUTION_NANOS);
+			_wheel.get((int) (tick % WHEEL_SIZE)).add(task);
+		}
+	}
+	
+	/**
+	 * @return the nanoseconds since the tick task manager was loaded, never negative unlike {@link System#nanoTime()}
+	 */
+	private static long currentTime()
+	{
+		return System.nanoTime() - START_TIME;
+	}
+	
+	/**
+	 * Schedules a periodic task at a fixed rate.<br>
+	 * Tasks with the same key always run on the same shard, one after the other.
+	 * @param key the shard key, usually the object id of the ticking creature
+	 * @param runnable the task to run
+	 * @param initialDelay the delay before the first run in milliseconds
+	 * @param period the period between runs in milliseconds
+	 * @return the tick task, used for cancellation
+	 */
+	public TickTask scheduleAtFixedRate(int key, Runnable runnable, long initialDelay, long period)
+	{
+		final TickTask task = new TickTask(runnable, initialDelay, period);
+		final Shard shard = SHARDS[Math.abs(key % SHARDS.length)];
+		shard._size.incrementAndGet();
+		shard._pending.add(task);
+		return task;
+	}
+	
+	/**
+	 * @return a line per shard with its registered tasks and bucket run durations
+	 */
+	public String[] getShardStatistics()
+	{
+		final String[] statistics = new String[SHARDS.length];
+		for (int i = 0; i < SHARDS.length; i++)
+		{
+			final Shard shard = SHARDS[i];
+			statistics[i] = "Tick shard " + i + ": " + shard._size.get() + " tasks, " + shard._ticks.get() + " buckets, last " + TimeUnit.NANOSECONDS.toMicros(shard._lastTime) + " us, max " + TimeUnit.NANOSECONDS.toMicros(shard._maxTime) + " us.";
+		}
+		
+		return statistics;
+	}
+	
+	public static TickTaskManager getInstance()
+	{
+		return SingletonHolder.INSTANCE;
+	}
+	
+	private static class SingletonHolder
+	{
+		protected static final TickTaskManager INSTANCE = new TickTaskManager();
+	}
+}
@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.logging.Logger;
 
 import org.l2jmobius.Config;
+import org.l2jmobius.gameserver.cache.HtmlTemplate;
 import org.l2jmobius.gameserver.model.actor.Player;
 import org.l2jmobius.gameserver.network.enums.HtmlActionScope;
 import org.l2jmobius.gameserver.network.serverpackets.AbstractHtmlPacket;
@@ -39,6 +40,11 @@ public class HtmlUtil
 {
 	private static final Logger LOGGER = Logger.getLogger(HtmlUtil.class.getName());
 	
+	/** The text starting a bypass action, up to the bypass itself. */
+	public static final String BYPASS_START = "=\"bypass ";
+	/** The text starting a link action, up to the link path. */
+	public static final String LINK_START = "=\"link ";
+	
 	/**
 	 * Generates an HTML representation of the CP (Combat Points) gauge. The gauge visually represents the current CP value relative to its maximum, displayed as either a percentage or a fraction.
 	 * @param width the width of the gauge, which determines its horizontal size
@@ -243,41 +249,19 @@ public class HtmlUtil
 	{
 		final String htmlLower = html.toLowerCase(Locale.ENGLISH);
 		int bypassEnd = 0;
-		int bypassStart = htmlLower.indexOf("=\"bypass ", bypassEnd);
+		int bypassStart = htmlLower.indexOf(BYPASS_START, bypassEnd);
 		int bypassStartEnd;
 		while (bypassStart != -1)
 		{
-			bypassStartEnd = bypassStart + 9;
+			bypassStartEnd = bypassStart + BYPASS_START.length();
 			bypassEnd = htmlLower.indexOf("\"", bypassStartEnd);
 			if (bypassEnd == -1)
 			{
 				break;
 			}
 			
-			final int hParamPos = htmlLower.indexOf("-h ", bypassStartEnd);
-			String bypass;
-			if ((hParamPos != -1) && (hParamPos < bypassEnd))
-			{
-				bypass = html.substring(hParamPos + 3, bypassEnd).trim();
-			}
-			else
-			{
-				bypass = html.substring(bypassStartEnd, bypassEnd).trim();
-			}
-			
-			final int firstParameterStart = bypass.indexOf(AbstractHtmlPacket.VAR_PARAM_START_CHAR);
-			if (firstParameterStart != -1)
-			{
-				bypass = bypass.substring(0, firstParameterStart + 1);
-			}
-			
-			if (Config.HTML_ACTION_CACHE_DEBUG)
-			{
-				LOGGER.info("Cached html bypass(" + scope + "): '" + bypass + "'");
-			}
-			
-			player.addHtmlAction(scope, bypass);
-			bypassStart = htmlLower.indexOf("=\"bypass ", bypassEnd);
+			addHtmlBypass(player, scope, readAction(html, BYPASS_START, bypassStartEnd, bypassEnd));
+			bypassStart = htmlLower.indexOf(BYPASS_START, bypassEnd);
 		}
 	}
 	
@@ -291,39 +275,85 @@ public class HtmlUtil
 	{
 		final String htmlLower = html.toLowerCase(Locale.ENGLISH);
 		int linkEnd = 0;
-		int linkStart = htmlLower.indexOf("=\"link ", linkEnd);
+		int linkStart = htmlLower.indexOf(LINK_START, linkEnd);
 		int linkStartEnd;
 		while (linkStart != -1)
 		{
-			linkStartEnd = linkStart + 7;
+			linkStartEnd = linkStart + LINK_START.length();
 			linkEnd = htmlLower.indexOf("\"", linkStartEnd);
 			if (linkEnd == -1)
 			{
 				break;
 			}
 			
-			final String htmlLink = html.substring(linkStartEnd, linkEnd).trim();
-			if (htmlLink.isEmpty())
-			{
-				LOGGER.warning("Html link path is empty!");
-				continue;
-			}
-			
-			if (htmlLink.contains(".."))
-			{
-				LOGGER.warning("Html link path is invalid: " + htmlLink);
-				continue;
-			}
-			
-			if (Config.HTML_ACTION_CACHE_DEBUG)
-			{
-				LOGGER.info("Cached html link(" + scope + "): '" + htmlLink + "'");
-			}
-			
-			// let's keep an action cache with "link " lowercase literal kept
-			player.addHtmlAction(scope, "link " + htmlLink);
-			linkStart = htmlLower.indexOf("=\"link ", linkEnd);
+			addHtmlLink(player, scope, readAction(html, LINK_START, linkStartEnd, linkEnd));
+			linkStart = htmlLower.indexOf(LINK_START, linkEnd);
+		}
+	}
+	
+	/**
+	 * Reads the action between its start text and its closing quote.<br>
+	 * For bypasses the {@code -h} parameter is skipped and only the part up to the first variable parameter is kept, for links the path is returned.
+	 * @param html the HTML content
+	 * @param start {@link #BYPASS_START} or {@link #LINK_START}
+	 * @param startEnd the position after the start text
+	 * @param end the position of the closing quote
+	 * @return the action
+	 */
+	public static String readAction(String html, String start, int startEnd, int end)
+	{
+		if (LINK_START.equals(start))
+		{
+			return html.substring(startEnd, end).trim();
+		}
+		
+		int hParamPos = startEnd;
+		while ((hParamPos <= (end - 3)) && !html.regionMatches(true, hParamPos, "-h ", 0, 3))
+		{
+			hParamPos++;
+		}
+		
+		String bypass = hParamPos <= (end - 3) ? html.substring(hParamPos + 3, end).trim() : html.substring(startEnd, end).trim();
+		final int firstParameterStart = bypass.indexOf(AbstractHtmlPacket.VAR_PARAM_START_CHAR);
+		if (firstParameterStart != -1)
+		{
+			bypass = bypass.substring(0, firstParameterStart + 1);
 		}
+		
+		return bypass;
+	}
+	
+	private static void addHtmlBypass(Player player, HtmlActionScope scope, String bypass)
+	{
+		if (Config.HTML_ACTION_CACHE_DEBUG)
+		{
+			LOGGER.info("Cached html bypass(" + scope + "): '" + bypass + "'");
+		}
+		
+		player.addHtmlAction(scope, bypass);
+	}
+	
+	private static void addHtmlLink(Player player, HtmlActionScope scope, String htmlLink)
+	{
+		if (htmlLink.isEmpty())
+		{
+			LOGGER.warning("Html link path is empty!");
+			return;
+		}
+		
+		if (htmlLink.contains(".."))
+		{
+			LOGGER.warning("Html link path is invalid: " + htmlLink);
+			return;
+		}
+		
+		if (Config.HTML_ACTION_CACHE_DEBUG)
+		{
+			LOGGER.info("Cached html link(" + scope + "): '" + htmlLink + "'");
+		}
+		
+		// let's keep an action cache with "link " lowercase literal kept
+		player.addHtmlAction(scope, "link " + htmlLink);
 	}
 	
 	/**
@@ -334,6 +364,20 @@ public class HtmlUtil
 	 * @param html the HTML content to parse for cacheable actions
 	 */
 	public static void buildHtmlActionCache(Player player, HtmlActionScope scope, int npcObjId, String html)
+	{
+		buildHtmlActionCache(player, scope, npcObjId, null, null, html);
+	}
+	
+	/**
+	 * Builds the HTML action cache for the specified scope from a page rendered from a template, taking the actions the template already located instead of scanning the page where possible.
+	 * @param player the player for whom the HTML action cache is being built
+	 * @param scope the scope within which the HTML action cache is valid
+	 * @param npcObjId the NPC object ID associated with the cached actions, where 0 indicates no specific NPC
+	 * @param template the template the page was rendered from, or {@code null} to scan the page
+	 * @param values the slot values the page was rendered with
+	 * @param html the HTML content to parse for cacheable actions
+	 */
+	public static void buildHtmlActionCache(Player player, HtmlActionScope scope, int npcObjId, HtmlTemplate template, String[] values, String html)
 	{
 		if ((player == null) || (scope == null) || (npcObjId < 0) || (html == null))
 		{
@@ -346,8 +390,11 @@ public class HtmlUtil
 		}
 		
 		player.setHtmlActionOriginObjectId(scope, npcObjId);
-		buildHtmlBypassCache(player, scope, html);
-		buildHtmlLinkCache(player, scope, html);
+		if ((template == null) || !template.forEachAction(values, html, bypass -> addHtmlBypass(player, scope, bypass), link -> addHtmlLink(player, scope, link)))
+		{
+			buildHtmlBypassCache(player, scope, html);
+			buildHtmlLinkCache(player, scope, html);
+		}
 	}
 	
 	/**